@@ -0,0 +1,177 @@
+package jaw64.ca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jaw64.ca.rules.Binary1DRule;
+import jaw64.ca.rules.Binary1DSymmetry;
+
+/**
+ * Cache of 1-dimensional binary cellular automata which shares work between
+ * equivalent runs. A run (rule + initial condition) which is the mirror image
+ * and / or complement of a previously computed run is derived from that run's
+ * iterations instead of being generated again (see {@link Binary1DSymmetry}).
+ * @author jaw64
+ */
+public class Binary1DRunCache {
+
+    /**
+     * The default maximum number of computed runs kept in the cache.
+     */
+    public static final int DEFAULT_MAX_RUNS = 512;
+
+    /**
+     * The computed runs, least recently used first.
+     */
+    private final Map<RunKey, CellularAutomaton> runs;
+
+    /**
+     * The number of runs returned that were derived from a computed run.
+     */
+    private int derivedRuns;
+
+    /**
+     * (constructor) Creates a run cache holding at most {@link #DEFAULT_MAX_RUNS}
+     * computed runs.
+     */
+    public Binary1DRunCache() {
+        this(DEFAULT_MAX_RUNS);
+    }
+
+    /**
+     * (constructor) Creates a run cache.
+     * @param maxRuns the maximum number of computed runs kept in the cache
+     */
+    public Binary1DRunCache(final int maxRuns) {
+        if (maxRuns < 1) {
+            throw new IllegalArgumentException("Run cache must hold at least one run.");
+        }
+        this.runs = new LinkedHashMap<RunKey, CellularAutomaton>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RunKey, CellularAutomaton> eldest) {
+                return size() > maxRuns;
+            }
+        };
+        this.derivedRuns = 0;
+    }
+
+    /**
+     * Gets a cellular automaton for the provided rule and initial condition,
+     * deriving it from a cached equivalent run when one exists.
+     * @param initialGroup the initial cell group used for iteration 0 (1-dimensional)
+     * @param rule the rule used to generate iterations
+     * @return the cellular automaton
+     */
+    public synchronized CellularAutomaton getAutomaton(CellGroup initialGroup, Binary1DRule rule) {
+        if (initialGroup.getNumDimensions() != 1) {
+            throw new IllegalArgumentException("Run cache requires a 1-dimensional cell group.");
+        }
+        if (!isBinary(initialGroup)) {
+            // Symmetries only hold for binary cells, so there is nothing to share.
+            return new DefaultCellularAutomaton(CellularAutomaton.immutableCopy(initialGroup), rule);
+        }
+        for (Binary1DSymmetry sym : Binary1DSymmetry.values()) {
+            RunKey key = new RunKey(sym.applyTo(rule), initialGroup, sym);
+            CellularAutomaton cached = runs.get(key);
+            if (cached == null) {
+                continue;
+            }
+            if (sym == Binary1DSymmetry.IDENTITY) {
+                return cached;
+            }
+            derivedRuns++;
+            CellGroup derivedInitial = CellularAutomaton.immutableCopy(
+                    SymmetricCellularAutomaton.transform(cached.getInitialCellGroup(), sym));
+            return new SymmetricCellularAutomaton(cached, sym, rule, derivedInitial);
+        }
+        CellularAutomaton ca = new DefaultCellularAutomaton(
+                CellularAutomaton.immutableCopy(initialGroup), rule);
+        runs.put(new RunKey(rule, initialGroup, Binary1DSymmetry.IDENTITY), ca);
+        return ca;
+    }
+
+    /**
+     * Gets the cellular automata for all 256 rules (in rule number order) from
+     * the same initial condition, sharing work between equivalent rules.
+     * @param initialGroup the initial cell group used for iteration 0 (1-dimensional)
+     * @param defaultCellValue the border value of every rule (either 0 or 1)
+     * @return the cellular automata, indexed by rule number
+     */
+    public List<CellularAutomaton> sweep(CellGroup initialGroup, int defaultCellValue) {
+        List<CellularAutomaton> ret = new ArrayList<>(256);
+        for (int ruleNo = 0; ruleNo < 256; ruleNo++) {
+            ret.add(getAutomaton(initialGroup, new Binary1DRule(ruleNo, defaultCellValue)));
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the number of runs handed out that were derived from an equivalent
+     * computed run.
+     * @return the number of derived runs
+     */
+    public synchronized int getDerivedRunCount() {
+        return derivedRuns;
+    }
+
+    /**
+     * Checks whether a cell group only contains the values 0 and 1.
+     * @param group the group to check
+     * @return true if every cell is binary
+     */
+    private static boolean isBinary(CellGroup group) {
+        for (int value : group.cells) {
+            if (value != 0 && value != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Identifies a run by its rule number, border value and initial cells.
+     * @author jaw64
+     */
+    private static final class RunKey {
+
+        private final int ruleNo;
+
+        private final int defaultCellValue;
+
+        private final int[] cells;
+
+        private final int hash;
+
+        /**
+         * (constructor) Creates the key of a run after transforming its initial cells.
+         * @param rule the (already transformed) rule of the run
+         * @param initialGroup the untransformed initial cells of the run
+         * @param sym the symmetry to apply to the initial cells
+         */
+        RunKey(Binary1DRule rule, CellGroup initialGroup, Binary1DSymmetry sym) {
+            this.ruleNo = rule.getRuleNumber();
+            this.defaultCellValue = rule.getDefaultCellValue();
+            this.cells = SymmetricCellularAutomaton.transform(initialGroup, sym).cells;
+            this.hash = 31 * (31 * ruleNo + defaultCellValue) + Arrays.hashCode(cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RunKey)) {
+                return false;
+            }
+            RunKey other = (RunKey) obj;
+            return ruleNo == other.ruleNo && defaultCellValue == other.defaultCellValue
+                    && Arrays.equals(cells, other.cells);
+        }
+    }
+}
@@ -99,6 +99,75 @@ public class CellGroup {
         return cells[trueIndex];
     }
 
+    /**
+     * Copies the values of all cells (in row-major order) into the provided
+     * array, which is much faster than calling {@link #getValue(int...)} for
+     * every cell.
+     * @param dest the array to copy into (at least {@link #getNumElements()} long)
+     */
+    public void copyValues(int[] dest) {
+        System.arraycopy(cells, 0, dest, 0, cells.length);
+    }
+
+    /**
+     * Copies the values of a run of cells (in row-major order) into the
+     * provided array.
+     * @param fromIndex the row-major (1D) index of the first cell to copy
+     * @param dest the array to copy into
+     * @param destPos the index in {@code dest} of the first copied value
+     * @param length the number of cells to copy
+     */
+    public void copyValues(int fromIndex, int[] dest, int destPos, int length) {
+        System.arraycopy(cells, fromIndex, dest, destPos, length);
+    }
+
+    /**
+     * Packs a run of up to 64 cells (in row-major order) into a long, one bit
+     * per cell (the least significant bit of its value). The first cell
+     * becomes bit 0, so the result reads the run as a little-endian binary
+     * number.
+     * @param fromIndex the row-major (1D) index of the first cell
+     * @param count the number of cells to pack (0-64)
+     * @return the packed bits
+     */
+    public long getBits(int fromIndex, int count) {
+        if (count < 0 || count > Long.SIZE) {
+            throw new IllegalArgumentException("Can only pack between 0 and 64 cell bits.");
+        }
+        long bits = 0;
+        for (int j = 0; j < count; j++) {
+            bits |= (long) (cells[fromIndex + j] & 1) << j;
+        }
+        return bits;
+    }
+
+    /**
+     * Packs a run of cells (in row-major order) into a long as base-{@code radix}
+     * digits, each cell contributing its value modulo {@code radix}. The first
+     * cell becomes the least significant digit.
+     * @param fromIndex the row-major (1D) index of the first cell
+     * @param count the number of cells to pack ({@code radix^count} must fit in a long)
+     * @param radix the number of possible digit values (at least 2)
+     * @return the packed digits
+     */
+    public long getDigits(int fromIndex, int count, int radix) {
+        if (radix < 2) {
+            throw new IllegalArgumentException("Digit radix must be at least 2.");
+        }
+        if (radix == 2) {
+            return getBits(fromIndex, count);
+        }
+        if (count < 0 || count * (Math.log(radix) / Math.log(2)) >= Long.SIZE - 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot pack %d base-%d digits into a long.", count, radix));
+        }
+        long digits = 0;
+        for (int j = count - 1; j >= 0; j--) {
+            digits = digits * radix + Math.floorMod(cells[fromIndex + j], radix);
+        }
+        return digits;
+    }
+
     /**
      * Sets the value of the cell at the specified index.
      * @param value the value to set
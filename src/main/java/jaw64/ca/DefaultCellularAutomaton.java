@@ -1,11 +1,12 @@
 package jaw64.ca;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import jaw64.ca.rules.Rule;
 
 /**
- * Default implementation of cellular automata.
+ * Default implementation of cellular automata. Safe for use by several
+ * threads at once: reading cached iterations never blocks, and an iteration
+ * that several threads ask for is only generated once.
  * @author jaw64
  */
 public class DefaultCellularAutomaton implements CellularAutomaton {
@@ -15,25 +16,53 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
      */
     public static final int MAX_CACHE_CAPACITY = 256;
 
+    /**
+     * The number of iterations kept in the cache.
+     */
+    private final int cacheCapacity;
+
     /**
      * The cell group used for the first iteration (iteration 0).
      */
-    private CellGroup initialGroup;
+    private final CellGroup initialGroup;
 
     /**
      * The rule used to generate subsequent iterations.
      */
-    private Rule rule;
+    private final Rule rule;
+
+    /**
+     * Ring buffer cache of cells, iteration {@code i} is stored at index
+     * {@code i % cacheCapacity}.
+     */
+    private final AtomicReferenceArray<CachedIteration> cache;
+
+    /**
+     * The latest iteration published to the cache.
+     */
+    private volatile int latestIteration;
+
+    /**
+     * Lock guarding {@link #generating} and {@link #waiters}.
+     */
+    private final Object generationLock;
+
+    /**
+     * Whether some thread is currently generating iterations.
+     */
+    private boolean generating;
 
     /**
-     * Cache of cells.
+     * The number of threads waiting for an iteration to be generated.
      */
-    private List<CellGroup> cache;
+    private int waiters;
 
     /**
-     * Iteration offset for cache from the first cell group.
+     * The last iteration each thread regenerated privately after it had been
+     * evicted from the cache (so a reader lagging behind the cache steps
+     * forward from there rather than from iteration 0).
      */
-    private int cacheOffset;
+    private final ThreadLocal<CachedIteration> laggingReader;
 
     /**
      * (constructor) Creates a default cellular automaton with the specified
@@ -42,10 +71,32 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
      * @param rule the rule used to generate iterations
      */
     public DefaultCellularAutomaton(CellGroup initialGroup, Rule rule) {
+        this(initialGroup, rule, MAX_CACHE_CAPACITY);
+    }
+
+    /**
+     * (constructor) Creates a default cellular automaton with the specified
+     * initial condition and generating rule, caching fewer iterations than
+     * usual. Large automata that are read (mostly) in order, such as those
+     * played in real time, keep far less memory alive with a small cache.
+     * @param initialGroup the initial cell group used for iteration 0
+     * @param rule the rule used to generate iterations
+     * @param cacheCapacity the number of iterations to cache (1 to {@link #MAX_CACHE_CAPACITY})
+     */
+    public DefaultCellularAutomaton(CellGroup initialGroup, Rule rule, int cacheCapacity) {
+        if (cacheCapacity < 1 || cacheCapacity > MAX_CACHE_CAPACITY) {
+            throw new IllegalArgumentException(String.format(
+                    "Cache capacity must be between 1 and %d iterations.", MAX_CACHE_CAPACITY));
+        }
         this.initialGroup = initialGroup;
         this.rule = rule;
-        this.cache = new ArrayList<>(MAX_CACHE_CAPACITY);
-        this.cacheOffset = 0;
+        this.cacheCapacity = cacheCapacity;
+        this.cache = new AtomicReferenceArray<>(cacheCapacity);
+        this.latestIteration = 0;
+        this.generationLock = new Object();
+        this.generating = false;
+        this.waiters = 0;
+        this.laggingReader = new ThreadLocal<>();
         this.setup();
     }
 
@@ -59,7 +110,7 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
                             + "requires a(n) %d-dimensional cell group.",
                     rule.getRequiredNumDimensions()));
         }
-        cache.add(initialGroup);
+        cache.set(0, new CachedIteration(0, initialGroup));
     }
 
     /**
@@ -80,18 +131,6 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
         }
     }
 
-    /**
-     * Removes excess iterations from cache up to provided iteration.
-     * @param latestIteration the latest iteration from the cache
-     */
-    private void purgeCache(int latestIteration) {
-        if (cache.size() > MAX_CACHE_CAPACITY) {
-            int minCacheIteration = latestIteration - MAX_CACHE_CAPACITY + 1;
-            cache.subList(0, minCacheIteration - cacheOffset).clear();
-            cacheOffset = minCacheIteration;
-        }
-    }
-
     /**
      * Generates a single iteration given the previous iteration.
      * @param prev the previous iteration
@@ -118,49 +157,121 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
     }
 
     /**
-     * Fills the cache such that the last element in the cache is the cell group
-     * at the provided iteration (unless the iteration is already in the cache, in
-     * which case nothing happens, because it is impossible to backtrack without
-     * resetting the entire cache).
+     * Gets the provided iteration from the cache without locking.
+     * @param iteration the iteration to look up
+     * @return the cached cell group, or null if it is not in the cache
+     */
+    private CellGroup getCachedIteration(final int iteration) {
+        CachedIteration cached = cache.get(iteration % cacheCapacity);
+        if (cached != null && cached.iteration == iteration) {
+            return cached.group;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a freshly generated iteration to the cache (evicting the iteration
+     * {@code cacheCapacity} before it) and wakes up any threads waiting
+     * for it.
+     * @param iteration the iteration
+     * @param group the cell group at that iteration
+     */
+    private void publishIteration(final int iteration, final CellGroup group) {
+        cache.set(iteration % cacheCapacity, new CachedIteration(iteration, group));
+        latestIteration = iteration;
+        synchronized (generationLock) {
+            if (waiters > 0) {
+                generationLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Generates iterations until the provided iteration is in the cache. Only
+     * one thread generates at a time; other threads asking for an iteration
+     * wait for it to be published by the generating thread instead of
+     * computing it again (unless the generating thread finishes without
+     * reaching it, in which case one of them takes over). If the iteration has
+     * already been evicted from the cache, it is regenerated privately (see
+     * {@link #regenerateIteration(int)}), leaving the cache to the readers
+     * ahead.
      * @param iteration the iteration to fill the cache up to
+     * @return the cell group at the provided iteration
      */
-    private void fillCacheToIteration(final int iteration) {
+    private CellGroup fillCacheToIteration(final int iteration) {
         if (iteration <= 0) {
             throw new IllegalArgumentException(String
                     .format("Cannot fill to iteration %d. Valid iterations are > 0.", iteration));
         }
-        int minCacheIteration = cacheOffset;
-        int maxCacheIteration = cacheOffset + Math.min(cache.size(), MAX_CACHE_CAPACITY) - 1;
-        if (iteration > maxCacheIteration) {
-            final int groupsToGenerate = iteration - maxCacheIteration; // required generations
-            CellGroup latestGroup = cache.get(cache.size() - 1);
-            List<CellGroup> generated = new ArrayList<>(groupsToGenerate);
-            for (int i = 0; i < groupsToGenerate; i++) {
-                CellGroup next = generateIteration(latestGroup);
-                generated.add(next);
-                latestGroup = next;
+        if (iteration <= latestIteration - cacheCapacity) {
+            return regenerateIteration(iteration);
+        }
+        synchronized (generationLock) {
+            while (true) {
+                CellGroup cached = getCachedIteration(iteration);
+                if (cached != null) {
+                    return cached;
+                }
+                if (!generating) {
+                    generating = true;
+                    break;
+                }
+                waiters++;
+                try {
+                    generationLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(String.format(
+                            "Interrupted while waiting for iteration %d.", iteration), e);
+                } finally {
+                    waiters--;
+                }
+            }
+        }
+        int currIteration = latestIteration;
+        try {
+            if (iteration > currIteration) {
+                CellGroup latestGroup = getCachedIteration(currIteration);
+                while (currIteration < iteration) {
+                    latestGroup = generateIteration(latestGroup);
+                    currIteration++;
+                    publishIteration(currIteration, latestGroup);
+                }
+                return latestGroup;
             }
-            cache.addAll(generated);
-            purgeCache(iteration);
-        }
-        else if (iteration <= maxCacheIteration && iteration >= minCacheIteration) {
-            // Can't do anything, cache already contains this iteration.
-        }
-        else {
-            // TODO: double check this cache implementation when sober lol
-            cache.clear(); // gotta restart my duuudee
-            cache.add(initialGroup);
-            final int groupsToGenerate = iteration;
-            CellGroup latestGroup = initialGroup;
-            List<CellGroup> generated = new ArrayList<>(groupsToGenerate);
-            for (int i = 0; i < groupsToGenerate; i++) {
-                CellGroup next = generateIteration(latestGroup);
-                generated.add(next);
-                latestGroup = next;
+        } finally {
+            synchronized (generationLock) {
+                generating = false;
+                generationLock.notifyAll();
             }
-            cache.addAll(generated);
-            purgeCache(iteration);
         }
+        // Evicted while this thread was waiting.
+        return regenerateIteration(iteration);
+    }
+
+    /**
+     * Generates an iteration that has been evicted from the cache on the
+     * calling thread, without touching the cache or the latest iteration, so
+     * readers far apart never throw away each other's progress. The thread
+     * steps forward from the last iteration it regenerated (if not past the
+     * requested one), otherwise from the initial cell group.
+     * @param iteration the iteration to regenerate
+     * @return the cell group at the provided iteration
+     */
+    private CellGroup regenerateIteration(final int iteration) {
+        CachedIteration last = laggingReader.get();
+        int currIteration = 0;
+        CellGroup group = initialGroup;
+        if (last != null && last.iteration <= iteration) {
+            currIteration = last.iteration;
+            group = last.group;
+        }
+        while (currIteration < iteration) {
+            group = generateIteration(group);
+            currIteration++;
+        }
+        laggingReader.set(new CachedIteration(iteration, group));
+        return group;
     }
 
     /*
@@ -204,9 +315,37 @@ public class DefaultCellularAutomaton implements CellularAutomaton {
         else if (iteration == 0) {
             return initialGroup;
         }
-        else {
-            fillCacheToIteration(iteration);
-            return cache.get(cache.size() - 1);
+        CellGroup cached = getCachedIteration(iteration);
+        if (cached != null) {
+            return cached;
+        }
+        return fillCacheToIteration(iteration);
+    }
+
+    /**
+     * A cell group in a cache along with its iteration.
+     * @author jaw64
+     */
+    static final class CachedIteration {
+
+        /**
+         * The iteration of the cell group.
+         */
+        final int iteration;
+
+        /**
+         * The cell group.
+         */
+        final CellGroup group;
+
+        /**
+         * (constructor) Creates a new cache entry.
+         * @param iteration the iteration of the cell group
+         * @param group the cell group
+         */
+        CachedIteration(int iteration, CellGroup group) {
+            this.iteration = iteration;
+            this.group = group;
         }
     }
 }
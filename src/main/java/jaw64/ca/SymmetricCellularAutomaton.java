@@ -0,0 +1,130 @@
+package jaw64.ca;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import jaw64.ca.DefaultCellularAutomaton.CachedIteration;
+import jaw64.ca.rules.Binary1DRule;
+import jaw64.ca.rules.Binary1DSymmetry;
+import jaw64.ca.rules.Rule;
+
+/**
+ * A 1-dimensional binary cellular automaton whose iterations are derived from
+ * an equivalent, already computed cellular automaton by mirroring and / or
+ * complementing its cells instead of being generated from the rule. The
+ * transformed iterations are cached like those of a
+ * {@link DefaultCellularAutomaton}, so reading an iteration again does not
+ * transform it again. Create one using {@link Binary1DRunCache}.
+ * @author jaw64
+ */
+class SymmetricCellularAutomaton implements CellularAutomaton {
+
+    /**
+     * The cellular automaton whose iterations are transformed.
+     */
+    private final CellularAutomaton source;
+
+    /**
+     * The symmetry mapping the source iterations onto this automaton's iterations.
+     */
+    private final Binary1DSymmetry symmetry;
+
+    /**
+     * The rule that (in theory) generates this automaton's iterations.
+     */
+    private final Binary1DRule rule;
+
+    /**
+     * The cell group used for the first iteration (iteration 0).
+     */
+    private final CellGroup initialGroup;
+
+    /**
+     * Ring buffer cache of transformed cells, iteration {@code i} is stored at
+     * index {@code i % DefaultCellularAutomaton.MAX_CACHE_CAPACITY}.
+     */
+    private final AtomicReferenceArray<CachedIteration> cache;
+
+    /**
+     * (constructor) Creates a cellular automaton derived from another one.
+     * @param source the cellular automaton to derive iterations from
+     * @param symmetry the symmetry to apply to the source iterations
+     * @param rule the rule equivalent to the source rule under {@code symmetry}
+     * @param initialGroup the initial cell group (the transformed source initial group)
+     */
+    SymmetricCellularAutomaton(CellularAutomaton source, Binary1DSymmetry symmetry,
+            Binary1DRule rule, CellGroup initialGroup) {
+        this.source = source;
+        this.symmetry = symmetry;
+        this.rule = rule;
+        this.initialGroup = initialGroup;
+        this.cache = new AtomicReferenceArray<>(DefaultCellularAutomaton.MAX_CACHE_CAPACITY);
+    }
+
+    /**
+     * Transforms the cells of a 1-dimensional group into a new group.
+     * @param group the group to transform
+     * @param symmetry the symmetry to apply
+     * @return the transformed group
+     */
+    static CellGroup transform(CellGroup group, Binary1DSymmetry symmetry) {
+        final CellGroup ret = new CellGroup(group.getDimensions());
+        final int[] src = group.cells;
+        final int[] dst = ret.cells;
+        final int last = src.length - 1;
+        for (int i = 0; i <= last; i++) {
+            int value = symmetry.applyToCellValue(src[i]);
+            dst[symmetry.mirrors ? last - i : i] = value;
+        }
+        return ret;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.CellularAutomaton#getDimensions()
+     */
+    @Override
+    public CellGroupDimensions getDimensions() {
+        return initialGroup.getDimensions();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.CellularAutomaton#getRule()
+     */
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.CellularAutomaton#getInitialCellGroup()
+     */
+    @Override
+    public CellGroup getInitialCellGroup() {
+        return initialGroup;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.CellularAutomaton#getIteration(int)
+     */
+    @Override
+    public CellGroup getIteration(int i) {
+        if (i < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Cellular automaton cannot get iteration %d. Valid iterations are >= 0.", i));
+        }
+        else if (i == 0) {
+            return initialGroup;
+        }
+        int index = i % DefaultCellularAutomaton.MAX_CACHE_CAPACITY;
+        CachedIteration cached = cache.get(index);
+        if (cached != null && cached.iteration == i) {
+            return cached.group;
+        }
+        // Two threads may both transform an iteration; either result will do.
+        CellGroup group = transform(source.getIteration(i), symmetry);
+        cache.set(index, new CachedIteration(i, group));
+        return group;
+    }
+}
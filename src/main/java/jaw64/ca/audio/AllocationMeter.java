@@ -0,0 +1,122 @@
+package jaw64.ca.audio;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the heap allocated per note while rendering, from the bytes each
+ * rendering thread allocates (as counted by the JVM). Threads add what they
+ * allocated around a batch of notes, so the average covers everything the
+ * instruments build for each note (chains, envelopes, buffers) and shows
+ * whether reusing their objects pays off. Where the JVM cannot count
+ * allocations, nothing is recorded.
+ * @author jaw64
+ */
+public final class AllocationMeter {
+
+    /**
+     * The JVM's per-thread allocation counter, or null if it has none.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = createThreadBean();
+
+    /**
+     * The bytes allocated and notes rendered since the last reset.
+     */
+    private final LongAdder bytes;
+
+    private final LongAdder notes;
+
+    /**
+     * (constructor) Creates a meter with nothing recorded.
+     */
+    public AllocationMeter() {
+        this.bytes = new LongAdder();
+        this.notes = new LongAdder();
+    }
+
+    /**
+     * Checks whether the JVM counts the bytes each thread allocates.
+     * @return true if allocations can be measured
+     */
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Gets the bytes allocated by the calling thread so far.
+     * @return the number of bytes, or -1 if allocations cannot be measured
+     */
+    public static long threadAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records a batch of notes rendered on the calling thread.
+     * @param startBytes the thread's allocated bytes before the batch (from
+     * {@link #threadAllocatedBytes()})
+     * @param numNotes the number of notes in the batch
+     */
+    public void record(long startBytes, int numNotes) {
+        if (startBytes < 0) {
+            return;
+        }
+        bytes.add(threadAllocatedBytes() - startBytes);
+        notes.add(numNotes);
+    }
+
+    /**
+     * Gets the number of notes recorded.
+     * @return the number of notes
+     */
+    public long getNotes() {
+        return notes.sum();
+    }
+
+    /**
+     * Gets the bytes allocated while rendering the notes recorded.
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Gets the average bytes allocated per note.
+     * @return the number of bytes, or 0 if no notes were recorded
+     */
+    public double getBytesPerNote() {
+        long n = notes.sum();
+        return n == 0 ? 0.0 : (double) bytes.sum() / n;
+    }
+
+    /**
+     * Clears everything recorded (before a benchmark run, for example).
+     */
+    public void reset() {
+        bytes.reset();
+        notes.reset();
+    }
+
+    /**
+     * Gets the JVM's per-thread allocation counter, enabling it if needed.
+     * @return the counter, or null if the JVM has none
+     */
+    private static com.sun.management.ThreadMXBean createThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads;
+        } catch (UnsupportedOperationException | SecurityException | LinkageError e) {
+            return null;
+        }
+    }
+}
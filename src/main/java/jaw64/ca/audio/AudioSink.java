@@ -0,0 +1,19 @@
+package jaw64.ca.audio;
+
+import java.io.IOException;
+
+/**
+ * Receives rendered audio one block at a time (for example
+ * {@link jaw64.ca.io.WavWriter#write(float[], int)}).
+ * @author jaw64
+ */
+public interface AudioSink {
+
+    /**
+     * Receives a block of frames. The block is only valid during the call.
+     * @param samples the interleaved samples
+     * @param frames the number of frames
+     * @throws IOException if the block cannot be written
+     */
+    public void write(float[] samples, int frames) throws IOException;
+}
@@ -0,0 +1,61 @@
+package jaw64.ca.audio;
+
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+import jm.music.data.Note;
+
+/**
+ * Ends an instrument's chain by adding its audio to the {@link RenderTarget}
+ * bound to the rendering thread, at the start time of the note. It is the
+ * in-memory counterpart of {@link jm.audio.io.SampleOut}; instruments normally get one
+ * through {@link RenderTarget#output(AudioObject)}.
+ * @author jaw64
+ */
+public class BufferOut extends AudioObject {
+
+    /**
+     * The target of the current note.
+     */
+    private RenderTarget target;
+
+    /**
+     * The time of the next frame (in frames from the start of the piece).
+     */
+    private long position;
+
+    /**
+     * (constructor) Creates an output for the end of a chain.
+     * @param parent the last object of the chain
+     */
+    public BufferOut(AudioObject parent) {
+        super(parent, "[BufferOut]");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#newNote(jm.music.data.Note, double, int)
+     */
+    @Override
+    public void newNote(Note note, double startTime, int numOfSamples) {
+        this.target = RenderTarget.current();
+        if (target == null) {
+            throw new IllegalStateException("No render target is bound to this thread.");
+        }
+        this.position = Math.round(startTime * target.getSampleRate());
+        super.newNote(note, startTime, numOfSamples);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        int returned = this.previous[0].nextWork(buffer);
+        int sourceChannels = Math.max(1, this.channels);
+        int count = returned / sourceChannels;
+        target.add(position, buffer, sourceChannels, count);
+        position += count;
+        return returned;
+    }
+}
@@ -0,0 +1,158 @@
+package jaw64.ca.audio;
+
+/**
+ * A linear attack-decay-sustain-release envelope applied to blocks of
+ * samples in place. Rendering never allocates.
+ * @author jaw64
+ */
+public final class Envelope {
+
+    /**
+     * The stages of the envelope.
+     */
+    private static enum Stage {
+        IDLE, ATTACK, DECAY, SUSTAIN, RELEASE
+    }
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    private final double attackSeconds;
+
+    private final double decaySeconds;
+
+    private final double sustainLevel;
+
+    private final double releaseSeconds;
+
+    private Stage stage;
+
+    /**
+     * The current level of the envelope.
+     */
+    private double level;
+
+    /**
+     * The change in level per sample during the current stage.
+     */
+    private double slope;
+
+    /**
+     * The number of samples left in the current attack, decay or release.
+     */
+    private int remaining;
+
+    /**
+     * (constructor) Creates an envelope.
+     * @param sampleRate the number of frames per second
+     * @param attackSeconds the time to rise to full level
+     * @param decaySeconds the time to fall to the sustain level
+     * @param sustainLevel the level held until the note ends (0-1)
+     * @param releaseSeconds the time to fall silent after the note ends
+     */
+    public Envelope(int sampleRate, double attackSeconds, double decaySeconds,
+            double sustainLevel, double releaseSeconds) {
+        this.sampleRate = sampleRate;
+        this.attackSeconds = Math.max(0.0, attackSeconds);
+        this.decaySeconds = Math.max(0.0, decaySeconds);
+        this.sustainLevel = Math.max(0.0, Math.min(1.0, sustainLevel));
+        this.releaseSeconds = Math.max(0.0, releaseSeconds);
+        this.stage = Stage.IDLE;
+        this.level = 0.0;
+    }
+
+    /**
+     * Tells whether the envelope is making any sound.
+     * @return true unless the envelope is idle
+     */
+    public boolean isActive() {
+        return stage != Stage.IDLE;
+    }
+
+    /**
+     * Starts (or restarts) the attack from the current level.
+     */
+    public void noteOn() {
+        startSegment(Stage.ATTACK, attackSeconds, 1.0);
+    }
+
+    /**
+     * Starts the release from the current level.
+     */
+    public void noteOff() {
+        if (stage != Stage.IDLE) {
+            startSegment(Stage.RELEASE, releaseSeconds, 0.0);
+        }
+    }
+
+    /**
+     * Multiplies a block of samples by the envelope, advancing it.
+     * @param block the samples
+     * @param length the number of samples
+     */
+    public void apply(float[] block, int length) {
+        int i = 0;
+        while (i < length) {
+            if (stage == Stage.IDLE) {
+                for (; i < length; i++) {
+                    block[i] = 0.0f;
+                }
+                return;
+            }
+            if (stage == Stage.SUSTAIN) {
+                final float s = (float) level;
+                for (; i < length; i++) {
+                    block[i] *= s;
+                }
+                return;
+            }
+            final int n = Math.min(length - i, remaining);
+            double l = level;
+            for (int end = i + n; i < end; i++) {
+                l += slope;
+                block[i] *= (float) l;
+            }
+            level = l;
+            remaining -= n;
+            if (remaining == 0) {
+                nextStage();
+            }
+        }
+    }
+
+    /**
+     * Starts a linear segment from the current level.
+     * @param next the stage of the segment
+     * @param seconds the length of the segment
+     * @param target the level at the end of the segment
+     */
+    private void startSegment(Stage next, double seconds, double target) {
+        stage = next;
+        remaining = (int) Math.max(1, Math.round(seconds * sampleRate));
+        slope = (target - level) / remaining;
+    }
+
+    /**
+     * Moves on from a finished linear segment.
+     */
+    private void nextStage() {
+        switch (stage) {
+        case ATTACK: {
+            level = 1.0;
+            startSegment(Stage.DECAY, decaySeconds, sustainLevel);
+            break;
+        }
+        case DECAY: {
+            level = sustainLevel;
+            stage = Stage.SUSTAIN;
+            break;
+        }
+        default: {
+            level = 0.0;
+            stage = Stage.IDLE;
+        }
+        }
+    }
+}
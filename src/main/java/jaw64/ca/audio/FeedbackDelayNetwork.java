@@ -0,0 +1,310 @@
+package jaw64.ca.audio;
+
+import java.util.Arrays;
+
+/**
+ * A feedback delay network reverb: eight delay lines of mutually prime lengths,
+ * fed back through a Householder matrix (which mixes every line into every
+ * other in one pass, with a single multiply per frame rather than a full matrix
+ * product) and a one-pole damping filter per line. The delay lines are
+ * allocated once for the network's sample rate (and again only if it changes)
+ * and every block of interleaved samples is processed in place, so a network
+ * can serve a whole mix as a send bus (see {@link SonificationEngine} and
+ * {@link ParallelScoreRenderer}) as well as a single jMusic chain (see
+ * {@link Reverb}).
+ * @author jaw64
+ */
+public final class FeedbackDelayNetwork {
+
+    /**
+     * The default time for the tail to decay by 60 dB (in seconds).
+     */
+    public static final double DEFAULT_DECAY_TIME = 1.5;
+
+    /**
+     * The default damping of high frequencies (0-1).
+     */
+    public static final double DEFAULT_DAMPING = 0.3;
+
+    /**
+     * The number of delay lines.
+     */
+    private static final int NUM_LINES = 8;
+
+    /**
+     * The delay line lengths at 44.1 kHz (mutually prime, 25-75 ms).
+     */
+    private static final int[] LENGTHS_44K = { 1103, 1303, 1543, 1801, 2081, 2393, 2851, 3251 };
+
+    /**
+     * The gain of the network's input into each line (alternating in sign so
+     * the lines start decorrelated).
+     */
+    private static final float INPUT_GAIN = 0.5f;
+
+    /**
+     * An inaudible signal added to the input (alternating in sign every
+     * frame) so decaying tails never reach denormal values, which are
+     * processed many times more slowly.
+     */
+    private static final float ANTI_DENORMAL = 1e-20f;
+
+    /**
+     * The number of frames per second.
+     */
+    private int sampleRate;
+
+    /**
+     * The delay lines, and the position to read (then write) in each.
+     */
+    private final float[][] lines;
+
+    private final int[] positions;
+
+    /**
+     * The feedback gain (for the decay time) and damping filter state of each line.
+     */
+    private final float[] gains;
+
+    private final float[] damped;
+
+    /**
+     * The outputs of the lines for the current frame.
+     */
+    private final float[] taps;
+
+    /**
+     * The decay time (in seconds) and damping (0-1).
+     */
+    private double decayTime;
+
+    private float damping;
+
+    /**
+     * The gains of the dry signal and of the reverberation in the output.
+     */
+    private float dry;
+
+    private float wet;
+
+    /**
+     * The anti-denormal signal of the last frame.
+     */
+    private float bias;
+
+    /**
+     * The gain of each output channel's lines (for the number of channels
+     * last processed), so that every channel is as loud as mono output.
+     */
+    private float[] outputGains;
+
+    /**
+     * (constructor) Creates a network with the default decay time and
+     * damping, mixing the reverberation fully wet.
+     * @param sampleRate the number of frames per second
+     */
+    public FeedbackDelayNetwork(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.lines = new float[NUM_LINES][];
+        this.positions = new int[NUM_LINES];
+        allocateLines();
+        this.gains = new float[NUM_LINES];
+        this.damped = new float[NUM_LINES];
+        this.taps = new float[NUM_LINES];
+        this.damping = (float) DEFAULT_DAMPING;
+        this.dry = 0.0f;
+        this.wet = 1.0f;
+        this.bias = ANTI_DENORMAL;
+        this.outputGains = new float[0];
+        setDecayTime(DEFAULT_DECAY_TIME);
+    }
+
+    /**
+     * Gets the number of frames per second the network was created for.
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the number of frames per second, reallocating the delay lines
+     * (and silencing the network) only if it has changed.
+     * @param sampleRate the sample rate
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive.");
+        }
+        if (sampleRate != this.sampleRate) {
+            this.sampleRate = sampleRate;
+            allocateLines();
+            Arrays.fill(damped, 0.0f);
+            setDecayTime(decayTime);
+        }
+    }
+
+    /**
+     * Allocates the delay lines for the sample rate.
+     */
+    private void allocateLines() {
+        for (int i = 0; i < NUM_LINES; i++) {
+            lines[i] = new float[Math.max(1, (int) Math.round(LENGTHS_44K[i] * sampleRate / 44100.0))];
+            positions[i] = 0;
+        }
+    }
+
+    /**
+     * Gets the time for the tail to decay by 60 dB.
+     * @return the decay time (in seconds)
+     */
+    public double getDecayTime() {
+        return decayTime;
+    }
+
+    /**
+     * Sets the time for the tail to decay by 60 dB.
+     * @param decayTime the decay time (in seconds, above 0)
+     */
+    public void setDecayTime(double decayTime) {
+        this.decayTime = Math.max(0.01, decayTime);
+        for (int i = 0; i < NUM_LINES; i++) {
+            gains[i] = (float) Math.pow(10.0, -3.0 * lines[i].length / (this.decayTime * sampleRate));
+        }
+    }
+
+    /**
+     * Gets how quickly high frequencies decay relative to low ones.
+     * @return the damping (0-1)
+     */
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * Sets how quickly high frequencies decay relative to low ones.
+     * @param damping the damping (0 for none, towards 1 for a dark tail)
+     */
+    public void setDamping(double damping) {
+        this.damping = (float) Math.max(0.0, Math.min(damping, 0.99));
+    }
+
+    /**
+     * Gets the gain of the dry signal in the output.
+     * @return the dry gain
+     */
+    public double getDry() {
+        return dry;
+    }
+
+    /**
+     * Gets the gain of the reverberation in the output.
+     * @return the wet gain
+     */
+    public double getWet() {
+        return wet;
+    }
+
+    /**
+     * Sets the gains of the dry signal and of the reverberation in the
+     * output. A network reverberating a whole mix (a send bus) keeps a dry
+     * gain of 1 and uses the wet gain as the send level.
+     * @param dry the gain of the input
+     * @param wet the gain of the reverberation
+     */
+    public void setMix(double dry, double wet) {
+        this.dry = (float) dry;
+        this.wet = (float) wet;
+    }
+
+    /**
+     * Gets the number of frames after the input falls silent until the tail
+     * has decayed by 60 dB.
+     * @return the length of the tail (in frames)
+     */
+    public long getTailFrames() {
+        return Math.round(decayTime * sampleRate) + lines[NUM_LINES - 1].length;
+    }
+
+    /**
+     * Silences the network.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_LINES; i++) {
+            Arrays.fill(lines[i], 0.0f);
+            positions[i] = 0;
+        }
+        Arrays.fill(damped, 0.0f);
+    }
+
+    /**
+     * Reverberates a block of interleaved samples in place. Every channel
+     * feeds the network, and the lines are dealt out to the channels in turn
+     * (channel c takes lines c, c + channels, ...; with more channels than
+     * lines, channel c takes line c modulo the number of lines), so every
+     * line is heard and stereo output is decorrelated. Each channel's lines
+     * are scaled by one over the square root of their number, so every
+     * channel is as loud as mono output.
+     * @param samples the interleaved samples
+     * @param offset the index of the first sample
+     * @param frames the number of frames
+     * @param channels the number of interleaved channels
+     */
+    public void process(float[] samples, int offset, int frames, int channels) {
+        final float[] taps = this.taps;
+        final float[] outputGains = getOutputGains(channels);
+        final float d = damping, inputScale = INPUT_GAIN / channels;
+        final float dryGain = dry;
+        float bias = this.bias;
+        for (int f = 0, i = offset; f < frames; f++, i += channels) {
+            float in = 0.0f;
+            for (int c = 0; c < channels; c++) {
+                in += samples[i + c];
+            }
+            in = in * inputScale + (bias = -bias);
+            // Read and damp each line, then mix through the Householder matrix
+            // (I - 2/N * ones): subtract 2/N of the sum from every line.
+            float sum = 0.0f;
+            for (int l = 0; l < NUM_LINES; l++) {
+                float out = lines[l][positions[l]];
+                damped[l] = out + d * (damped[l] - out);
+                taps[l] = damped[l];
+                sum += damped[l];
+            }
+            float reflection = sum * (2.0f / NUM_LINES);
+            for (int l = 0; l < NUM_LINES; l++) {
+                float[] line = lines[l];
+                int pos = positions[l];
+                line[pos] = gains[l] * (taps[l] - reflection) + ((l & 1) == 0 ? in : -in);
+                positions[l] = pos + 1 == line.length ? 0 : pos + 1;
+            }
+            for (int c = 0; c < channels; c++) {
+                float out = 0.0f;
+                for (int l = c % NUM_LINES; l < NUM_LINES; l += channels) {
+                    out += taps[l];
+                }
+                samples[i + c] = dryGain * samples[i + c] + outputGains[c] * out;
+            }
+        }
+        this.bias = bias;
+    }
+
+    /**
+     * Gets the wet gain of each output channel's lines.
+     * @param channels the number of interleaved channels
+     * @return the gain of each channel
+     */
+    private float[] getOutputGains(int channels) {
+        if (outputGains.length != channels) {
+            outputGains = new float[channels];
+        }
+        for (int c = 0; c < channels; c++) {
+            int numLines = (NUM_LINES - 1 - c % NUM_LINES) / channels + 1;
+            outputGains[c] = wet / (float) Math.sqrt(numLines);
+        }
+        return outputGains;
+    }
+}
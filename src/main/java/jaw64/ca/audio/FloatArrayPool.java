@@ -0,0 +1,110 @@
+package jaw64.ca.audio;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A process-wide pool of zeroed float arrays, in power-of-two sizes, used by
+ * {@link RenderTarget}s so that rendering many notes does not allocate (and
+ * collect) a fresh buffer for each. The pool holds at most
+ * {@link #MAX_POOLED_BYTES}; arrays released beyond that are left to the
+ * garbage collector.
+ * @author jaw64
+ */
+final class FloatArrayPool {
+
+    /**
+     * The smallest array handed out.
+     */
+    static final int MIN_LENGTH = 1 << 12;
+
+    /**
+     * The most memory the pool holds.
+     */
+    static final long MAX_POOLED_BYTES = 64L << 20;
+
+    /**
+     * The released arrays of each size (index = log2 of the length).
+     */
+    private static final ArrayDeque<?>[] FREE = new ArrayDeque<?>[31];
+
+    /**
+     * The memory held by the pool (in bytes).
+     */
+    private static long pooledBytes = 0;
+
+    /**
+     * (constructor) Not instantiable.
+     */
+    private FloatArrayPool() {
+    }
+
+    /**
+     * Gets a zeroed array.
+     * @param minLength the smallest acceptable length
+     * @return an array of at least {@code minLength} zeros
+     */
+    static float[] acquire(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        synchronized (FREE) {
+            ArrayDeque<float[]> free = free(sizeClass);
+            if (free != null && !free.isEmpty()) {
+                float[] array = free.pop();
+                pooledBytes -= 4L * array.length;
+                return array;
+            }
+        }
+        return new float[1 << sizeClass];
+    }
+
+    /**
+     * Returns an array to the pool.
+     * @param array the array (from {@link #acquire(int)})
+     * @param used the length of the prefix which may be nonzero (cleared here)
+     */
+    static void release(float[] array, int used) {
+        int length = array.length;
+        if (length < MIN_LENGTH || Integer.bitCount(length) != 1) {
+            return;
+        }
+        synchronized (FREE) {
+            if (pooledBytes + 4L * length > MAX_POOLED_BYTES) {
+                return;
+            }
+            pooledBytes += 4L * length;
+        }
+        Arrays.fill(array, 0, Math.min(used, length), 0.0f);
+        synchronized (FREE) {
+            int sizeClass = Integer.numberOfTrailingZeros(length);
+            ArrayDeque<float[]> free = free(sizeClass);
+            if (free == null) {
+                free = new ArrayDeque<>();
+                FREE[sizeClass] = free;
+            }
+            free.push(array);
+        }
+    }
+
+    /**
+     * Gets the released arrays of a size.
+     * @param sizeClass log2 of the length
+     * @return the arrays, or null if none have ever been released
+     */
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<float[]> free(int sizeClass) {
+        return (ArrayDeque<float[]>) FREE[sizeClass];
+    }
+
+    /**
+     * Gets the size class holding a length.
+     * @param minLength the length
+     * @return log2 of the smallest power of two at least {@code minLength} (and {@link #MIN_LENGTH})
+     */
+    private static int sizeClass(int minLength) {
+        int length = Math.max(MIN_LENGTH, minLength);
+        if (length > 1 << 30) {
+            throw new OutOfMemoryError("Render buffer too large.");
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+}
@@ -0,0 +1,20 @@
+package jaw64.ca.audio;
+
+import jm.audio.Instrument;
+
+/**
+ * Creates jMusic instruments for an {@link InstrumentPool}. Instruments
+ * hold the state of the note they are rendering, so the pool creates one for
+ * each thread rendering an instrument index at the same time.
+ * @author jaw64
+ */
+public interface InstrumentFactory {
+
+    /**
+     * Creates a new instrument.
+     * @param index the instrument index of the part being rendered
+     * ({@link jm.music.data.Part#getInstrument()})
+     * @return the instrument
+     */
+    public Instrument create(int index);
+}
@@ -0,0 +1,89 @@
+package jaw64.ca.audio;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import jm.audio.Instrument;
+
+/**
+ * A pool of jMusic instruments, so that an instrument (with everything it
+ * builds up front) is built once and then reused for note after note instead
+ * of being recreated for every batch of notes. An instrument renders one
+ * note at a time, so each is lent to a single thread and returned when that
+ * thread is done with it; the pool creates more only when all of an index's
+ * instruments are busy, so it ends up holding at most one per thread.
+ * @author jaw64
+ */
+public class InstrumentPool {
+
+    /**
+     * Creates instruments when none are idle.
+     */
+    private final InstrumentFactory factory;
+
+    /**
+     * The idle instruments of each instrument index.
+     */
+    private final Map<Integer, ArrayDeque<Instrument>> idle;
+
+    /**
+     * The number of instruments created.
+     */
+    private int created;
+
+    /**
+     * (constructor) Creates an empty pool.
+     * @param factory creates instruments when none are idle
+     */
+    public InstrumentPool(InstrumentFactory factory) {
+        this.factory = factory;
+        this.idle = new HashMap<>();
+        this.created = 0;
+    }
+
+    /**
+     * Takes an idle instrument out of the pool, creating one if there are none.
+     * @param index the instrument index
+     * @return the instrument (to be given back with {@link #giveBack(int, Instrument)})
+     */
+    public Instrument borrow(int index) {
+        synchronized (this) {
+            ArrayDeque<Instrument> instruments = idle.get(index);
+            if (instruments != null && !instruments.isEmpty()) {
+                return instruments.pop();
+            }
+            created++;
+        }
+        return factory.create(index);
+    }
+
+    /**
+     * Returns an instrument to the pool once it has finished rendering.
+     * Instruments which failed to render should not be given back.
+     * @param index the instrument index it was borrowed for
+     * @param instrument the instrument
+     */
+    public synchronized void giveBack(int index, Instrument instrument) {
+        ArrayDeque<Instrument> instruments = idle.get(index);
+        if (instruments == null) {
+            instruments = new ArrayDeque<>();
+            idle.put(index, instruments);
+        }
+        instruments.push(instrument);
+    }
+
+    /**
+     * Gets the number of instruments the pool has created.
+     * @return the number of instruments
+     */
+    public synchronized int getCreated() {
+        return created;
+    }
+
+    /**
+     * Drops every idle instrument.
+     */
+    public synchronized void clear() {
+        idle.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package jaw64.ca.audio;
+
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+import jm.audio.Instrument;
+import jm.music.data.Note;
+
+/**
+ * Heads a chain with a {@link PluckedString}, plucked at the frequency of
+ * each note with noise seeded by the note's start frame, so repeated notes
+ * differ but rendering the same score always gives the same sound. It
+ * replaces {@link jm.audio.synth.Pluck}: the pitch is tuned to a fraction of
+ * a sample, and the string (with its delay line) can be held by the
+ * instrument and reused for every note instead of being allocated for each.
+ * @author jaw64
+ */
+public final class KarplusStrong extends AudioObject {
+
+    /**
+     * The string.
+     */
+    private final PluckedString string;
+
+    /**
+     * The start frame of the current note (the seed of its noise).
+     */
+    private long startFrame;
+
+    /**
+     * (constructor) Creates a plucked string heading a chain.
+     * @param inst the instrument whose chain this heads
+     * @param sampleRate the number of frames per second (the string's)
+     * @param channels the number of channels (every channel gets the same signal)
+     * @param string the string (only used by one chain at a time)
+     */
+    public KarplusStrong(Instrument inst, int sampleRate, int channels, PluckedString string) {
+        super(inst, sampleRate, "[KarplusStrong]");
+        if (channels < 1 || string.getSampleRate() != sampleRate) {
+            throw new IllegalArgumentException(
+                    "Channels must be positive and the string must use the chain's sample rate.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.string = string;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#newNote(jm.music.data.Note, double, int)
+     */
+    @Override
+    public void newNote(Note note, double startTime, int numOfSamples) {
+        this.startFrame = Math.round(startTime * this.sampleRate);
+        super.newNote(note, startTime, numOfSamples);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#build()
+     */
+    @Override
+    public void build() {
+        string.pluck(this.currentNote.getFrequency(), startFrame);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        final int frames = buffer.length / channels;
+        string.render(buffer, 0, frames, channels);
+        for (int i = frames * channels; i < buffer.length; i++) {
+            buffer[i] = 0.0f;
+        }
+        return buffer.length;
+    }
+}
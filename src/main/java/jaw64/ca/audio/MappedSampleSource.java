@@ -0,0 +1,337 @@
+package jaw64.ca.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A {@link SampleSource} reading PCM frames straight from a memory-mapped
+ * file, decoding them only as they are read. Nothing is read up front and
+ * the heap cost does not depend on the size of the file, so gigabyte files
+ * open instantly and any frame can be read at any time (for seeking,
+ * granular or reversed playback). WAV and AU files with 8, 16, 24 or 32-bit
+ * integer or 32-bit float samples are supported, as are raw bytes treated as
+ * signed 8-bit samples.
+ * @author jaw64
+ */
+public final class MappedSampleSource implements SampleSource {
+
+    /**
+     * The encodings of the samples.
+     */
+    private static final int UNSIGNED_8 = 0;
+
+    private static final int SIGNED_8 = 1;
+
+    private static final int SIGNED_16 = 2;
+
+    private static final int SIGNED_24 = 3;
+
+    private static final int SIGNED_32 = 4;
+
+    private static final int FLOAT_32 = 5;
+
+    /**
+     * The number of bytes per sample of each encoding.
+     */
+    private static final int[] SAMPLE_SIZES = { 1, 1, 2, 3, 4, 4 };
+
+    /**
+     * The largest mapping (files are mapped in segments of whole frames up to this size).
+     */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final int sampleRate;
+
+    private final int channels;
+
+    private final long frames;
+
+    /**
+     * The encoding of the samples.
+     */
+    private final int encoding;
+
+    /**
+     * The number of bytes per frame.
+     */
+    private final int frameSize;
+
+    /**
+     * The number of frames per segment.
+     */
+    private final int segmentFrames;
+
+    /**
+     * The mapped segments of the audio data.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * (constructor) Maps the audio data of a file.
+     * @param channel the open file
+     * @param dataOffset the position of the first frame in the file
+     * @param dataLength the length of the audio data (in bytes)
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @param encoding the encoding of the samples
+     * @param order the byte order of the samples
+     * @throws IOException if the file cannot be mapped
+     */
+    private MappedSampleSource(FileChannel channel, long dataOffset, long dataLength,
+            int sampleRate, int channels, int encoding, ByteOrder order) throws IOException {
+        if (sampleRate < 1 || channels < 1) {
+            throw new IOException("Invalid audio format.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.encoding = encoding;
+        this.frameSize = SAMPLE_SIZES[encoding] * channels;
+        long available = Math.max(0, Math.min(dataLength, channel.size() - dataOffset));
+        this.frames = available / frameSize;
+        this.segmentFrames = (int) (MAX_SEGMENT_BYTES / frameSize);
+        int numSegments = (int) ((frames + segmentFrames - 1) / segmentFrames);
+        this.segments = new ByteBuffer[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            long first = (long) i * segmentFrames;
+            long length = Math.min(segmentFrames, frames - first) * frameSize;
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                    dataOffset + first * frameSize, length);
+            segments[i] = segment.order(order);
+        }
+    }
+
+    /**
+     * Maps a WAV or AU file.
+     * @param fileName the path of the file
+     * @return the source
+     * @throws IOException if the file cannot be read or its format is not supported
+     */
+    public static MappedSampleSource open(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            readFully(channel, header, 0);
+            int magic = header.getInt(0);
+            if (magic == 0x52494646 && header.getInt(8) == 0x57415645) { // "RIFF" ... "WAVE"
+                return openWav(channel);
+            }
+            if (magic == 0x2E736E64) { // ".snd"
+                return openAu(channel);
+            }
+            throw new IOException("Not a WAV or AU file: " + fileName + ".");
+        }
+    }
+
+    /**
+     * Maps any file as raw signed 8-bit samples (one per byte).
+     * @param fileName the path of the file
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @return the source
+     * @throws IOException if the file cannot be read
+     */
+    public static MappedSampleSource openRaw(String fileName, int sampleRate, int channels)
+            throws IOException {
+        Path path = Paths.get(fileName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedSampleSource(channel, 0, channel.size(), sampleRate, channels,
+                    SIGNED_8, ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Maps the data chunk of a WAV file.
+     * @param channel the open file
+     * @return the source
+     * @throws IOException if the file cannot be read or its format is not supported
+     */
+    private static MappedSampleSource openWav(FileChannel channel) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        int encoding = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        long position = 12;
+        while (position + 8 <= channel.size()) {
+            chunk.clear().limit(8);
+            readFully(channel, chunk, position);
+            int id = chunk.getInt(0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            if (id == 0x20746D66) { // "fmt " (read little-endian)
+                chunk.clear().limit((int) Math.min(size, chunk.capacity()));
+                readFully(channel, chunk, position + 8);
+                int format = chunk.getShort(0) & 0xFFFF;
+                channels = chunk.getShort(2);
+                sampleRate = chunk.getInt(4);
+                int bits = chunk.getShort(14);
+                if (format == 0xFFFE && size >= 26) { // WAVE_FORMAT_EXTENSIBLE
+                    format = chunk.getShort(24) & 0xFFFF;
+                }
+                encoding = format == 3 && bits == 32 ? FLOAT_32
+                        : format != 1 ? -1
+                        : bits == 8 ? UNSIGNED_8
+                        : bits == 16 ? SIGNED_16
+                        : bits == 24 ? SIGNED_24
+                        : bits == 32 ? SIGNED_32 : -1;
+            }
+            else if (id == 0x61746164) { // "data"
+                if (encoding < 0) {
+                    throw new IOException("Unsupported WAV encoding.");
+                }
+                return new MappedSampleSource(channel, position + 8, size, sampleRate, channels,
+                        encoding, ByteOrder.LITTLE_ENDIAN);
+            }
+            position += 8 + size + (size & 1);
+        }
+        throw new IOException("WAV file has no data chunk.");
+    }
+
+    /**
+     * Maps the data of an AU file.
+     * @param channel the open file
+     * @return the source
+     * @throws IOException if the file cannot be read or its format is not supported
+     */
+    private static MappedSampleSource openAu(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.BIG_ENDIAN);
+        readFully(channel, header, 0);
+        long offset = header.getInt(4) & 0xFFFFFFFFL;
+        long size = header.getInt(8) & 0xFFFFFFFFL; // 0xFFFFFFFF if unknown
+        int code = header.getInt(12);
+        int encoding = code == 2 ? SIGNED_8
+                : code == 3 ? SIGNED_16
+                : code == 4 ? SIGNED_24
+                : code == 5 ? SIGNED_32
+                : code == 6 ? FLOAT_32 : -1;
+        if (encoding < 0) {
+            throw new IOException("Unsupported AU encoding " + code + ".");
+        }
+        return new MappedSampleSource(channel, offset, size, header.getInt(16), header.getInt(20),
+                encoding, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Fills a buffer from a position in a file.
+     * @param channel the file
+     * @param buffer the buffer (filled up to its limit)
+     * @param position the position to read from
+     * @throws IOException if the file ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of audio file.");
+            }
+            position += n;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getSampleRate()
+     */
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getChannels()
+     */
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getFrames()
+     */
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#read(long, float[], int, int)
+     */
+    @Override
+    public void read(long frame, float[] dest, int offset, int count) {
+        long from = Math.max(frame, 0);
+        long to = Math.min(frame + count, frames);
+        if (from >= to) {
+            Arrays.fill(dest, offset, offset + count * channels, 0.0f);
+            return;
+        }
+        int lead = (int) (from - frame) * channels;
+        Arrays.fill(dest, offset, offset + lead, 0.0f);
+        int index = offset + lead;
+        while (from < to) {
+            int segment = (int) (from / segmentFrames);
+            int first = (int) (from - (long) segment * segmentFrames);
+            int run = (int) Math.min(to - from, segmentFrames - first);
+            decode(segments[segment], first * frameSize, dest, index, run * channels);
+            index += run * channels;
+            from += run;
+        }
+        Arrays.fill(dest, index, offset + count * channels, 0.0f);
+    }
+
+    /**
+     * Decodes consecutive samples of a segment.
+     * @param segment the segment
+     * @param position the byte position of the first sample in the segment
+     * @param dest the array to decode into
+     * @param index the index in {@code dest} of the first sample
+     * @param count the number of samples
+     */
+    private void decode(ByteBuffer segment, int position, float[] dest, int index, int count) {
+        final int end = index + count;
+        switch (encoding) {
+        case UNSIGNED_8:
+            for (int p = position; index < end; p++) {
+                dest[index++] = ((segment.get(p) & 0xFF) - 128) / 128.0f;
+            }
+            break;
+        case SIGNED_8:
+            for (int p = position; index < end; p++) {
+                dest[index++] = segment.get(p) / 128.0f;
+            }
+            break;
+        case SIGNED_16:
+            for (int p = position; index < end; p += 2) {
+                dest[index++] = segment.getShort(p) / 32768.0f;
+            }
+            break;
+        case SIGNED_24:
+            boolean little = segment.order() == ByteOrder.LITTLE_ENDIAN;
+            for (int p = position; index < end; p += 3) {
+                int b0 = segment.get(p) & 0xFF;
+                int b1 = segment.get(p + 1) & 0xFF;
+                int b2 = segment.get(p + 2) & 0xFF;
+                int s = little ? (b2 << 24) | (b1 << 16) | (b0 << 8) : (b0 << 24) | (b1 << 16) | (b2 << 8);
+                dest[index++] = (s >> 8) / 8388608.0f;
+            }
+            break;
+        case SIGNED_32:
+            for (int p = position; index < end; p += 4) {
+                dest[index++] = segment.getInt(p) / 2147483648.0f;
+            }
+            break;
+        default: // FLOAT_32
+            for (int p = position; index < end; p += 4) {
+                dest[index++] = segment.getFloat(p);
+            }
+            break;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package jaw64.ca.audio;
+
+import jaw64.ca.CellGroup;
+import jaw64.ca.interpreter.mapping.BitFieldMapping;
+import jaw64.ca.interpreter.mapping.ExtractionPlan;
+
+/**
+ * Controls each voice of a {@link SonificationEngine} with its own
+ * {@link BitFieldMapping}: every generation, the {@link BitFieldMapping#PITCH}
+ * field (a MIDI note number, negative for a rest) and the optional
+ * {@link BitFieldMapping#VELOCITY} field start a new note on the voice (or
+ * release it). Decoding allocates nothing.
+ * @author jaw64
+ */
+public class MappedVoiceControl implements VoiceControl {
+
+    /**
+     * The default velocity of notes (jMusic's default dynamic).
+     */
+    private static final int DEFAULT_VELOCITY = 85;
+
+    /**
+     * The compiled mapping of each voice.
+     */
+    private final ExtractionPlan[] plans;
+
+    /**
+     * The number of cells from the first cell of the cell group that field
+     * offsets are relative to.
+     */
+    private final int bitOffset;
+
+    /**
+     * The decoded values of each voice (reused for every generation).
+     */
+    private final int[][] values;
+
+    private final int[] pitchFields;
+
+    private final int[] velocityFields;
+
+    /**
+     * (constructor) Creates a voice control.
+     * @param bitOffset the number of cells from the first cell of the cell
+     * group that field offsets are relative to
+     * @param mappings the mapping of each voice (compiled immediately)
+     */
+    public MappedVoiceControl(int bitOffset, BitFieldMapping... mappings) {
+        this.bitOffset = Math.max(0, bitOffset);
+        this.plans = new ExtractionPlan[mappings.length];
+        this.values = new int[mappings.length][];
+        this.pitchFields = new int[mappings.length];
+        this.velocityFields = new int[mappings.length];
+        for (int v = 0; v < mappings.length; v++) {
+            plans[v] = mappings[v].compile();
+            values[v] = new int[plans[v].getNumFields()];
+            pitchFields[v] = plans[v].indexOf(BitFieldMapping.PITCH);
+            velocityFields[v] = plans[v].indexOf(BitFieldMapping.VELOCITY);
+            if (pitchFields[v] < 0) {
+                throw new IllegalArgumentException(
+                        "Voice mappings require a '" + BitFieldMapping.PITCH + "' field.");
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cells needed after the first cell of the cell group.
+     * @return the number of required cells
+     */
+    public int getRequiredCells() {
+        int required = 0;
+        for (ExtractionPlan plan : plans) {
+            required = Math.max(required, plan.getRequiredCells());
+        }
+        return required + bitOffset;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.VoiceControl#onGeneration(int, jaw64.ca.CellGroup, jaw64.ca.audio.SonificationEngine)
+     */
+    @Override
+    public void onGeneration(int iteration, CellGroup group, SonificationEngine engine) {
+        final int numVoices = Math.min(plans.length, engine.getNumVoices());
+        for (int v = 0; v < numVoices; v++) {
+            plans[v].decode(group, bitOffset, values[v]);
+            int pitch = values[v][pitchFields[v]];
+            Voice voice = engine.getVoice(v);
+            if (pitch < 0) {
+                voice.noteOff();
+                continue;
+            }
+            int velocity = velocityFields[v] < 0 ? DEFAULT_VELOCITY
+                    : values[v][velocityFields[v]];
+            voice.noteOn(Voice.midiToFrequency(pitch), Math.max(0, Math.min(127, velocity)) / 127.0);
+        }
+    }
+}
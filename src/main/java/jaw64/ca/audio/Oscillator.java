@@ -0,0 +1,135 @@
+package jaw64.ca.audio;
+
+/**
+ * A phase-accumulating oscillator rendering blocks of samples. Sines are read
+ * from a shared table with linear interpolation; the other waveforms are
+ * computed from the phase. Rendering never allocates.
+ * @author jaw64
+ */
+public final class Oscillator {
+
+    /**
+     * The number of entries in the sine table (a power of two).
+     */
+    private static final int TABLE_SIZE = 4096;
+
+    /**
+     * One cycle of a sine wave (with an extra entry so interpolation never wraps).
+     */
+    private static final float[] SINE_TABLE = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SINE_TABLE[i] = (float) Math.sin(2.0 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    private Waveform waveform;
+
+    /**
+     * The position within the current cycle (0 inclusive to 1 exclusive).
+     */
+    private double phase;
+
+    /**
+     * The change in phase per sample.
+     */
+    private double increment;
+
+    /**
+     * (constructor) Creates a sine oscillator at 440 Hz.
+     * @param sampleRate the number of frames per second
+     */
+    public Oscillator(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.waveform = Waveform.SINE;
+        this.phase = 0.0;
+        this.setFrequency(440.0);
+    }
+
+    /**
+     * Gets the waveform produced.
+     * @return the waveform
+     */
+    public Waveform getWaveform() {
+        return waveform;
+    }
+
+    /**
+     * Sets the waveform produced.
+     * @param waveform the waveform
+     */
+    public void setWaveform(Waveform waveform) {
+        this.waveform = waveform;
+    }
+
+    /**
+     * Sets the frequency (the phase carries on, so changes are click-free).
+     * @param frequency the frequency (in Hz)
+     */
+    public void setFrequency(double frequency) {
+        this.increment = frequency / sampleRate;
+    }
+
+    /**
+     * Restarts the cycle.
+     */
+    public void resetPhase() {
+        this.phase = 0.0;
+    }
+
+    /**
+     * Renders samples (in [-1, 1]) into a block, overwriting it.
+     * @param block the block to render into
+     * @param length the number of samples to render
+     */
+    public void render(float[] block, int length) {
+        double p = phase;
+        final double inc = increment;
+        switch (waveform) {
+        case SINE: {
+            for (int i = 0; i < length; i++) {
+                double pos = p * TABLE_SIZE;
+                int index = (int) pos;
+                float frac = (float) (pos - index);
+                block[i] = SINE_TABLE[index] + frac * (SINE_TABLE[index + 1] - SINE_TABLE[index]);
+                p += inc;
+                p -= (int) p;
+            }
+            break;
+        }
+        case SAWTOOTH: {
+            for (int i = 0; i < length; i++) {
+                block[i] = (float) (2.0 * p - 1.0);
+                p += inc;
+                p -= (int) p;
+            }
+            break;
+        }
+        case SQUARE: {
+            for (int i = 0; i < length; i++) {
+                block[i] = p < 0.5 ? 1.0f : -1.0f;
+                p += inc;
+                p -= (int) p;
+            }
+            break;
+        }
+        case TRIANGLE: {
+            for (int i = 0; i < length; i++) {
+                block[i] = (float) (p < 0.5 ? 4.0 * p - 1.0 : 3.0 - 4.0 * p);
+                p += inc;
+                p -= (int) p;
+            }
+            break;
+        }
+        default:
+            throw new IllegalStateException("Unknown waveform " + waveform);
+        }
+        phase = p;
+    }
+}
@@ -0,0 +1,370 @@
+package jaw64.ca.audio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import jaw64.ca.io.WavWriter;
+import jm.audio.Instrument;
+import jm.music.data.Note;
+import jm.music.data.Part;
+import jm.music.data.Phrase;
+import jm.music.data.Score;
+
+/**
+ * Renders scores offline with jMusic instruments, optionally on a thread
+ * pool. The notes of each phrase are split into tasks of a fixed number of
+ * notes; each task renders its notes in order with an instrument borrowed
+ * from an {@link InstrumentPool} into its own {@link RenderTarget}, and the
+ * targets are then summed into the mix in task order. Since neither the
+ * tasks nor the order of the sums depend on the pool, the output is
+ * identical whether the score is rendered serially or on any number of
+ * threads.
+ * <p>
+ * A reverb can be set as a send bus: it reverberates the finished mix once,
+ * rather than once per note in each instrument's chain.
+ * <p>
+ * The heap allocated per note is measured by an {@link AllocationMeter}, so
+ * the cost of each instrument's per-note chain can be benchmarked.
+ * <p>
+ * Instruments must end their chains with {@link RenderTarget#output(jm.audio.AudioObject)}
+ * (as the instruments in {@code jm.inst} do) and use the renderer's sample rate.
+ * @author jaw64
+ */
+public class ParallelScoreRenderer {
+
+    /**
+     * The default number of notes rendered by each task.
+     */
+    public static final int DEFAULT_NOTES_PER_TASK = 32;
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * The number of interleaved channels of the mix.
+     */
+    private final int channels;
+
+    /**
+     * Lends an instrument to each task (reusing instruments across tasks and renders).
+     */
+    private final InstrumentPool instruments;
+
+    /**
+     * The pool rendering tasks in parallel, or null when rendering serially.
+     */
+    private ExecutorService pool;
+
+    /**
+     * The number of notes rendered by each task.
+     */
+    private int notesPerTask;
+
+    /**
+     * The reverb applied to the mix, or null for none.
+     */
+    private FeedbackDelayNetwork reverb;
+
+    /**
+     * Measures the heap allocated by the instruments per note.
+     */
+    private final AllocationMeter allocations;
+
+    /**
+     * (constructor) Creates a serial renderer.
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels of the mix
+     * @param factory creates the instruments
+     */
+    public ParallelScoreRenderer(int sampleRate, int channels, InstrumentFactory factory) {
+        this(sampleRate, channels, new InstrumentPool(factory));
+    }
+
+    /**
+     * (constructor) Creates a serial renderer sharing a pool of instruments.
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels of the mix
+     * @param instruments lends an instrument to each task
+     */
+    public ParallelScoreRenderer(int sampleRate, int channels, InstrumentPool instruments) {
+        if (sampleRate < 1 || channels < 1) {
+            throw new IllegalArgumentException("Sample rate and channels must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.instruments = instruments;
+        this.pool = null;
+        this.notesPerTask = DEFAULT_NOTES_PER_TASK;
+        this.reverb = null;
+        this.allocations = new AllocationMeter();
+    }
+
+    /**
+     * Gets the pool used to render in parallel.
+     * @return the pool, or null if the score is rendered serially
+     */
+    public ExecutorService getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool to render in parallel on. The output does not depend on it.
+     * @param pool the pool to use, or null to render serially on the calling thread
+     */
+    public void setPool(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the number of notes rendered by each task.
+     * @return the number of notes
+     */
+    public int getNotesPerTask() {
+        return notesPerTask;
+    }
+
+    /**
+     * Sets the number of notes rendered by each task. Smaller tasks balance
+     * better across threads, larger ones cost less memory to mix. Note that
+     * changing it changes the order of the sums, and so the last bits of the
+     * output.
+     * @param notesPerTask the number of notes (at least 1)
+     */
+    public void setNotesPerTask(int notesPerTask) {
+        this.notesPerTask = Math.max(1, notesPerTask);
+    }
+
+    /**
+     * Gets the reverb applied to the mix.
+     * @return the reverb, or null if the mix is not reverberated
+     */
+    public FeedbackDelayNetwork getReverb() {
+        return reverb;
+    }
+
+    /**
+     * Sets a reverb to apply to the whole mix (after the notes are summed),
+     * extending the mix by its tail. The network's output replaces the mix,
+     * so it should keep a dry gain of 1 and use its wet gain as the send
+     * level.
+     * @param reverb the reverb (set to the renderer's sample rate), or null for none
+     */
+    public void setReverb(FeedbackDelayNetwork reverb) {
+        if (reverb != null) {
+            reverb.setSampleRate(sampleRate);
+        }
+        this.reverb = reverb;
+    }
+
+    /**
+     * Gets the meter of the heap allocated by the instruments per note (over
+     * every render since it was last reset).
+     * @return the meter
+     */
+    public AllocationMeter getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * Renders a score.
+     * @param score the score
+     * @return the interleaved mix
+     * @throws IOException if a note fails to render
+     */
+    public float[] render(Score score) throws IOException {
+        List<Callable<RenderTarget>> tasks = createTasks(score);
+        Mix mix = new Mix(channels);
+        if (pool == null) {
+            for (Callable<RenderTarget> task : tasks) {
+                try {
+                    mix.add(task.call());
+                } catch (Exception e) {
+                    throw new IOException("Failed to render notes.", e);
+                }
+            }
+            return reverberate(mix.toArray());
+        }
+        List<Future<RenderTarget>> futures = new ArrayList<>(tasks.size());
+        for (Callable<RenderTarget> task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                mix.add(futures.get(i).get());
+                futures.set(i, null); // lets the target be collected
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering notes.");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to render notes.", e.getCause());
+        } finally {
+            for (Future<RenderTarget> future : futures) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        }
+        return reverberate(mix.toArray());
+    }
+
+    /**
+     * Applies the reverb to a mix.
+     * @param samples the interleaved mix
+     * @return the mix with its reverb tail (or the mix itself if there is no reverb)
+     * @throws IOException if the mix would be too long to hold in memory
+     */
+    private float[] reverberate(float[] samples) throws IOException {
+        if (reverb == null) {
+            return samples;
+        }
+        long length = samples.length + reverb.getTailFrames() * channels;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("The score is too long to mix in memory.");
+        }
+        float[] out = Arrays.copyOf(samples, (int) length);
+        reverb.reset();
+        reverb.process(out, 0, out.length / channels, channels);
+        return out;
+    }
+
+    /**
+     * Renders a score to a 16-bit WAV file.
+     * @param score the score
+     * @param path the path of the file
+     * @throws IOException if a note fails to render or the file cannot be written
+     */
+    public void render(Score score, String path) throws IOException {
+        float[] mix = render(score);
+        try (WavWriter wav = new WavWriter(Paths.get(path), sampleRate, channels)) {
+            wav.write(mix, mix.length / channels);
+        }
+    }
+
+    /**
+     * Splits a score into render tasks: the non-rest notes of each phrase, in
+     * groups of {@link #notesPerTask}.
+     * @param score the score
+     * @return the tasks, in mixing order
+     */
+    private List<Callable<RenderTarget>> createTasks(Score score) {
+        List<Callable<RenderTarget>> tasks = new ArrayList<>();
+        double secondsPerBeat = 60.0 / score.getTempo();
+        for (Part part : score.getPartArray()) {
+            final int instrument = part.getInstrument();
+            for (Phrase phrase : part.getPhraseArray()) {
+                List<Note> notes = new ArrayList<>();
+                List<Double> times = new ArrayList<>();
+                double beat = phrase.getStartTime();
+                for (Note note : phrase.getNoteArray()) {
+                    if (!note.isRest()) {
+                        notes.add(note);
+                        times.add((beat + note.getOffset()) * secondsPerBeat);
+                    }
+                    beat += note.getRhythmValue();
+                }
+                for (int from = 0; from < notes.size(); from += notesPerTask) {
+                    int to = Math.min(notes.size(), from + notesPerTask);
+                    final Note[] taskNotes = notes.subList(from, to).toArray(new Note[to - from]);
+                    final double[] taskTimes = new double[to - from];
+                    for (int i = 0; i < taskTimes.length; i++) {
+                        taskTimes[i] = times.get(from + i);
+                    }
+                    tasks.add(() -> renderTask(instrument, taskNotes, taskTimes));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Renders notes in order with a pooled instrument into a new target.
+     * @param instrument the instrument index of the part
+     * @param notes the notes (in phrase order)
+     * @param times the start time of each note (in seconds)
+     * @return the target
+     */
+    private RenderTarget renderTask(int instrument, Note[] notes, double[] times) {
+        double start = times[0];
+        for (double time : times) {
+            start = Math.min(start, time);
+        }
+        RenderTarget target = new RenderTarget(sampleRate, channels,
+                Math.max(0, Math.round(start * sampleRate)));
+        Instrument inst = instruments.borrow(instrument);
+        target.bind();
+        try {
+            long startBytes = AllocationMeter.threadAllocatedBytes();
+            for (int i = 0; i < notes.length; i++) {
+                inst.renderNote(notes[i], times[i]);
+            }
+            allocations.record(startBytes, notes.length);
+        } finally {
+            RenderTarget.unbind();
+        }
+        instruments.giveBack(instrument, inst);
+        return target;
+    }
+
+    /**
+     * The mix of the targets rendered so far, grown as needed.
+     * @author jaw64
+     */
+    private static final class Mix {
+
+        private final int channels;
+
+        private float[] samples;
+
+        /**
+         * The number of samples mixed into (the end of the latest target).
+         */
+        private int length;
+
+        Mix(int channels) {
+            this.channels = channels;
+            this.samples = new float[0];
+            this.length = 0;
+        }
+
+        /**
+         * Adds a rendered target to the mix, then releases it.
+         * @param target the target
+         * @throws IOException if the mix would be too long to hold in memory
+         */
+        void add(RenderTarget target) throws IOException {
+            long end = (target.getStartFrame() + target.getFrames()) * channels;
+            if (end > Integer.MAX_VALUE - 8) {
+                throw new IOException("The score is too long to mix in memory.");
+            }
+            if (end > samples.length) {
+                samples = Arrays.copyOf(samples, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(end, samples.length + (samples.length >> 1))));
+            }
+            int offset = (int) target.getStartFrame() * channels;
+            float[] source = target.getSamples();
+            for (int i = 0, n = target.getFrames() * channels; i < n; i++) {
+                samples[offset + i] += source[i];
+            }
+            length = Math.max(length, (int) end);
+            target.release();
+        }
+
+        /**
+         * Gets the mix.
+         * @return the interleaved samples
+         */
+        float[] toArray() {
+            return samples.length == length ? samples : Arrays.copyOf(samples, length);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package jaw64.ca.audio;
+
+/**
+ * A Karplus-Strong plucked string: a burst of noise circulating through a
+ * delay line and a two-point averaging filter. The averaging weight (the
+ * feedback, as in {@link jm.audio.synth.Pluck}) sets how long the string
+ * sustains, and a first-order all-pass filter supplies the fractional part
+ * of the loop delay so every pitch is in tune rather than rounded to a whole
+ * number of samples. The delay line is allocated once, long enough for the
+ * lowest frequency, and reused by every pluck; blocks of interleaved samples
+ * are rendered without allocating.
+ * @author jaw64
+ */
+public final class PluckedString {
+
+    /**
+     * The lowest frequency the delay line is long enough for (in Hz).
+     */
+    public static final double MIN_FREQUENCY = 20.0;
+
+    /**
+     * The least fractional delay left to the all-pass filter (keeps its
+     * coefficient away from -1, where it would barely damp transients).
+     */
+    private static final double MIN_FRACTION = 0.1;
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * The delay line (only the first {@link #length} samples are in use).
+     */
+    private final float[] line;
+
+    /**
+     * The length of the loop's delay line for the current pitch, and the
+     * position to read (then write).
+     */
+    private int length;
+
+    private int position;
+
+    /**
+     * The weight of the older sample in the averaging filter (0-1).
+     */
+    private float feedback;
+
+    /**
+     * The previous sample leaving the delay line.
+     */
+    private float previous;
+
+    /**
+     * The all-pass filter's coefficient, previous input and previous output.
+     */
+    private float allPass;
+
+    private float allPassIn;
+
+    private float allPassOut;
+
+    /**
+     * The state of the noise generator.
+     */
+    private int seed;
+
+    /**
+     * (constructor) Creates a string (silent until plucked).
+     * @param sampleRate the number of frames per second
+     * @param feedback the weight of the older sample in the averaging filter;
+     * 0.5 decays fastest, values towards 0 or 1 sustain longer
+     */
+    public PluckedString(int sampleRate, double feedback) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.line = new float[(int) Math.ceil(sampleRate / MIN_FREQUENCY) + 2];
+        this.length = 1;
+        this.position = 0;
+        setFeedback(feedback);
+    }
+
+    /**
+     * Gets the number of frames per second the string was created for.
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the weight of the older sample in the averaging filter (takes
+     * effect at the next pluck).
+     * @param feedback the weight (clamped to 0.01-0.99)
+     */
+    public void setFeedback(double feedback) {
+        this.feedback = (float) Math.max(0.01, Math.min(feedback, 0.99));
+    }
+
+    /**
+     * Plucks the string with the noise for a seed of 0 (see
+     * {@link #pluck(double, long)}).
+     * @param frequency the frequency (in Hz; clamped to {@link #MIN_FREQUENCY}
+     * and below half the sample rate)
+     */
+    public void pluck(double frequency) {
+        pluck(frequency, 0);
+    }
+
+    /**
+     * Plucks the string: tunes the loop and fills it with noise. The noise
+     * depends only on the frequency and the seed, so a note sounds the same
+     * whichever string, instrument or thread plays it, while notes given
+     * different seeds (such as their start frames) differ as real plucks do.
+     * @param frequency the frequency (in Hz; clamped to {@link #MIN_FREQUENCY}
+     * and below half the sample rate)
+     * @param noiseSeed the seed of the noise
+     */
+    public void pluck(double frequency, long noiseSeed) {
+        double f = Math.max(MIN_FREQUENCY, Math.min(frequency, 0.45 * sampleRate));
+        // The averaging filter delays by the feedback; the all-pass makes up
+        // the fraction left over by the whole-sample delay line.
+        double delay = sampleRate / f - feedback;
+        length = Math.max(1, (int) (delay - MIN_FRACTION));
+        double fraction = delay - length;
+        allPass = (float) ((1.0 - fraction) / (1.0 + fraction));
+        allPassIn = 0.0f;
+        allPassOut = 0.0f;
+        previous = 0.0f;
+        position = 0;
+        long bits = Double.doubleToLongBits(f) ^ (noiseSeed * 0x9E3779B97F4A7C15L);
+        seed = (int) (bits ^ (bits >>> 32)) | 1;
+        float mean = 0.0f;
+        for (int i = 0; i < length; i++) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            line[i] = seed * (1.0f / Integer.MAX_VALUE);
+            mean += line[i];
+        }
+        // Remove the offset, which would otherwise never decay.
+        mean /= length;
+        for (int i = 0; i < length; i++) {
+            line[i] -= mean;
+        }
+    }
+
+    /**
+     * Renders a block of the string's sound, the same on every channel.
+     * @param samples the interleaved samples to write
+     * @param offset the index of the first sample
+     * @param frames the number of frames
+     * @param channels the number of interleaved channels
+     */
+    public void render(float[] samples, int offset, int frames, int channels) {
+        final float[] line = this.line;
+        final int length = this.length;
+        final float fb = feedback, c = allPass;
+        int pos = position;
+        float prev = previous, apIn = allPassIn, apOut = allPassOut;
+        for (int f = 0, i = offset; f < frames; f++) {
+            float out = line[pos];
+            float avg = out + fb * (prev - out);
+            prev = out;
+            apOut = c * (avg - apOut) + apIn;
+            apIn = avg;
+            line[pos] = apOut;
+            pos = pos + 1 == length ? 0 : pos + 1;
+            for (int ch = 0; ch < channels; ch++) {
+                samples[i++] = out;
+            }
+        }
+        position = pos;
+        previous = prev;
+        allPassIn = apIn;
+        allPassOut = apOut;
+    }
+}
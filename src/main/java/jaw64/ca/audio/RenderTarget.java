@@ -0,0 +1,190 @@
+package jaw64.ca.audio;
+
+import jm.audio.AudioObject;
+import jm.audio.io.SampleOut;
+
+/**
+ * An in-memory destination for rendered notes. A target is bound to the
+ * thread rendering into it, so instruments building their chain with
+ * {@link #output(AudioObject)} write into the target of the calling thread
+ * (through a {@link BufferOut}) instead of jMusic's shared temporary file,
+ * and several threads can render at once. Without a bound target,
+ * {@link #output(AudioObject)} falls back to a regular {@link SampleOut}.
+ * Sample buffers come from a shared pool and grow in powers of two; a
+ * released target hands its buffer on to the next one, so rendering stays
+ * in memory without allocating a buffer per note.
+ * @author jaw64
+ */
+public final class RenderTarget {
+
+    /**
+     * The target bound to each thread.
+     */
+    private static final ThreadLocal<RenderTarget> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * The number of interleaved channels.
+     */
+    private final int channels;
+
+    /**
+     * The time of the first frame of the target (in frames from the start of the piece).
+     */
+    private final long startFrame;
+
+    /**
+     * The interleaved samples (grown as notes are added).
+     */
+    private float[] samples;
+
+    /**
+     * The number of frames written to (the end of the latest note).
+     */
+    private int frames;
+
+    /**
+     * (constructor) Creates an empty target.
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @param startFrame the time of the first frame of the target (in frames
+     * from the start of the piece); audio before it is dropped
+     */
+    public RenderTarget(int sampleRate, int channels, long startFrame) {
+        if (sampleRate < 1 || channels < 1) {
+            throw new IllegalArgumentException("Sample rate and channels must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.startFrame = startFrame;
+        this.samples = new float[0];
+        this.frames = 0;
+    }
+
+    /**
+     * Gets the target bound to the calling thread.
+     * @return the target, or null if none is bound
+     */
+    public static RenderTarget current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Creates the object ending an instrument's chain: a {@link BufferOut} if
+     * the calling thread has a target bound, otherwise a {@link SampleOut}.
+     * @param last the last object of the chain
+     * @return the output object
+     */
+    public static AudioObject output(AudioObject last) {
+        return CURRENT.get() != null ? new BufferOut(last) : new SampleOut(last);
+    }
+
+    /**
+     * Binds this target to the calling thread (replacing any bound target).
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Unbinds the target of the calling thread.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Gets the number of frames per second.
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Gets the number of interleaved channels.
+     * @return the number of channels
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Gets the time of the first frame of the target.
+     * @return the time (in frames from the start of the piece)
+     */
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    /**
+     * Gets the number of frames written to.
+     * @return the number of frames
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Gets the interleaved samples. Only the first {@link #getFrames()} frames
+     * are meaningful, and the array is replaced when the target grows (and
+     * reused by other targets after {@link #release()}).
+     * @return the samples
+     */
+    public float[] getSamples() {
+        return samples;
+    }
+
+    /**
+     * Adds audio to the target. Audio with fewer channels than the target is
+     * spread across its channels; extra channels are dropped.
+     * @param frame the time of the first frame (in frames from the start of the piece)
+     * @param source the interleaved audio
+     * @param sourceChannels the number of channels of the audio
+     * @param count the number of frames to add
+     */
+    void add(long frame, float[] source, int sourceChannels, int count) {
+        long offset = frame - startFrame;
+        int skip = (int) Math.max(0, Math.min(count, -offset));
+        if (skip == count) {
+            return;
+        }
+        int first = (int) (offset + skip);
+        int end = first + count - skip;
+        ensureFrames(end);
+        for (int f = skip, dest = first * channels; f < count; f++) {
+            int src = f * sourceChannels;
+            for (int c = 0; c < channels; c++) {
+                samples[dest++] += source[src + c % sourceChannels];
+            }
+        }
+        frames = Math.max(frames, end);
+    }
+
+    /**
+     * Grows the samples to hold at least the provided number of frames.
+     * @param required the number of frames
+     */
+    private void ensureFrames(int required) {
+        if (samples.length < required * channels) {
+            float[] grown = FloatArrayPool.acquire(required * channels);
+            System.arraycopy(samples, 0, grown, 0, frames * channels);
+            FloatArrayPool.release(samples, frames * channels);
+            samples = grown;
+        }
+    }
+
+    /**
+     * Returns the samples to the buffer pool (for reuse by later targets) and
+     * empties the target. The target can be rendered into again afterwards.
+     */
+    public void release() {
+        FloatArrayPool.release(samples, frames * channels);
+        samples = new float[0];
+        frames = 0;
+    }
+}
@@ -0,0 +1,73 @@
+package jaw64.ca.audio;
+
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+
+/**
+ * Reverberates a chain with a {@link FeedbackDelayNetwork}. It replaces
+ * networks of {@link jm.audio.synth.Comb} and {@link jm.audio.synth.AllPass}
+ * objects (and the copies of the input feeding them) with one object and one
+ * pass over each buffer. The network can be passed in, for example held by the
+ * instrument so its delay lines are allocated once rather than for every note;
+ * it is set to the chain's sample rate and silenced at the start of each note.
+ * @author jaw64
+ */
+public final class Reverb extends AudioObject {
+
+    /**
+     * The sample rate a network is created for before the chain is built.
+     */
+    private static final int DEFAULT_SAMPLE_RATE = 44100;
+
+    /**
+     * The network.
+     */
+    private final FeedbackDelayNetwork network;
+
+    /**
+     * (constructor) Creates a reverb with its own network.
+     * @param parent the signal to reverberate
+     * @param decayTime the time for the tail to decay by 60 dB (in seconds)
+     * @param dry the gain of the input in the output
+     * @param wet the gain of the reverberation in the output
+     */
+    public Reverb(AudioObject parent, double decayTime, double dry, double wet) {
+        super(parent, "[Reverb]");
+        this.network = new FeedbackDelayNetwork(DEFAULT_SAMPLE_RATE);
+        network.setDecayTime(decayTime);
+        network.setMix(dry, wet);
+    }
+
+    /**
+     * (constructor) Creates a reverb using a network as it is configured. The
+     * network may only be used by one chain at a time.
+     * @param parent the signal to reverberate
+     * @param network the network
+     */
+    public Reverb(AudioObject parent, FeedbackDelayNetwork network) {
+        super(parent, "[Reverb]");
+        this.network = network;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#build()
+     */
+    @Override
+    public void build() {
+        network.setSampleRate(this.sampleRate);
+        network.reset();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        int returned = this.previous[0].nextWork(buffer);
+        int numChannels = Math.max(1, this.channels);
+        network.process(buffer, 0, returned / numChannels, numChannels);
+        return returned;
+    }
+}
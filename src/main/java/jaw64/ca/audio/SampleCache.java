@@ -0,0 +1,461 @@
+package jaw64.ca.audio;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A process-wide cache of decoded audio files, so that a file used by many
+ * chains (every note of a sampled instrument, or several inputs of one
+ * chain) is only read and decoded once. Files are decoded at their own bit
+ * depth, so they sound the same decoded or mapped. Entries are keyed by the
+ * absolute path and modification time of the file, so an edited file is
+ * decoded again. The cache holds at most {@link #getMaxBytes()} of samples and
+ * evicts the least recently used files first; evicted data stays valid for
+ * the chains still reading it. Files are loaded outside the cache's lock,
+ * once however many threads ask for them at the same time. Through
+ * {@link #getSource(String)}, files bigger than {@link #getMappingThreshold()}
+ * are memory-mapped instead of decoded (see {@link MappedSampleSource}), so
+ * they cost no heap at all.
+ * @author jaw64
+ */
+public final class SampleCache {
+
+    /**
+     * The default memory bound (256 MB).
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    /**
+     * The default size above which files are mapped instead of decoded (16 MB).
+     */
+    public static final long DEFAULT_MAPPING_THRESHOLD = 16L << 20;
+
+    /**
+     * The cached files, from least to most recently used.
+     */
+    private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The memory bound (in bytes).
+     */
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * The size above which {@link #getSource(String)} maps files (in bytes).
+     */
+    private static long mappingThreshold = DEFAULT_MAPPING_THRESHOLD;
+
+    /**
+     * The memory held by the cached files (in bytes).
+     */
+    private static long totalBytes = 0;
+
+    /**
+     * The number of lookups answered from the cache and by decoding.
+     */
+    private static long hits = 0;
+
+    private static long misses = 0;
+
+    /**
+     * (constructor) Not instantiable.
+     */
+    private SampleCache() {
+    }
+
+    /**
+     * Gets the decoded audio of a file, decoding it if it is not cached (or
+     * has been modified since).
+     * @param fileName the path of the file (any format javax.sound.sampled reads)
+     * @return the audio
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static SampleData get(String fileName) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        return get(path, Files.getLastModifiedTime(path).toMillis());
+    }
+
+    /**
+     * Gets the audio of a file: mapped if the file is bigger than the mapping
+     * threshold (and its format can be mapped), decoded otherwise.
+     * @param fileName the path of the file
+     * @return the audio
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static SampleSource getSource(String fileName) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (attributes.size() <= getMappingThreshold()) {
+            return get(path, modified);
+        }
+        try {
+            return load("mapped:" + path, modified, () -> MappedSampleSource.open(path.toString()));
+        } catch (IOException e) {
+            return get(path, modified); // a format only javax.sound.sampled reads
+        }
+    }
+
+    /**
+     * Gets any file as raw signed 8-bit samples (one per byte), memory-mapped.
+     * @param fileName the path of the file
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @return the audio
+     * @throws IOException if the file cannot be read
+     */
+    public static SampleSource getRawSource(String fileName, int sampleRate,
+            int channels) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        return load("raw:" + sampleRate + ":" + channels + ":" + path, modified,
+                () -> MappedSampleSource.openRaw(path.toString(), sampleRate, channels));
+    }
+
+    /**
+     * Gets the size above which {@link #getSource(String)} maps files.
+     * @return the size (in bytes)
+     */
+    public static synchronized long getMappingThreshold() {
+        return mappingThreshold;
+    }
+
+    /**
+     * Sets the size above which {@link #getSource(String)} maps files.
+     * @param mappingThreshold the size (in bytes)
+     */
+    public static synchronized void setMappingThreshold(long mappingThreshold) {
+        SampleCache.mappingThreshold = mappingThreshold;
+    }
+
+    /**
+     * Gets the memory bound.
+     * @return the most memory cached files may hold (in bytes)
+     */
+    public static synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the memory bound, evicting files if needed. Files bigger than the
+     * bound are decoded for each lookup and never cached.
+     * @param maxBytes the most memory cached files may hold (in bytes)
+     */
+    public static synchronized void setMaxBytes(long maxBytes) {
+        SampleCache.maxBytes = Math.max(0, maxBytes);
+        evict();
+    }
+
+    /**
+     * Gets the memory held by the cached files.
+     * @return the size (in bytes)
+     */
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     * @return the number of hits
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups which loaded (decoded or mapped) a file.
+     * @return the number of misses
+     */
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public static synchronized void clear() {
+        ENTRIES.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Gets the decoded audio of a file.
+     * @param path the absolute path of the file
+     * @param modified the modification time of the file
+     * @return the audio
+     * @throws IOException if the file cannot be read or decoded
+     */
+    private static SampleData get(Path path, long modified) throws IOException {
+        return (SampleData) load(path.toString(), modified, () -> decode(path));
+    }
+
+    /**
+     * Gets a file from the cache, loading it if needed. The first thread
+     * asking for a file loads it outside the lock (so other files can be
+     * looked up meanwhile) and threads asking for the same file wait for that
+     * load rather than starting their own. The lock is only held to look up,
+     * publish and evict entries.
+     * @param key the key of the file
+     * @param modified the modification time of the file
+     * @param loader loads (decodes or maps) the file
+     * @return the audio
+     * @throws IOException if the file cannot be loaded
+     */
+    private static SampleSource load(String key, long modified, Callable<SampleSource> loader)
+            throws IOException {
+        Entry entry;
+        boolean loading = false;
+        synchronized (SampleCache.class) {
+            entry = lookup(key, modified);
+            if (entry == null) {
+                entry = new Entry(modified, new FutureTask<>(loader));
+                ENTRIES.put(key, entry);
+                loading = true;
+            }
+        }
+        if (loading) {
+            entry.task.run();
+        }
+        try {
+            SampleSource source = entry.task.get();
+            if (loading) {
+                publish(key, entry, source);
+            }
+            return source;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + key + ".");
+        } catch (ExecutionException e) {
+            if (loading) {
+                synchronized (SampleCache.class) {
+                    ENTRIES.remove(key, entry);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Cannot load " + key + ".", cause);
+        }
+    }
+
+    /**
+     * Looks up a cached (or loading) file, dropping it if it has been
+     * modified since it was cached. Called with the lock held.
+     * @param key the key of the file
+     * @param modified the modification time of the file
+     * @return the entry, or null if the file must be loaded
+     */
+    private static Entry lookup(String key, long modified) {
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && entry.modified == modified) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        if (entry != null) {
+            ENTRIES.remove(key);
+            totalBytes -= entry.bytes;
+        }
+        return null;
+    }
+
+    /**
+     * Accounts for the memory of a file just loaded, evicting others if
+     * needed. A file bigger than the memory bound is not kept.
+     * @param key the key of the file
+     * @param entry the entry of the file
+     * @param source the loaded audio
+     */
+    private static synchronized void publish(String key, Entry entry, SampleSource source) {
+        if (ENTRIES.get(key) != entry) {
+            return; // evicted or replaced while loading
+        }
+        long bytes = source instanceof SampleData ? ((SampleData) source).getSizeInBytes() : 0;
+        if (bytes > maxBytes) {
+            ENTRIES.remove(key);
+            return;
+        }
+        entry.bytes = bytes;
+        totalBytes += bytes;
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used files until the cache is within its bound.
+     */
+    private static void evict() {
+        Iterator<Map.Entry<String, Entry>> it = ENTRIES.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * Decodes a file into floating point samples, at the bit depth of the file
+     * (see {@link #getDecodedFormat(AudioFormat)}) and scaled as
+     * {@link MappedSampleSource} scales them, so a file sounds the same
+     * whether it is decoded or mapped.
+     * @param path the path of the file
+     * @return the audio
+     * @throws IOException if the file cannot be read or decoded
+     */
+    private static SampleData decode(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path));
+                AudioInputStream source = AudioSystem.getAudioInputStream(in)) {
+            AudioFormat format = source.getFormat();
+            AudioFormat pcm = getDecodedFormat(format);
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(pcm, source)) {
+                long length = decoded.getFrameLength();
+                int capacity = length > 0 ? (int) Math.min(length * pcm.getFrameSize(),
+                        Integer.MAX_VALUE - 8) : 1 << 16;
+                byte[] bytes = new byte[capacity];
+                byte[] more = null;
+                int size = 0;
+                while (true) {
+                    if (size < bytes.length) {
+                        int n = decoded.read(bytes, size, bytes.length - size);
+                        if (n <= 0) {
+                            break;
+                        }
+                        size += n;
+                        continue;
+                    }
+                    // Full (usually exactly at the announced length): only
+                    // grow if there is more to read.
+                    if (more == null) {
+                        more = new byte[pcm.getFrameSize() << 12];
+                    }
+                    int n = decoded.read(more, 0, more.length);
+                    if (n <= 0) {
+                        break;
+                    }
+                    bytes = Arrays.copyOf(bytes, Math.max(size + n, bytes.length * 2));
+                    System.arraycopy(more, 0, bytes, size, n);
+                    size += n;
+                }
+                return new SampleData((int) format.getSampleRate(), format.getChannels(),
+                        toSamples(bytes, size, pcm));
+            }
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            throw new IOException("Cannot decode audio file " + path + ".", e);
+        }
+    }
+
+    /**
+     * Gets the little-endian PCM format a file is decoded to: 32-bit floats
+     * for floating point files, signed samples of the file's own size for 8,
+     * 16, 24 and 32-bit integer files, and 16-bit samples otherwise (for
+     * compressed formats, which have no bit depth of their own).
+     * @param format the format of the file
+     * @return the decoded format
+     */
+    private static AudioFormat getDecodedFormat(AudioFormat format) {
+        AudioFormat.Encoding encoding = AudioFormat.Encoding.PCM_SIGNED;
+        int bits = 16;
+        int fileBits = format.getSampleSizeInBits();
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+            encoding = AudioFormat.Encoding.PCM_FLOAT;
+            bits = 32;
+        }
+        else if ((AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                || AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()))
+                && (fileBits == 8 || fileBits == 24 || fileBits == 32)) {
+            bits = fileBits;
+        }
+        AudioFormat decoded = new AudioFormat(encoding, format.getSampleRate(), bits,
+                format.getChannels(), bits / 8 * format.getChannels(), format.getSampleRate(), false);
+        if (bits != 16 && !AudioSystem.isConversionSupported(decoded, format)) {
+            return new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        }
+        return decoded;
+    }
+
+    /**
+     * Converts decoded bytes to floating point samples (-1 to 1).
+     * @param bytes the bytes
+     * @param size the number of bytes
+     * @param pcm the format of the bytes (from {@link #getDecodedFormat(AudioFormat)})
+     * @return the samples
+     */
+    private static float[] toSamples(byte[] bytes, int size, AudioFormat pcm) {
+        final int bytesPerSample = pcm.getSampleSizeInBits() / 8;
+        final boolean floats = AudioFormat.Encoding.PCM_FLOAT.equals(pcm.getEncoding());
+        ByteBuffer in = ByteBuffer.wrap(bytes, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        float[] samples = new float[size / bytesPerSample];
+        for (int i = 0, p = 0; i < samples.length; i++, p += bytesPerSample) {
+            switch (bytesPerSample) {
+            case 1:
+                samples[i] = bytes[p] / 128.0f;
+                break;
+            case 2:
+                samples[i] = in.getShort(p) / 32768.0f;
+                break;
+            case 3: {
+                int s = (bytes[p + 2] << 24) | ((bytes[p + 1] & 0xFF) << 16) | ((bytes[p] & 0xFF) << 8);
+                samples[i] = (s >> 8) / 8388608.0f;
+                break;
+            }
+            default:
+                samples[i] = floats ? in.getFloat(p) : in.getInt(p) / 2147483648.0f;
+                break;
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * A cached file.
+     * @author jaw64
+     */
+    private static final class Entry {
+
+        /**
+         * The modification time of the file when it was decoded.
+         */
+        final long modified;
+
+        /**
+         * Loads the file once; every lookup of the entry waits for it.
+         */
+        final FutureTask<SampleSource> task;
+
+        /**
+         * The heap memory held by the file (0 for mapped files, and until the
+         * file is loaded).
+         */
+        long bytes;
+
+        Entry(long modified, FutureTask<SampleSource> task) {
+            this.modified = modified;
+            this.task = task;
+            this.bytes = 0;
+        }
+    }
+}
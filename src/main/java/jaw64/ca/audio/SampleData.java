@@ -0,0 +1,95 @@
+package jaw64.ca.audio;
+
+import java.util.Arrays;
+
+/**
+ * Decoded audio held in memory. Sample data cannot be modified once created,
+ * so one instance can back any number of chains at once (see {@link SampleCache}).
+ * @author jaw64
+ */
+public final class SampleData implements SampleSource {
+
+    private final int sampleRate;
+
+    private final int channels;
+
+    /**
+     * The interleaved samples.
+     */
+    private final float[] samples;
+
+    /**
+     * (constructor) Creates sample data (taking ownership of the samples).
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @param samples the interleaved samples (not copied, must not be modified afterwards)
+     */
+    SampleData(int sampleRate, int channels, float[] samples) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.samples = samples;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getSampleRate()
+     */
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getChannels()
+     */
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#getFrames()
+     */
+    @Override
+    public long getFrames() {
+        return samples.length / channels;
+    }
+
+    /**
+     * Gets the memory held by the samples.
+     * @return the size (in bytes)
+     */
+    public long getSizeInBytes() {
+        return 4L * samples.length;
+    }
+
+    /**
+     * Gets a single sample.
+     * @param index the index of the sample (frame * channels + channel)
+     * @return the sample
+     */
+    public float getSample(int index) {
+        return samples[index];
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.audio.SampleSource#read(long, float[], int, int)
+     */
+    @Override
+    public void read(long frame, float[] dest, int offset, int frames) {
+        long from = Math.max(frame, 0);
+        long to = Math.min(frame + frames, getFrames());
+        if (from >= to) {
+            Arrays.fill(dest, offset, offset + frames * channels, 0.0f);
+            return;
+        }
+        int lead = (int) (from - frame) * channels;
+        int count = (int) (to - from) * channels;
+        Arrays.fill(dest, offset, offset + lead, 0.0f);
+        System.arraycopy(samples, (int) from * channels, dest, offset + lead, count);
+        Arrays.fill(dest, offset + lead + count, offset + frames * channels, 0.0f);
+    }
+}
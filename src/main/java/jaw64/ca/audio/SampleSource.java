@@ -0,0 +1,36 @@
+package jaw64.ca.audio;
+
+/**
+ * Read-only access to the frames of a piece of audio, as floating point
+ * samples in [-1, 1]. Sources are safe to share between chains and threads.
+ * @author jaw64
+ */
+public interface SampleSource {
+
+    /**
+     * Gets the number of frames per second.
+     * @return the sample rate
+     */
+    public int getSampleRate();
+
+    /**
+     * Gets the number of interleaved channels.
+     * @return the number of channels
+     */
+    public int getChannels();
+
+    /**
+     * Gets the length of the audio.
+     * @return the number of frames
+     */
+    public long getFrames();
+
+    /**
+     * Reads interleaved samples. Frames outside the audio read as silence.
+     * @param frame the first frame to read
+     * @param dest the array to read into
+     * @param offset the index in {@code dest} of the first sample
+     * @param frames the number of frames to read
+     */
+    public void read(long frame, float[] dest, int offset, int frames);
+}
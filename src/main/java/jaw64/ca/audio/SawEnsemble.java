@@ -0,0 +1,143 @@
+package jaw64.ca.audio;
+
+/**
+ * A band-limited unison sawtooth: several detuned sawtooth voices summed in
+ * a single loop, each corrected with a polynomial band-limited step
+ * (PolyBLEP) at its reset so that high notes do not alias. Voices are
+ * detuned symmetrically around the note frequency (0, +1, -1, +2, -2, ...
+ * times the detune ratio) and all start in phase, like a bank of
+ * oscillators. A curve can bend each ramp exponentially (a sabersaw). The
+ * voice state is allocated once and reset by every note, so an instrument
+ * can hold an ensemble and reuse it for each note's {@link UnisonSaw};
+ * blocks of interleaved samples are rendered without allocating.
+ * @author jaw64
+ */
+public final class SawEnsemble {
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * The frequency ratio of each voice.
+     */
+    private final double[] ratios;
+
+    /**
+     * The phase (0-1) and phase increment of each voice.
+     */
+    private final double[] phases;
+
+    private final double[] increments;
+
+    /**
+     * The exponential curve of the ramps (0 for a straight sawtooth).
+     */
+    private double curve;
+
+    /**
+     * The amplitude of each voice.
+     */
+    private float amp;
+
+    /**
+     * (constructor) Creates an ensemble (silent until started).
+     * @param sampleRate the number of frames per second
+     * @param voices the number of sawtooth voices
+     * @param detune the frequency ratio between neighboring voices (e.g. 0.001)
+     */
+    public SawEnsemble(int sampleRate, int voices, double detune) {
+        if (sampleRate < 1 || voices < 1) {
+            throw new IllegalArgumentException("Sample rate and voices must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.ratios = new double[voices];
+        this.phases = new double[voices];
+        this.increments = new double[voices];
+        for (int v = 1; v < voices; v++) {
+            int step = (v + 1) / 2;
+            ratios[v] = 1.0 + (v % 2 == 1 ? step : -step) * detune;
+        }
+        ratios[0] = 1.0;
+        this.curve = 0.0;
+        this.amp = 0.0f;
+    }
+
+    /**
+     * Gets the number of frames per second the ensemble was created for.
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the exponential curve of the ramps. With a curve of 0 the voices
+     * are straight sawtooth waves; larger curves rise slowly then sharply
+     * (jMusic's sabersaw shape).
+     * @param curve the curve (0 or more)
+     */
+    public void setCurve(double curve) {
+        this.curve = Math.max(0.0, curve);
+    }
+
+    /**
+     * Starts a note: tunes every voice and resets it to the start of its ramp.
+     * @param frequency the frequency of the note (in Hz)
+     * @param amplitude the amplitude of each voice
+     */
+    public void start(double frequency, double amplitude) {
+        for (int v = 0; v < ratios.length; v++) {
+            phases[v] = 0.0;
+            increments[v] = Math.min(0.5, frequency * ratios[v] / sampleRate);
+        }
+        this.amp = (float) amplitude;
+    }
+
+    /**
+     * Renders a block of the ensemble's sound, the same on every channel.
+     * @param samples the interleaved samples to write
+     * @param offset the index of the first sample
+     * @param frames the number of frames
+     * @param channels the number of interleaved channels
+     */
+    public void render(float[] samples, int offset, int frames, int channels) {
+        final int voices = ratios.length;
+        final boolean curved = curve > 0.0;
+        final double scale = curved ? 2.0 / (Math.exp(curve) - 1.0) : 0.0;
+        for (int f = 0, i = offset; f < frames; f++) {
+            double sum = 0.0;
+            for (int v = 0; v < voices; v++) {
+                double t = phases[v];
+                double dt = increments[v];
+                double ramp = curved ? scale * (Math.exp(curve * t) - 1.0) - 1.0 : 2.0 * t - 1.0;
+                sum += ramp - polyBlep(t, dt);
+                t += dt;
+                phases[v] = t >= 1.0 ? t - 1.0 : t;
+            }
+            float sample = (float) sum * amp;
+            for (int c = 0; c < channels; c++) {
+                samples[i++] = sample;
+            }
+        }
+    }
+
+    /**
+     * The band-limited step correction for a sawtooth falling by 2 at each reset.
+     * @param t the phase (0-1)
+     * @param dt the phase increment
+     * @return the amount to subtract from the naive sawtooth
+     */
+    private static double polyBlep(double t, double dt) {
+        if (t < dt) {
+            double x = t / dt;
+            return x + x - x * x - 1.0;
+        }
+        if (t > 1.0 - dt) {
+            double x = (t - 1.0) / dt;
+            return x * x + x + x + 1.0;
+        }
+        return 0.0;
+    }
+}
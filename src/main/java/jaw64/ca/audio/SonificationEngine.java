@@ -0,0 +1,260 @@
+package jaw64.ca.audio;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Renders stereo PCM audio from a set of {@link Voice}s, one generation at a
+ * time, in fixed-size blocks of floating point samples. Each generation lasts
+ * a fixed time; generation boundaries are computed from the absolute
+ * generation count, so fractional frame counts never accumulate into drift.
+ * All buffers are allocated up front, so rendering never allocates. An
+ * optional reverb is applied to each block of the mix (one for all voices).
+ * @author jaw64
+ */
+public class SonificationEngine {
+
+    /**
+     * The default number of frames per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+
+    /**
+     * The number of output channels.
+     */
+    public static final int CHANNELS = 2;
+
+    /**
+     * The number of frames per second.
+     */
+    private final int sampleRate;
+
+    /**
+     * The number of frames per generation.
+     */
+    private final double framesPerGeneration;
+
+    /**
+     * The number of frames per block.
+     */
+    private final int blockSize;
+
+    private final Voice[] voices;
+
+    /**
+     * The interleaved stereo mix of the current block.
+     */
+    private final float[] mix;
+
+    /**
+     * Mono scratch space for rendering a voice.
+     */
+    private final float[] scratch;
+
+    /**
+     * The gain applied to the mix (keeps a full chord of voices from clipping).
+     */
+    private float masterGain;
+
+    /**
+     * The reverb applied to the mix, or null for none.
+     */
+    private FeedbackDelayNetwork reverb;
+
+    /**
+     * The number of generations and frames rendered so far.
+     */
+    private int generationsRendered;
+
+    private long framesRendered;
+
+    /**
+     * (constructor) Creates an engine of default sine voices with the default block size.
+     * @param sampleRate the number of frames per second
+     * @param numVoices the number of voices
+     * @param secondsPerGeneration how long each generation lasts
+     */
+    public SonificationEngine(int sampleRate, int numVoices, double secondsPerGeneration) {
+        this(sampleRate, numVoices, secondsPerGeneration, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * (constructor) Creates an engine of default sine voices.
+     * @param sampleRate the number of frames per second
+     * @param numVoices the number of voices
+     * @param secondsPerGeneration how long each generation lasts
+     * @param blockSize the number of frames per block
+     */
+    public SonificationEngine(int sampleRate, int numVoices, double secondsPerGeneration,
+            int blockSize) {
+        if (sampleRate < 1 || numVoices < 1 || blockSize < 1 || secondsPerGeneration <= 0.0) {
+            throw new IllegalArgumentException(
+                    "Sample rate, voices, block size and generation length must be positive.");
+        }
+        this.sampleRate = sampleRate;
+        this.framesPerGeneration = secondsPerGeneration * sampleRate;
+        this.blockSize = blockSize;
+        this.voices = new Voice[numVoices];
+        for (int i = 0; i < numVoices; i++) {
+            voices[i] = new Voice(sampleRate);
+        }
+        this.mix = new float[blockSize * CHANNELS];
+        this.scratch = new float[blockSize];
+        this.masterGain = (float) (1.0 / Math.sqrt(numVoices));
+        this.reverb = null;
+        this.generationsRendered = 0;
+        this.framesRendered = 0;
+    }
+
+    /**
+     * Gets the number of frames per second.
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Gets the number of voices.
+     * @return the number of voices
+     */
+    public int getNumVoices() {
+        return voices.length;
+    }
+
+    /**
+     * Gets a voice.
+     * @param index the index of the voice
+     * @return the voice
+     */
+    public Voice getVoice(int index) {
+        return voices[index];
+    }
+
+    /**
+     * Replaces a voice (for example with one using a different envelope).
+     * @param index the index of the voice
+     * @param voice the new voice
+     */
+    public void setVoice(int index, Voice voice) {
+        voices[index] = voice;
+    }
+
+    /**
+     * Gets the gain applied to the mix.
+     * @return the master gain
+     */
+    public float getMasterGain() {
+        return masterGain;
+    }
+
+    /**
+     * Sets the gain applied to the mix (by default one over the square root of
+     * the number of voices).
+     * @param masterGain the master gain
+     */
+    public void setMasterGain(float masterGain) {
+        this.masterGain = masterGain;
+    }
+
+    /**
+     * Gets the reverb applied to the mix.
+     * @return the reverb, or null if the mix is not reverberated
+     */
+    public FeedbackDelayNetwork getReverb() {
+        return reverb;
+    }
+
+    /**
+     * Sets a reverb to apply to the mix (after the master gain). The
+     * network's output replaces the mix, so it should keep a dry gain of 1
+     * and use its wet gain as the send level.
+     * @param reverb the reverb (set to the engine's sample rate), or null for none
+     */
+    public void setReverb(FeedbackDelayNetwork reverb) {
+        if (reverb != null) {
+            reverb.setSampleRate(sampleRate);
+        }
+        this.reverb = reverb;
+    }
+
+    /**
+     * Gets the number of frames rendered so far.
+     * @return the number of frames
+     */
+    public long getFramesRendered() {
+        return framesRendered;
+    }
+
+    /**
+     * Renders the audio of the next generation (with the voices as they are now).
+     * @param sink the sink to write the audio to
+     * @throws IOException if the sink fails
+     */
+    public void renderGeneration(AudioSink sink) throws IOException {
+        generationsRendered++;
+        long end = Math.round(generationsRendered * framesPerGeneration);
+        render(sink, end - framesRendered);
+    }
+
+    /**
+     * Releases every voice and renders until they have all fallen silent
+     * (and the reverb, if any, has decayed).
+     * @param sink the sink to write the audio to
+     * @param maxSeconds the longest tail to render
+     * @throws IOException if the sink fails
+     */
+    public void renderTail(AudioSink sink, double maxSeconds) throws IOException {
+        for (Voice voice : voices) {
+            voice.noteOff();
+        }
+        long remaining = Math.round(maxSeconds * sampleRate);
+        while (remaining > 0 && anyActive()) {
+            int frames = (int) Math.min(blockSize, remaining);
+            render(sink, frames);
+            remaining -= frames;
+        }
+        if (reverb != null) {
+            render(sink, Math.min(remaining, reverb.getTailFrames()));
+        }
+    }
+
+    /**
+     * Tells whether any voice is making sound.
+     * @return true if a voice is active
+     */
+    private boolean anyActive() {
+        for (Voice voice : voices) {
+            if (voice.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders frames in blocks.
+     * @param sink the sink to write the audio to
+     * @param frames the number of frames to render
+     * @throws IOException if the sink fails
+     */
+    private void render(AudioSink sink, long frames) throws IOException {
+        while (frames > 0) {
+            final int n = (int) Math.min(blockSize, frames);
+            Arrays.fill(mix, 0, n * CHANNELS, 0.0f);
+            for (Voice voice : voices) {
+                voice.mixInto(mix, scratch, n);
+            }
+            final float g = masterGain;
+            for (int i = 0; i < n * CHANNELS; i++) {
+                mix[i] *= g;
+            }
+            if (reverb != null) {
+                reverb.process(mix, 0, n, CHANNELS);
+            }
+            sink.write(mix, n);
+            frames -= n;
+            framesRendered += n;
+        }
+    }
+}
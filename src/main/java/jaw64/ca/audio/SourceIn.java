@@ -0,0 +1,185 @@
+package jaw64.ca.audio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+import jm.audio.Instrument;
+
+/**
+ * Heads an instrument's chain with audio from a {@link SampleSource}, in place
+ * of jMusic's {@link jm.audio.io.SampleIn} and {@link jm.audio.io.TextIn}.
+ * Created from a file name, it reads the file through the {@link SampleCache},
+ * so the file is loaded once however many notes and chains play it (and large
+ * files are memory-mapped rather than read). Each note starts playing from a
+ * start frame, forwards or backwards, and {@link #seek(long)} jumps anywhere in
+ * the source at any time.
+ * @author jaw64
+ */
+public class SourceIn extends AudioObject {
+
+    /**
+     * The audio played.
+     */
+    private final SampleSource source;
+
+    /**
+     * Whether each note plays the whole source (instead of lasting as long as the note).
+     */
+    private boolean wholeFile;
+
+    /**
+     * Whether the source plays backwards.
+     */
+    private boolean reversed;
+
+    /**
+     * The frame each note starts from (when reversed, the frame each note ends on).
+     */
+    private long startFrame;
+
+    /**
+     * The next frame to play (when reversed, the frame after it).
+     */
+    private long position;
+
+    /**
+     * (constructor) Creates an input playing a file from the sample cache.
+     * @param inst the instrument whose chain this heads
+     * @param fileName the path of the audio file
+     */
+    public SourceIn(Instrument inst, String fileName) {
+        this(inst, load(fileName, 0, 0));
+    }
+
+    /**
+     * (constructor) Creates an input playing the bytes of any file as signed
+     * 8-bit samples (as jMusic's {@link jm.audio.io.TextIn} does).
+     * @param inst the instrument whose chain this heads
+     * @param fileName the path of the file
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     */
+    public SourceIn(Instrument inst, String fileName, int sampleRate, int channels) {
+        this(inst, load(fileName, sampleRate, channels));
+    }
+
+    /**
+     * (constructor) Creates an input playing a sample source.
+     * @param inst the instrument whose chain this heads
+     * @param source the audio to play
+     */
+    public SourceIn(Instrument inst, SampleSource source) {
+        super(inst, source.getSampleRate(), "[SourceIn]");
+        this.source = source;
+        this.channels = source.getChannels();
+        this.wholeFile = false;
+        this.reversed = false;
+        this.startFrame = 0;
+    }
+
+    /**
+     * Gets the audio of a file from the sample cache.
+     * @param fileName the path of the file
+     * @param sampleRate the sample rate of raw bytes (0 to read the file as audio)
+     * @param channels the number of channels of raw bytes
+     * @return the audio
+     */
+    private static SampleSource load(String fileName, int sampleRate, int channels) {
+        try {
+            return sampleRate > 0 ? SampleCache.getRawSource(fileName, sampleRate, channels)
+                    : SampleCache.getSource(fileName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the audio played.
+     * @return the source
+     */
+    public SampleSource getSource() {
+        return source;
+    }
+
+    /**
+     * Sets whether each note plays the whole source.
+     * @param wholeFile true to play the whole source, false to play as long as the note
+     */
+    public void setWholeFile(boolean wholeFile) {
+        this.wholeFile = wholeFile;
+    }
+
+    /**
+     * Sets whether the source plays backwards. A reversed note plays the same
+     * frames as a forward one, last frame first.
+     * @param reversed true to play backwards
+     */
+    public void setReversed(boolean reversed) {
+        this.reversed = reversed;
+    }
+
+    /**
+     * Sets the frame each note starts from (for a reversed note, the first
+     * of the frames it plays backwards).
+     * @param startFrame the frame
+     */
+    public void setStartFrame(long startFrame) {
+        this.startFrame = Math.max(0, startFrame);
+    }
+
+    /**
+     * Gets the next frame to play.
+     * @return the frame
+     */
+    public long getPosition() {
+        return reversed ? position - 1 : position;
+    }
+
+    /**
+     * Jumps to a frame of the source. Frames outside it play as silence.
+     * @param frame the next frame to play
+     */
+    public void seek(long frame) {
+        this.position = reversed ? frame + 1 : frame;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#build()
+     */
+    @Override
+    public void build() {
+        long length = this.numOfSamples;
+        if (wholeFile) {
+            length = Math.max(0, source.getFrames() - startFrame);
+            this.numOfSamples = (int) Math.min(Integer.MAX_VALUE / channels, length);
+            this.inst.iterations = this.numOfSamples * this.channels;
+        }
+        position = reversed ? startFrame + length : startFrame;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        int frames = buffer.length / channels;
+        if (!reversed) {
+            source.read(position, buffer, 0, frames);
+            position += frames;
+            return frames * channels;
+        }
+        position -= frames;
+        source.read(position, buffer, 0, frames);
+        for (int lo = 0, hi = (frames - 1) * channels; lo < hi; lo += channels, hi -= channels) {
+            for (int c = 0; c < channels; c++) {
+                float t = buffer[lo + c];
+                buffer[lo + c] = buffer[hi + c];
+                buffer[hi + c] = t;
+            }
+        }
+        return frames * channels;
+    }
+}
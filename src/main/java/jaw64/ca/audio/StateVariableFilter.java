@@ -0,0 +1,350 @@
+package jaw64.ca.audio;
+
+import java.util.Arrays;
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+
+/**
+ * A two-pole state-variable filter (in its trapezoidal, zero-delay feedback
+ * form), usable in place of {@link jm.audio.synth.Filter}. It stays stable and in tune
+ * while its cutoff and resonance change every sample, so it can be swept
+ * directly by control signals: an optional second input adds to the cutoff
+ * (scaled by the modulation depth) and an optional third input adds to the
+ * resonance. Coefficients are only recalculated when the cutoff or
+ * resonance actually changes (at most once per frame, from a shared table
+ * rather than a tangent), so a static filter costs a few multiplies per
+ * sample.
+ * @author jaw64
+ */
+public final class StateVariableFilter extends AudioObject {
+
+    /**
+     * The filter responses.
+     */
+    public static final int LOW_PASS = 0;
+
+    public static final int HIGH_PASS = 1;
+
+    public static final int BAND_PASS = 2;
+
+    public static final int NOTCH = 3;
+
+    /**
+     * The resonance of a two-pole Butterworth response (no peak).
+     */
+    public static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+    /**
+     * The highest cutoff, as a fraction of the sample rate (just below Nyquist).
+     */
+    private static final double MAX_NORMALIZED_CUTOFF = 0.49;
+
+    /**
+     * The lowest resonance (keeps the damping finite).
+     */
+    private static final double MIN_RESONANCE = 0.05;
+
+    /**
+     * The number of steps in the table of integrator gains.
+     */
+    private static final int PREWARP_SIZE = 4096;
+
+    /**
+     * The integrator gain of evenly spaced normalized cutoffs (shared by every filter).
+     */
+    private static final double[] PREWARP = createPrewarpTable();
+
+    /**
+     * The response of the filter.
+     */
+    private final int type;
+
+    /**
+     * The number of inputs (signal, then optional cutoff and resonance controls).
+     */
+    private final int numInputs;
+
+    /**
+     * The cutoff (in Hz) and resonance before modulation.
+     */
+    private double cutoff;
+
+    private double resonance;
+
+    /**
+     * The cutoff change per unit of the cutoff control.
+     */
+    private double modulationDepth;
+
+    /**
+     * The integrator states of each channel.
+     */
+    private double[] ic1eq;
+
+    private double[] ic2eq;
+
+    /**
+     * The cutoff and resonance the coefficients were calculated for.
+     */
+    private double coefCutoff;
+
+    private double coefResonance;
+
+    /**
+     * The coefficients.
+     */
+    private double a1;
+
+    private double a2;
+
+    private double a3;
+
+    /**
+     * The weights of the input, band pass and low pass outputs in the output.
+     */
+    private double m0;
+
+    private double m1;
+
+    private double m2;
+
+    /**
+     * The control inputs' samples for the current buffer.
+     */
+    private float[] cutoffControl;
+
+    private float[] resonanceControl;
+
+    /**
+     * (constructor) Creates a filter with a static cutoff and a Butterworth response.
+     * @param parent the signal to filter
+     * @param cutoff the cutoff (in Hz)
+     * @param type the response ({@link #LOW_PASS}, {@link #HIGH_PASS},
+     * {@link #BAND_PASS} or {@link #NOTCH})
+     */
+    public StateVariableFilter(AudioObject parent, double cutoff, int type) {
+        super(parent, "[StateVariableFilter]");
+        this.numInputs = 1;
+        this.type = type;
+        init(cutoff);
+    }
+
+    /**
+     * (constructor) Creates a filter with a modulated cutoff (and optionally
+     * resonance) and a Butterworth response. The cutoff is the base cutoff
+     * plus the modulation depth times the second input; the resonance is
+     * the resonance plus the third input.
+     * @param parents the signal to filter, the cutoff control and
+     * (optionally) the resonance control
+     * @param cutoff the base cutoff (in Hz)
+     * @param type the response ({@link #LOW_PASS}, {@link #HIGH_PASS},
+     * {@link #BAND_PASS} or {@link #NOTCH})
+     */
+    public StateVariableFilter(AudioObject[] parents, double cutoff, int type) {
+        super(parents, "[StateVariableFilter]");
+        if (parents.length < 1 || parents.length > 3) {
+            throw new IllegalArgumentException("StateVariableFilter takes one to three inputs.");
+        }
+        this.numInputs = parents.length;
+        this.type = type;
+        init(cutoff);
+    }
+
+    /**
+     * Sets the initial parameters.
+     * @param cutoff the cutoff (in Hz)
+     */
+    private void init(double cutoff) {
+        if (type < LOW_PASS || type > NOTCH) {
+            throw new IllegalArgumentException("Unknown filter type " + type + ".");
+        }
+        this.cutoff = cutoff;
+        this.resonance = BUTTERWORTH_Q;
+        this.modulationDepth = 1.0;
+        this.ic1eq = new double[0];
+        this.ic2eq = new double[0];
+        this.cutoffControl = new float[0];
+        this.resonanceControl = new float[0];
+        this.coefCutoff = Double.NaN;
+    }
+
+    /**
+     * Sets the base cutoff.
+     * @param cutoff the cutoff (in Hz)
+     */
+    public void setCutoff(double cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Sets the base resonance (the Q of the filter; higher values ring).
+     * @param resonance the resonance (above 0; {@link #BUTTERWORTH_Q} by default)
+     */
+    public void setResonance(double resonance) {
+        this.resonance = resonance;
+    }
+
+    /**
+     * Sets how far the cutoff control moves the cutoff.
+     * @param modulationDepth the cutoff change per unit of the control (in Hz; 1 by default)
+     */
+    public void setModulationDepth(double modulationDepth) {
+        this.modulationDepth = modulationDepth;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#build()
+     */
+    @Override
+    public void build() {
+        int numChannels = Math.max(1, this.channels);
+        if (ic1eq.length != numChannels) {
+            ic1eq = new double[numChannels];
+            ic2eq = new double[numChannels];
+        }
+        else {
+            Arrays.fill(ic1eq, 0.0);
+            Arrays.fill(ic2eq, 0.0);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        int returned = this.previous[0].nextWork(buffer);
+        final int numChannels = ic1eq.length;
+        if (numInputs == 1) {
+            updateCoefficients(cutoff, resonance);
+            for (int c = 0; c < numChannels; c++) {
+                process(buffer, c, returned, numChannels, c);
+            }
+            return returned;
+        }
+        cutoffControl = pull(1, cutoffControl, returned);
+        if (numInputs > 2) {
+            resonanceControl = pull(2, resonanceControl, returned);
+        }
+        for (int frame = 0; frame < returned; frame += numChannels) {
+            updateCoefficients(cutoff + modulationDepth * cutoffControl[frame],
+                    numInputs > 2 ? resonance + resonanceControl[frame] : resonance);
+            int end = Math.min(returned, frame + numChannels);
+            for (int c = 0; c < numChannels; c++) {
+                process(buffer, frame + c, end, numChannels, c);
+            }
+        }
+        return returned;
+    }
+
+    /**
+     * Filters the samples of one channel with the current coefficients.
+     * @param buffer the interleaved samples
+     * @param from the index of the first sample
+     * @param to the index after the last sample
+     * @param stride the number of channels
+     * @param c the channel
+     */
+    private void process(float[] buffer, int from, int to, int stride, int c) {
+        final double a1 = this.a1, a2 = this.a2, a3 = this.a3;
+        final double m0 = this.m0, m1 = this.m1, m2 = this.m2;
+        double s1 = ic1eq[c], s2 = ic2eq[c];
+        for (int i = from; i < to; i += stride) {
+            double v0 = buffer[i];
+            double v3 = v0 - s2;
+            double v1 = a1 * s1 + a2 * v3;
+            double v2 = s2 + a2 * s1 + a3 * v3;
+            s1 = 2.0 * v1 - s1;
+            s2 = 2.0 * v2 - s2;
+            buffer[i] = (float) (m0 * v0 + m1 * v1 + m2 * v2);
+        }
+        ic1eq[c] = s1;
+        ic2eq[c] = s2;
+    }
+
+    /**
+     * Pulls a buffer of samples from a control input.
+     * @param input the index of the input
+     * @param control the buffer to reuse
+     * @param length the number of samples needed
+     * @return the buffer (grown if needed)
+     * @throws AOException if the input fails
+     */
+    private float[] pull(int input, float[] control, int length) throws AOException {
+        if (control.length != length) {
+            control = new float[length];
+        }
+        this.previous[input].nextWork(control);
+        return control;
+    }
+
+    /**
+     * Recalculates the coefficients if the cutoff or resonance has changed.
+     * @param fc the cutoff (in Hz)
+     * @param q the resonance
+     */
+    private void updateCoefficients(double fc, double q) {
+        if (fc == coefCutoff && q == coefResonance) {
+            return;
+        }
+        coefCutoff = fc;
+        coefResonance = q;
+        double g = prewarp(fc / this.sampleRate);
+        double k = 1.0 / Math.max(MIN_RESONANCE, q);
+        a1 = 1.0 / (1.0 + g * (g + k));
+        a2 = g * a1;
+        a3 = g * a2;
+        // Each response is a mix of the input, band pass and low pass outputs.
+        switch (type) {
+        case LOW_PASS:
+            m0 = 0.0;
+            m1 = 0.0;
+            m2 = 1.0;
+            break;
+        case HIGH_PASS:
+            m0 = 1.0;
+            m1 = -k;
+            m2 = -1.0;
+            break;
+        case BAND_PASS:
+            m0 = 0.0;
+            m1 = 1.0;
+            m2 = 0.0;
+            break;
+        default: // NOTCH
+            m0 = 1.0;
+            m1 = -k;
+            m2 = 0.0;
+            break;
+        }
+    }
+
+    /**
+     * Gets the integrator gain for a cutoff, tan(pi * fc / sampleRate), from a
+     * table (so sweeping the cutoff every sample stays cheap).
+     * @param normalized the cutoff over the sample rate (clamped to the table's range)
+     * @return the gain
+     */
+    private static double prewarp(double normalized) {
+        double x = Math.max(0.0, Math.min(normalized, MAX_NORMALIZED_CUTOFF))
+                * (PREWARP_SIZE / MAX_NORMALIZED_CUTOFF);
+        int i = (int) x;
+        double frac = x - i;
+        return PREWARP[i] + frac * (PREWARP[i + 1] - PREWARP[i]);
+    }
+
+    /**
+     * Creates the table of integrator gains.
+     * @return tan(pi * f) for normalized cutoffs f from 0 to {@link #MAX_NORMALIZED_CUTOFF}
+     */
+    private static double[] createPrewarpTable() {
+        double[] table = new double[PREWARP_SIZE + 2];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = Math.tan(Math.PI * Math.min(i, PREWARP_SIZE) * MAX_NORMALIZED_CUTOFF
+                    / PREWARP_SIZE);
+        }
+        return table;
+    }
+}
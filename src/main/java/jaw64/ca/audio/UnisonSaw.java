@@ -0,0 +1,82 @@
+package jaw64.ca.audio;
+
+import jm.audio.AOException;
+import jm.audio.AudioObject;
+import jm.audio.Instrument;
+
+/**
+ * Heads a chain with a {@link SawEnsemble}, started at the frequency and
+ * dynamic of each note. It replaces a bank of {@link jm.audio.synth.Oscillator}s mixed
+ * through {@link jm.audio.synth.Add} with one object and one pass over the buffer. The
+ * ensemble can be passed in, for example held by the instrument so its voice
+ * state is allocated once rather than for every note.
+ * @author jaw64
+ */
+public final class UnisonSaw extends AudioObject {
+
+    /**
+     * The ensemble.
+     */
+    private final SawEnsemble saws;
+
+    /**
+     * (constructor) Creates a unison sawtooth with its own ensemble heading a chain.
+     * @param inst the instrument whose chain this heads
+     * @param sampleRate the number of frames per second
+     * @param channels the number of channels (every channel gets the same signal)
+     * @param voices the number of sawtooth voices
+     * @param detune the frequency ratio between neighboring voices (e.g. 0.001)
+     */
+    public UnisonSaw(Instrument inst, int sampleRate, int channels, int voices, double detune) {
+        this(inst, sampleRate, channels, new SawEnsemble(sampleRate, voices, detune));
+    }
+
+    /**
+     * (constructor) Creates a unison sawtooth heading a chain.
+     * @param inst the instrument whose chain this heads
+     * @param sampleRate the number of frames per second (the ensemble's)
+     * @param channels the number of channels (every channel gets the same signal)
+     * @param saws the ensemble (only used by one chain at a time)
+     */
+    public UnisonSaw(Instrument inst, int sampleRate, int channels, SawEnsemble saws) {
+        super(inst, sampleRate, "[UnisonSaw]");
+        if (channels < 1 || saws.getSampleRate() != sampleRate) {
+            throw new IllegalArgumentException(
+                    "Channels must be positive and the ensemble must use the chain's sample rate.");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.saws = saws;
+    }
+
+    /**
+     * Sets the exponential curve of the ramps (see {@link SawEnsemble#setCurve(double)}).
+     * @param curve the curve (0 or more)
+     */
+    public void setCurve(double curve) {
+        saws.setCurve(curve);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#build()
+     */
+    @Override
+    public void build() {
+        saws.start(this.currentNote.getFrequency(), this.currentNote.getDynamic() / 127.0);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jm.audio.AudioObject#work(float[])
+     */
+    @Override
+    public int work(float[] buffer) throws AOException {
+        final int frames = buffer.length / channels;
+        saws.render(buffer, 0, frames, channels);
+        for (int i = frames * channels; i < buffer.length; i++) {
+            buffer[i] = 0.0f;
+        }
+        return buffer.length;
+    }
+}
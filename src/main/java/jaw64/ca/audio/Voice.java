@@ -0,0 +1,126 @@
+package jaw64.ca.audio;
+
+/**
+ * A single voice of a {@link SonificationEngine}: an {@link Oscillator} shaped
+ * by an {@link Envelope}, scaled by a gain and panned across two channels.
+ * @author jaw64
+ */
+public final class Voice {
+
+    private final Oscillator oscillator;
+
+    private final Envelope envelope;
+
+    /**
+     * The gain of the current note.
+     */
+    private float gain;
+
+    /**
+     * The gains of the left and right channels (from the pan position).
+     */
+    private float leftGain;
+
+    private float rightGain;
+
+    /**
+     * (constructor) Creates a sine voice with a short plucky envelope, panned to the center.
+     * @param sampleRate the number of frames per second
+     */
+    public Voice(int sampleRate) {
+        this(new Oscillator(sampleRate), new Envelope(sampleRate, 0.005, 0.05, 0.7, 0.1));
+    }
+
+    /**
+     * (constructor) Creates a voice panned to the center.
+     * @param oscillator the oscillator of the voice
+     * @param envelope the envelope of the voice
+     */
+    public Voice(Oscillator oscillator, Envelope envelope) {
+        this.oscillator = oscillator;
+        this.envelope = envelope;
+        this.gain = 0.0f;
+        this.setPan(0.0);
+    }
+
+    /**
+     * Converts a MIDI note number to a frequency (in equal temperament, A4 = 440 Hz).
+     * @param note the note number
+     * @return the frequency (in Hz)
+     */
+    public static double midiToFrequency(int note) {
+        return 440.0 * Math.pow(2.0, (note - 69) / 12.0);
+    }
+
+    /**
+     * Gets the oscillator of this voice.
+     * @return the oscillator
+     */
+    public Oscillator getOscillator() {
+        return oscillator;
+    }
+
+    /**
+     * Gets the envelope of this voice.
+     * @return the envelope
+     */
+    public Envelope getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Sets the pan position (using a constant-power pan law).
+     * @param pan the position from -1 (left) to 1 (right)
+     */
+    public void setPan(double pan) {
+        double angle = (Math.max(-1.0, Math.min(1.0, pan)) + 1.0) * Math.PI / 4.0;
+        this.leftGain = (float) Math.cos(angle);
+        this.rightGain = (float) Math.sin(angle);
+    }
+
+    /**
+     * Starts a note.
+     * @param frequency the frequency of the note (in Hz)
+     * @param gain the gain of the note (0-1)
+     */
+    public void noteOn(double frequency, double gain) {
+        oscillator.setFrequency(frequency);
+        this.gain = (float) gain;
+        envelope.noteOn();
+    }
+
+    /**
+     * Releases the current note.
+     */
+    public void noteOff() {
+        envelope.noteOff();
+    }
+
+    /**
+     * Tells whether this voice is making any sound.
+     * @return true if the envelope is active
+     */
+    public boolean isActive() {
+        return envelope.isActive();
+    }
+
+    /**
+     * Renders this voice and adds it to an interleaved stereo block.
+     * @param stereo the interleaved stereo block to add to
+     * @param scratch a mono block at least {@code frames} long
+     * @param frames the number of frames to render
+     */
+    void mixInto(float[] stereo, float[] scratch, int frames) {
+        if (!envelope.isActive()) {
+            return;
+        }
+        oscillator.render(scratch, frames);
+        envelope.apply(scratch, frames);
+        final float l = gain * leftGain;
+        final float r = gain * rightGain;
+        for (int i = 0, j = 0; i < frames; i++, j += 2) {
+            stereo[j] += scratch[i] * l;
+            stereo[j + 1] += scratch[i] * r;
+        }
+    }
+}
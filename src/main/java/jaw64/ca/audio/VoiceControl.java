@@ -0,0 +1,20 @@
+package jaw64.ca.audio;
+
+import jaw64.ca.CellGroup;
+
+/**
+ * Turns each generation of a cellular automaton into control data for the
+ * voices of a {@link SonificationEngine} (starting and releasing notes,
+ * changing waveforms, panning, ...).
+ * @author jaw64
+ */
+public interface VoiceControl {
+
+    /**
+     * Updates the voices for a generation, before its audio is rendered.
+     * @param iteration the iteration of the generation
+     * @param group the cell group of the generation
+     * @param engine the engine whose voices to update
+     */
+    public void onGeneration(int iteration, CellGroup group, SonificationEngine engine);
+}
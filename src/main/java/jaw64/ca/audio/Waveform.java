@@ -0,0 +1,9 @@
+package jaw64.ca.audio;
+
+/**
+ * The waveforms an {@link Oscillator} can produce.
+ * @author jaw64
+ */
+public enum Waveform {
+    SINE, SAWTOOTH, SQUARE, TRIANGLE
+}
@@ -0,0 +1,8 @@
+/**
+ * Package for rendering cellular automata straight to PCM audio, block by
+ * block, without going through jMusic scores and instruments, and for
+ * rendering jMusic scores faster: chain objects and sample sources for the
+ * instruments in {@code jm.inst}, and in-memory, parallel score rendering.
+ * @author jaw64
+ */
+package jaw64.ca.audio;
@@ -0,0 +1,64 @@
+package jaw64.ca.event;
+
+/**
+ * Drops notes that start at the same time, on the same channel and with the
+ * same pitch as an earlier note (as happens when stages map several pitches
+ * onto one).
+ * @author jaw64
+ */
+public class DedupeStage implements EventStage {
+
+    /**
+     * Whether a (channel, pitch) pair has started at {@link #currTick}.
+     */
+    private final boolean[] started;
+
+    /**
+     * The (channel, pitch) pairs set in {@link #started}, so they can be
+     * cleared without clearing the whole table.
+     */
+    private final int[] touched;
+
+    private int numTouched;
+
+    /**
+     * The start time of the notes recorded in {@link #started}.
+     */
+    private long currTick;
+
+    /**
+     * (constructor) Creates a deduplicating stage.
+     */
+    public DedupeStage() {
+        this.started = new boolean[16 * 128];
+        this.touched = new int[16 * 128];
+        this.numTouched = 0;
+        this.currTick = Long.MIN_VALUE;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.EventStage#process(jaw64.ca.event.NoteEventBuffer)
+     */
+    @Override
+    public void process(NoteEventBuffer events) {
+        int kept = 0;
+        for (int i = 0; i < events.size(); i++) {
+            long tick = events.getTick(i);
+            if (tick != currTick) {
+                for (int j = 0; j < numTouched; j++) {
+                    started[touched[j]] = false;
+                }
+                numTouched = 0;
+                currTick = tick;
+            }
+            int key = ((events.getChannel(i) & 0xF) << 7) | (events.getPitch(i) & 0x7F);
+            if (!started[key]) {
+                started[key] = true;
+                touched[numTouched++] = key;
+                events.move(i, kept++);
+            }
+        }
+        events.truncate(kept);
+    }
+}
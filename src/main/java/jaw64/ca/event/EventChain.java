@@ -0,0 +1,161 @@
+package jaw64.ca.event;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered list of {@link EventStage}s that is built into a
+ * {@link NoteEventSink} feeding another sink. When built, every run of
+ * consecutive {@link StatelessStage}s is fused into a single pass: each event
+ * goes through the whole run before the next event is looked at, and the
+ * batch is compacted once, so a run costs one loop however many stages it
+ * holds.
+ * @author jaw64
+ */
+public class EventChain {
+
+    /**
+     * The stages, in order.
+     */
+    private final List<EventStage> stages;
+
+    /**
+     * (constructor) Creates an empty chain.
+     */
+    public EventChain() {
+        this.stages = new ArrayList<>();
+    }
+
+    /**
+     * Appends a stage to the chain.
+     * @param stage the stage to append
+     * @return this chain
+     */
+    public EventChain then(EventStage stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    /**
+     * Builds a sink which runs events through the chain before passing them
+     * on. Stateful stages keep their state in the built sink, so a chain
+     * should only be built once per stream.
+     * @param downstream the sink receiving the processed events
+     * @return the sink to feed events to
+     */
+    public NoteEventSink build(NoteEventSink downstream) {
+        List<EventStage> passes = new ArrayList<>();
+        List<StatelessStage> run = new ArrayList<>();
+        for (EventStage stage : stages) {
+            if (stage instanceof StatelessStage) {
+                run.add((StatelessStage) stage);
+                continue;
+            }
+            addRun(passes, run);
+            passes.add(stage);
+        }
+        addRun(passes, run);
+        return new ChainSink(passes.toArray(new EventStage[passes.size()]), downstream);
+    }
+
+    /**
+     * Adds a run of stateless stages as a single pass (if there are any).
+     * @param passes the passes built so far
+     * @param run the run of stateless stages (emptied afterwards)
+     */
+    private static void addRun(List<EventStage> passes, List<StatelessStage> run) {
+        if (run.size() == 1) {
+            passes.add(run.get(0));
+        }
+        else if (run.size() > 1) {
+            passes.add(new FusedStage(run.toArray(new StatelessStage[run.size()])));
+        }
+        run.clear();
+    }
+
+    /**
+     * Several stateless stages applied in a single pass.
+     * @author jaw64
+     */
+    private static final class FusedStage implements EventStage {
+
+        private final StatelessStage[] stages;
+
+        FusedStage(StatelessStage[] stages) {
+            this.stages = stages;
+        }
+
+        @Override
+        public void process(NoteEventBuffer events) {
+            int kept = 0;
+            final int size = events.size();
+            outer: for (int i = 0; i < size; i++) {
+                for (StatelessStage stage : stages) {
+                    if (!stage.apply(events, i)) {
+                        continue outer;
+                    }
+                }
+                events.move(i, kept++);
+            }
+            events.truncate(kept);
+        }
+    }
+
+    /**
+     * The sink built from a chain.
+     * @author jaw64
+     */
+    private static final class ChainSink implements NoteEventSink {
+
+        /**
+         * The passes made over each batch (fused runs and stateful stages).
+         */
+        private final EventStage[] passes;
+
+        private final NoteEventSink downstream;
+
+        ChainSink(EventStage[] passes, NoteEventSink downstream) {
+            this.passes = passes;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(NoteEventBuffer events) throws IOException {
+            processFrom(0, events);
+        }
+
+        /**
+         * Flushes each stage in order, sending what it held back through the
+         * stages after it, then closes the downstream sink.
+         */
+        @Override
+        public void close() throws IOException {
+            NoteEventBuffer held = new NoteEventBuffer();
+            for (int i = 0; i < passes.length; i++) {
+                held.clear();
+                passes[i].flush(held);
+                if (held.size() > 0) {
+                    processFrom(i + 1, held);
+                }
+            }
+            downstream.close();
+        }
+
+        /**
+         * Runs a batch through the passes from the provided one on and hands
+         * it to the downstream sink.
+         * @param first the index of the first pass to run
+         * @param events the batch
+         * @throws IOException if the downstream sink fails
+         */
+        private void processFrom(int first, NoteEventBuffer events) throws IOException {
+            for (int i = first; i < passes.length && events.size() > 0; i++) {
+                passes[i].process(events);
+            }
+            if (events.size() > 0) {
+                downstream.accept(events);
+            }
+        }
+    }
+}
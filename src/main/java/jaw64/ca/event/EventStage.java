@@ -0,0 +1,23 @@
+package jaw64.ca.event;
+
+/**
+ * A post-processing stage of a note event stream. Stages rewrite each batch
+ * in place (changing, dropping or adding events) so a chain of stages never
+ * needs intermediate collections. Stages that remember earlier events may
+ * hold some back until {@link #flush(NoteEventBuffer)}.
+ * @author jaw64
+ */
+public interface EventStage {
+
+    /**
+     * Processes a batch of events in place.
+     * @param events the events
+     */
+    public void process(NoteEventBuffer events);
+
+    /**
+     * Appends any events held back by this stage at the end of the stream.
+     * @param events the buffer to append to
+     */
+    public default void flush(NoteEventBuffer events) {}
+}
@@ -0,0 +1,213 @@
+package jaw64.ca.event;
+
+import java.util.Arrays;
+
+/**
+ * Merges consecutive notes with the same pitch, channel and velocity into a
+ * single longer note when each starts exactly where the previous one ends
+ * (so a run of repeated sixteenth notes becomes one held note). Each
+ * (channel, pitch) pair is tracked separately, so other voices sounding in
+ * between do not break a run; a note with a different velocity starts a new
+ * note instead, keeping its accent. Notes are passed on in the order they
+ * start, so a note is held back until the stream has moved past its end, and
+ * so is every note starting after it.
+ * @author jaw64
+ */
+public class MergeStage implements EventStage {
+
+    /**
+     * The capacity the held-back notes start with.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The sequence number of the note each (channel, pitch) pair can still
+     * extend, or -1 if it has none.
+     */
+    private final long[] open;
+
+    /**
+     * The held-back notes, in a ring indexed by sequence number (masked).
+     */
+    private long[] heldTicks;
+
+    private int[] heldDurations;
+
+    private int[] heldPitches;
+
+    private int[] heldVelocities;
+
+    private int[] heldChannels;
+
+    /**
+     * The sequence numbers of the first held-back note and of the next note
+     * to be held back.
+     */
+    private long first;
+
+    private long next;
+
+    /**
+     * (constructor) Creates a merging stage.
+     */
+    public MergeStage() {
+        this.open = new long[16 * 128];
+        Arrays.fill(open, -1L);
+        this.heldTicks = new long[INITIAL_CAPACITY];
+        this.heldDurations = new int[INITIAL_CAPACITY];
+        this.heldPitches = new int[INITIAL_CAPACITY];
+        this.heldVelocities = new int[INITIAL_CAPACITY];
+        this.heldChannels = new int[INITIAL_CAPACITY];
+        this.first = 0;
+        this.next = 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.EventStage#process(jaw64.ca.event.NoteEventBuffer)
+     */
+    @Override
+    public void process(NoteEventBuffer events) {
+        final int size = events.size();
+        if (size == 0) {
+            return;
+        }
+        final long lastTick = events.getTick(size - 1);
+        int out = 0;
+        for (int i = 0; i < size; i++) {
+            long tick = events.getTick(i);
+            int duration = events.getDuration(i);
+            int pitch = events.getPitch(i);
+            int velocity = events.getVelocity(i);
+            int channel = events.getChannel(i);
+            int key = key(channel, pitch);
+            long seq = open[key];
+            int slot = (int) seq & (heldTicks.length - 1);
+            if (seq >= 0 && velocity == heldVelocities[slot]
+                    && tick == heldTicks[slot] + heldDurations[slot]) {
+                heldDurations[slot] += duration;
+            }
+            else {
+                hold(tick, duration, pitch, velocity, channel);
+                open[key] = next - 1;
+            }
+            // Once note i has been read its index is free, so notes written
+            // at indices up to i never overwrite one that has not been read.
+            while (out <= i && isReleasable(tick)) {
+                release(events, out++);
+            }
+        }
+        events.truncate(out);
+        while (isReleasable(lastTick)) {
+            events.add(0, 0, 0, 0, 0);
+            release(events, events.size() - 1);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.EventStage#flush(jaw64.ca.event.NoteEventBuffer)
+     */
+    @Override
+    public void flush(NoteEventBuffer events) {
+        while (first < next) {
+            events.add(0, 0, 0, 0, 0);
+            release(events, events.size() - 1);
+        }
+    }
+
+    /**
+     * Gets the index of a (channel, pitch) pair in {@link #open}.
+     * @param channel the MIDI channel
+     * @param pitch the MIDI note number
+     * @return the index
+     */
+    private static int key(int channel, int pitch) {
+        return ((channel & 0xF) << 7) | (pitch & 0x7F);
+    }
+
+    /**
+     * Tells whether the first held-back note can be passed on: it can unless
+     * a later note could still extend it, that is unless it is the latest
+     * note for its pitch and channel and does not end before the provided
+     * time.
+     * @param tick the start time of the latest note read
+     * @return true if there is a held-back note which cannot change
+     */
+    private boolean isReleasable(long tick) {
+        if (first == next) {
+            return false;
+        }
+        int slot = (int) first & (heldTicks.length - 1);
+        return open[key(heldChannels[slot], heldPitches[slot])] != first
+                || heldTicks[slot] + heldDurations[slot] < tick;
+    }
+
+    /**
+     * Writes the first held-back note over an event of the batch and stops
+     * holding it.
+     * @param events the batch
+     * @param index the index to write at
+     */
+    private void release(NoteEventBuffer events, int index) {
+        int slot = (int) first & (heldTicks.length - 1);
+        events.setTick(index, heldTicks[slot]);
+        events.setDuration(index, heldDurations[slot]);
+        events.setPitch(index, heldPitches[slot]);
+        events.setVelocity(index, heldVelocities[slot]);
+        events.setChannel(index, heldChannels[slot]);
+        int key = key(heldChannels[slot], heldPitches[slot]);
+        if (open[key] == first) {
+            open[key] = -1;
+        }
+        first++;
+    }
+
+    /**
+     * Holds back a note (growing the ring if needed).
+     * @param tick the start time of the note
+     * @param duration the duration of the note
+     * @param pitch the MIDI note number
+     * @param velocity the velocity
+     * @param channel the MIDI channel
+     */
+    private void hold(long tick, int duration, int pitch, int velocity, int channel) {
+        if (next - first == heldTicks.length) {
+            grow();
+        }
+        int slot = (int) next & (heldTicks.length - 1);
+        heldTicks[slot] = tick;
+        heldDurations[slot] = duration;
+        heldPitches[slot] = pitch;
+        heldVelocities[slot] = velocity;
+        heldChannels[slot] = channel;
+        next++;
+    }
+
+    /**
+     * Doubles the capacity of the ring, keeping every held-back note at the
+     * slot its sequence number maps to.
+     */
+    private void grow() {
+        int capacity = heldTicks.length * 2;
+        long[] ticks = new long[capacity];
+        int[] durations = new int[capacity];
+        int[] pitches = new int[capacity];
+        int[] velocities = new int[capacity];
+        int[] channels = new int[capacity];
+        for (long seq = first; seq < next; seq++) {
+            int from = (int) seq & (heldTicks.length - 1);
+            int to = (int) seq & (capacity - 1);
+            ticks[to] = heldTicks[from];
+            durations[to] = heldDurations[from];
+            pitches[to] = heldPitches[from];
+            velocities[to] = heldVelocities[from];
+            channels[to] = heldChannels[from];
+        }
+        heldTicks = ticks;
+        heldDurations = durations;
+        heldPitches = pitches;
+        heldVelocities = velocities;
+        heldChannels = channels;
+    }
+}
@@ -0,0 +1,160 @@
+package jaw64.ca.event;
+
+import java.io.IOException;
+import java.util.Arrays;
+import jaw64.ca.io.MidiFileWriter;
+
+/**
+ * Writes a note event stream to the current track of a {@link MidiFileWriter}.
+ * Each note sounds for a fraction of its duration; pending note offs are kept
+ * in a small heap and written as soon as the stream passes them, so
+ * overlapping notes are supported.
+ * @author jaw64
+ */
+public class MidiFileSink implements NoteEventSink {
+
+    /**
+     * The writer of the MIDI file.
+     */
+    private final MidiFileWriter writer;
+
+    /**
+     * The fraction of its duration each note sounds for.
+     */
+    private final double lengthRatio;
+
+    /**
+     * Min-heap of pending note off times.
+     */
+    private long[] offTicks;
+
+    /**
+     * The (channel, pitch) of each pending note off.
+     */
+    private int[] offKeys;
+
+    private int numOffs;
+
+    /**
+     * The time of the last event written (in ticks).
+     */
+    private long lastTick;
+
+    /**
+     * (constructor) Creates a sink writing to a MIDI file track.
+     * @param writer the writer (with a track begun)
+     * @param lengthRatio the fraction of its duration each note sounds for
+     */
+    public MidiFileSink(MidiFileWriter writer, double lengthRatio) {
+        this.writer = writer;
+        this.lengthRatio = lengthRatio;
+        this.offTicks = new long[16];
+        this.offKeys = new int[16];
+        this.numOffs = 0;
+        this.lastTick = 0;
+    }
+
+    /**
+     * Gets the time of the last event written (after {@link #close()}, the end
+     * of the last note).
+     * @return the time (in ticks)
+     */
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.NoteEventSink#accept(jaw64.ca.event.NoteEventBuffer)
+     */
+    @Override
+    public void accept(NoteEventBuffer events) throws IOException {
+        for (int i = 0; i < events.size(); i++) {
+            int pitch = events.getPitch(i);
+            if (pitch < 0 || pitch > 127) {
+                continue;
+            }
+            long tick = events.getTick(i);
+            writeOffsUntil(tick);
+            int channel = events.getChannel(i) & 0xF;
+            writer.noteOn(tick, channel, pitch, events.getVelocity(i));
+            lastTick = tick;
+            long length = Math.max(1, Math.round(events.getDuration(i) * lengthRatio));
+            pushOff(tick + length, (channel << 7) | pitch);
+        }
+    }
+
+    /**
+     * Writes every pending note off.
+     */
+    @Override
+    public void close() throws IOException {
+        writeOffsUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes the pending note offs due at or before the provided time.
+     * @param tick the time (in ticks)
+     * @throws IOException if a note off cannot be written
+     */
+    private void writeOffsUntil(long tick) throws IOException {
+        while (numOffs > 0 && offTicks[0] <= tick) {
+            long offTick = offTicks[0];
+            int key = offKeys[0];
+            popOff();
+            writer.noteOff(offTick, key >> 7, key & 0x7F);
+            lastTick = offTick;
+        }
+    }
+
+    /**
+     * Adds a pending note off to the heap.
+     * @param tick the time of the note off
+     * @param key the (channel, pitch) of the note off
+     */
+    private void pushOff(long tick, int key) {
+        if (numOffs == offTicks.length) {
+            offTicks = Arrays.copyOf(offTicks, numOffs * 2);
+            offKeys = Arrays.copyOf(offKeys, numOffs * 2);
+        }
+        int i = numOffs++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (offTicks[parent] <= tick) {
+                break;
+            }
+            offTicks[i] = offTicks[parent];
+            offKeys[i] = offKeys[parent];
+            i = parent;
+        }
+        offTicks[i] = tick;
+        offKeys[i] = key;
+    }
+
+    /**
+     * Removes the earliest pending note off from the heap.
+     */
+    private void popOff() {
+        numOffs--;
+        long tick = offTicks[numOffs];
+        int key = offKeys[numOffs];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= numOffs) {
+                break;
+            }
+            if (child + 1 < numOffs && offTicks[child + 1] < offTicks[child]) {
+                child++;
+            }
+            if (offTicks[child] >= tick) {
+                break;
+            }
+            offTicks[i] = offTicks[child];
+            offKeys[i] = offKeys[child];
+            i = child;
+        }
+        offTicks[i] = tick;
+        offKeys[i] = key;
+    }
+}
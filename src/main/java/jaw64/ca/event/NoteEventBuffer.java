@@ -0,0 +1,215 @@
+package jaw64.ca.event;
+
+import java.util.Arrays;
+
+/**
+ * A reusable batch of note events stored as parallel arrays (one per
+ * property) instead of one object per event, so streams of any length can be
+ * processed without allocating. Times and durations are in MIDI ticks.
+ * @author jaw64
+ */
+public class NoteEventBuffer {
+
+    /**
+     * The default number of events a buffer holds before growing.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private long[] ticks;
+
+    private int[] durations;
+
+    private int[] pitches;
+
+    private int[] velocities;
+
+    private int[] channels;
+
+    /**
+     * The number of events in the buffer.
+     */
+    private int size;
+
+    /**
+     * (constructor) Creates an empty buffer with the default capacity.
+     */
+    public NoteEventBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * (constructor) Creates an empty buffer.
+     * @param capacity the number of events the buffer holds before growing
+     */
+    public NoteEventBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.ticks = new long[capacity];
+        this.durations = new int[capacity];
+        this.pitches = new int[capacity];
+        this.velocities = new int[capacity];
+        this.channels = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of events in the buffer.
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether the buffer has reached its capacity (producers usually
+     * pass a full buffer on before adding more).
+     * @return true if the buffer is full
+     */
+    public boolean isFull() {
+        return size == ticks.length;
+    }
+
+    /**
+     * Removes every event.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes every event from the provided index on.
+     * @param newSize the number of events to keep
+     */
+    public void truncate(int newSize) {
+        size = Math.min(size, Math.max(0, newSize));
+    }
+
+    /**
+     * Appends an event (growing the buffer if needed).
+     * @param tick the start time of the note
+     * @param duration the duration of the note
+     * @param pitch the MIDI note number
+     * @param velocity the velocity
+     * @param channel the MIDI channel
+     */
+    public void add(long tick, int duration, int pitch, int velocity, int channel) {
+        if (size == ticks.length) {
+            int capacity = ticks.length * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            pitches = Arrays.copyOf(pitches, capacity);
+            velocities = Arrays.copyOf(velocities, capacity);
+            channels = Arrays.copyOf(channels, capacity);
+        }
+        ticks[size] = tick;
+        durations[size] = duration;
+        pitches[size] = pitch;
+        velocities[size] = velocity;
+        channels[size] = channel;
+        size++;
+    }
+
+    /**
+     * Copies an event over another one.
+     * @param from the index of the event to copy
+     * @param to the index of the event to overwrite
+     */
+    public void move(int from, int to) {
+        if (from != to) {
+            ticks[to] = ticks[from];
+            durations[to] = durations[from];
+            pitches[to] = pitches[from];
+            velocities[to] = velocities[from];
+            channels[to] = channels[from];
+        }
+    }
+
+    /**
+     * Gets the start time of an event.
+     * @param index the index of the event
+     * @return the start time (in ticks)
+     */
+    public long getTick(int index) {
+        return ticks[index];
+    }
+
+    /**
+     * Sets the start time of an event.
+     * @param index the index of the event
+     * @param tick the start time (in ticks)
+     */
+    public void setTick(int index, long tick) {
+        ticks[index] = tick;
+    }
+
+    /**
+     * Gets the duration of an event.
+     * @param index the index of the event
+     * @return the duration (in ticks)
+     */
+    public int getDuration(int index) {
+        return durations[index];
+    }
+
+    /**
+     * Sets the duration of an event.
+     * @param index the index of the event
+     * @param duration the duration (in ticks)
+     */
+    public void setDuration(int index, int duration) {
+        durations[index] = duration;
+    }
+
+    /**
+     * Gets the MIDI note number of an event.
+     * @param index the index of the event
+     * @return the note number
+     */
+    public int getPitch(int index) {
+        return pitches[index];
+    }
+
+    /**
+     * Sets the MIDI note number of an event.
+     * @param index the index of the event
+     * @param pitch the note number
+     */
+    public void setPitch(int index, int pitch) {
+        pitches[index] = pitch;
+    }
+
+    /**
+     * Gets the velocity of an event.
+     * @param index the index of the event
+     * @return the velocity
+     */
+    public int getVelocity(int index) {
+        return velocities[index];
+    }
+
+    /**
+     * Sets the velocity of an event.
+     * @param index the index of the event
+     * @param velocity the velocity
+     */
+    public void setVelocity(int index, int velocity) {
+        velocities[index] = velocity;
+    }
+
+    /**
+     * Gets the MIDI channel of an event.
+     * @param index the index of the event
+     * @return the channel
+     */
+    public int getChannel(int index) {
+        return channels[index];
+    }
+
+    /**
+     * Sets the MIDI channel of an event.
+     * @param index the index of the event
+     * @param channel the channel
+     */
+    public void setChannel(int index, int channel) {
+        channels[index] = channel;
+    }
+}
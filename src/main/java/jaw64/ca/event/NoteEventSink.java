@@ -0,0 +1,25 @@
+package jaw64.ca.event;
+
+import java.io.IOException;
+
+/**
+ * Receives a stream of note events, one batch at a time. Events arrive in
+ * order of non-decreasing start time.
+ * @author jaw64
+ */
+public interface NoteEventSink {
+
+    /**
+     * Receives the next batch of events. The batch is only valid during the
+     * call (its owner reuses it afterwards).
+     * @param events the events
+     * @throws IOException if the events cannot be written
+     */
+    public void accept(NoteEventBuffer events) throws IOException;
+
+    /**
+     * Tells the sink that the stream has ended.
+     * @throws IOException if the sink cannot be closed
+     */
+    public default void close() throws IOException {}
+}
@@ -0,0 +1,71 @@
+package jaw64.ca.event;
+
+/**
+ * Moves every note to the nearest note of a scale (ties go down), using a
+ * table of all 128 MIDI notes computed when the stage is created.
+ * @author jaw64
+ */
+public class ScaleQuantizeStage implements StatelessStage {
+
+    /**
+     * The major scale (as semitones above its root).
+     */
+    public static final int[] MAJOR = { 0, 2, 4, 5, 7, 9, 11 };
+
+    /**
+     * The natural minor scale (as semitones above its root).
+     */
+    public static final int[] MINOR = { 0, 2, 3, 5, 7, 8, 10 };
+
+    /**
+     * The major pentatonic scale (as semitones above its root).
+     */
+    public static final int[] PENTATONIC = { 0, 2, 4, 7, 9 };
+
+    /**
+     * The quantized version of each MIDI note.
+     */
+    private final int[] quantized;
+
+    /**
+     * (constructor) Creates a scale-quantizing stage.
+     * @param root the pitch class of the scale's root (0 for C, 1 for C#, ...)
+     * @param degrees the notes of the scale as semitones above the root (0-11)
+     */
+    public ScaleQuantizeStage(int root, int... degrees) {
+        if (degrees.length == 0) {
+            throw new IllegalArgumentException("Scale must have at least one note.");
+        }
+        boolean[] inScale = new boolean[12];
+        for (int d : degrees) {
+            inScale[Math.floorMod(root + d, 12)] = true;
+        }
+        this.quantized = new int[128];
+        for (int pitch = 0; pitch < 128; pitch++) {
+            for (int distance = 0; distance < 12; distance++) {
+                if (inScale[(pitch - distance + 120) % 12] && pitch - distance >= 0) {
+                    quantized[pitch] = pitch - distance;
+                    break;
+                }
+                if (inScale[(pitch + distance) % 12] && pitch + distance <= 127) {
+                    quantized[pitch] = pitch + distance;
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.StatelessStage#apply(jaw64.ca.event.NoteEventBuffer, int)
+     */
+    @Override
+    public boolean apply(NoteEventBuffer events, int index) {
+        int pitch = events.getPitch(index);
+        if (pitch < 0 || pitch > 127) {
+            return false;
+        }
+        events.setPitch(index, quantized[pitch]);
+        return true;
+    }
+}
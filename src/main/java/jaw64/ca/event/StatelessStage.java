@@ -0,0 +1,33 @@
+package jaw64.ca.event;
+
+/**
+ * A stage that looks at each event on its own. Consecutive stateless stages
+ * of an {@link EventChain} are fused, so a run of them costs a single pass
+ * over each batch no matter how many stages it holds.
+ * @author jaw64
+ */
+public interface StatelessStage extends EventStage {
+
+    /**
+     * Processes a single event in place.
+     * @param events the batch holding the event
+     * @param index the index of the event within the batch
+     * @return true to keep the event, false to drop it
+     */
+    public boolean apply(NoteEventBuffer events, int index);
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.EventStage#process(jaw64.ca.event.NoteEventBuffer)
+     */
+    @Override
+    public default void process(NoteEventBuffer events) {
+        int kept = 0;
+        for (int i = 0; i < events.size(); i++) {
+            if (apply(events, i)) {
+                events.move(i, kept++);
+            }
+        }
+        events.truncate(kept);
+    }
+}
@@ -0,0 +1,33 @@
+package jaw64.ca.event;
+
+/**
+ * Transposes every note by a number of semitones, dropping notes pushed
+ * outside the MIDI note range (0-127).
+ * @author jaw64
+ */
+public class TransposeStage implements StatelessStage {
+
+    /**
+     * The number of semitones to transpose by.
+     */
+    private final int semitones;
+
+    /**
+     * (constructor) Creates a transposing stage.
+     * @param semitones the number of semitones to transpose by (negative to go down)
+     */
+    public TransposeStage(int semitones) {
+        this.semitones = semitones;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.StatelessStage#apply(jaw64.ca.event.NoteEventBuffer, int)
+     */
+    @Override
+    public boolean apply(NoteEventBuffer events, int index) {
+        int pitch = events.getPitch(index) + semitones;
+        events.setPitch(index, pitch);
+        return pitch >= 0 && pitch <= 127;
+    }
+}
@@ -0,0 +1,49 @@
+package jaw64.ca.event;
+
+import java.util.Arrays;
+
+/**
+ * Maps every note's velocity through a table of all 128 velocities.
+ * @author jaw64
+ */
+public class VelocityMapStage implements StatelessStage {
+
+    /**
+     * The new velocity for each velocity.
+     */
+    private final int[] table;
+
+    /**
+     * (constructor) Creates a stage mapping velocities through a table.
+     * @param table the new velocity for each of the 128 velocities
+     */
+    public VelocityMapStage(int[] table) {
+        if (table.length != 128) {
+            throw new IllegalArgumentException("Velocity tables must have 128 entries.");
+        }
+        this.table = Arrays.copyOf(table, table.length);
+    }
+
+    /**
+     * (constructor) Creates a stage scaling and offsetting velocities (the
+     * results are clamped to 1-127, so notes are never silenced).
+     * @param scale the factor to multiply velocities by
+     * @param offset the amount to add to velocities after scaling
+     */
+    public VelocityMapStage(double scale, int offset) {
+        this.table = new int[128];
+        for (int v = 0; v < 128; v++) {
+            table[v] = (int) Math.max(1, Math.min(127, Math.round(v * scale + offset)));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.event.StatelessStage#apply(jaw64.ca.event.NoteEventBuffer, int)
+     */
+    @Override
+    public boolean apply(NoteEventBuffer events, int index) {
+        events.setVelocity(index, table[Math.max(0, Math.min(127, events.getVelocity(index)))]);
+        return true;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Package for streams of musical events produced by interpreters and the
+ * stages that post-process them (transposing, quantizing, ...).
+ * @author jaw64
+ */
+package jaw64.ca.event;
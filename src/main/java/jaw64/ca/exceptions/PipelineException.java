@@ -0,0 +1,20 @@
+package jaw64.ca.exceptions;
+
+/**
+ * Thrown when a consumer (or the producer) of a generation pipeline fails.
+ * The original failure is available as the cause.
+ * @author jaw64
+ */
+public class PipelineException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * (constructor) Creates a new pipeline exception.
+     * @param message the detail message
+     * @param cause the failure that stopped the pipeline
+     */
+    public PipelineException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,159 @@
+package jaw64.ca.interpreter;
+
+import java.awt.image.IndexColorModel;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellGroupDimensions;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.io.GifWriter;
+
+/**
+ * Interpreter for 2D cellular automata that outputs successive generations
+ * as the frames of an animated GIF. Frames are encoded as they are produced
+ * (only the region that changed since the previous frame), so memory use
+ * does not depend on the number of frames. Cell values are mapped onto the
+ * colors of a palette (see {@link PaletteImageInterp} for some palettes).
+ * @author jaw64
+ */
+public class AnimatedGifInterp implements IncrementalInterpreter {
+
+    /**
+     * The path of the output animation generated.
+     */
+    private final String gifPath;
+
+    /**
+     * The number of generations (frames) to generate.
+     */
+    private final int numGenerations;
+
+    /**
+     * The colors that cell values are mapped onto.
+     */
+    private final IndexColorModel palette;
+
+    /**
+     * The delay between frames (in milliseconds).
+     */
+    private final int frameDelay;
+
+    /**
+     * The animation being written (only exists while interpreting).
+     */
+    private GifWriter writer;
+
+    /**
+     * Scratch space for the cell values of a generation.
+     */
+    private int[] values;
+
+    /**
+     * Scratch space for the palette indices of a generation.
+     */
+    private byte[] frame;
+
+    /**
+     * The time interpreting began (in nanoseconds).
+     */
+    private long startTime;
+
+    /**
+     * The number of frames encoded per second during the last interpretation.
+     */
+    private double framesPerSecond;
+
+    /**
+     * (constructor) Creates a new animation interpreter for 2D cellular automata.
+     * @param gifPath the path of the output animation
+     * @param numGenerations the number of generations (frames)
+     * @param palette the colors to map cell values onto (at most 256)
+     * @param frameDelay the delay between frames (in milliseconds)
+     */
+    public AnimatedGifInterp(String gifPath, int numGenerations, IndexColorModel palette,
+            int frameDelay) {
+        this.gifPath = gifPath;
+        this.numGenerations = Math.max(1, numGenerations);
+        this.palette = palette;
+        this.frameDelay = Math.max(0, frameDelay);
+        this.framesPerSecond = 0.0;
+    }
+
+    /**
+     * Gets the number of frames encoded per second (including stepping the
+     * cellular automaton) during the last interpretation.
+     * @return the frame throughput
+     */
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        CellGroupDimensions dims = ca.getDimensions();
+        if (dims.getNumDimensions() != 2) {
+            throw new IllegalArgumentException("Cellular automaton must be 2-dimensional.");
+        }
+        int height = dims.getDimensionSize(0);
+        int width = dims.getDimensionSize(1);
+        int[] rgbs = new int[palette.getMapSize()];
+        palette.getRGBs(rgbs);
+        for (int i = 0; i < rgbs.length; i++) {
+            rgbs[i] &= 0xFFFFFF;
+        }
+        values = new int[width * height];
+        frame = new byte[width * height];
+        startTime = System.nanoTime();
+        try {
+            writer = new GifWriter(new BufferedOutputStream(new FileOutputStream(gifPath)),
+                    width, height, rgbs, (frameDelay + 5) / 10, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        final int numColors = palette.getMapSize();
+        group.copyValues(values);
+        for (int i = 0; i < values.length; i++) {
+            int index = values[i] % numColors;
+            frame[i] = (byte) (index < 0 ? index + numColors : index);
+        }
+        try {
+            writer.writeFrame(frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        try {
+            writer.close();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            framesPerSecond = seconds > 0.0 ? writer.getFramesWritten() / seconds : 0.0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer = null;
+            values = null;
+            frame = null;
+        }
+    }
+}
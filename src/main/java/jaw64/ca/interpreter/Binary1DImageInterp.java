@@ -1,19 +1,23 @@
 package jaw64.ca.interpreter;
 
 import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
 import jaw64.ca.CellGroup;
 import jaw64.ca.CellularAutomaton;
+import jaw64.ca.io.PngWriter;
 
 /**
  * Interpreter for Wolfram's "elementary" binary 1D cellular automata
- * that outputs the CA as a black and white image (by default).
+ * that outputs the CA as a black and white image (by default). Each
+ * generation is streamed to the PNG file as it arrives, so the image
+ * size is not limited by the heap.
  * @author jaw64
  */
-public class Binary1DImageInterp implements Interpreter {
+public class Binary1DImageInterp implements IncrementalInterpreter {
 
     /**
      * The path of the output image generated.
@@ -35,6 +39,26 @@ public class Binary1DImageInterp implements Interpreter {
      */
     private Color oneColor;
 
+    /**
+     * The pool used to compress the image in parallel (null to compress serially).
+     */
+    private ExecutorService encoderPool;
+
+    /**
+     * The image being written (only exists while interpreting).
+     */
+    private PngWriter writer;
+
+    /**
+     * Scratch space for the cell values of a generation.
+     */
+    private int[] values;
+
+    /**
+     * Scratch space for a generation packed into a row of 1-bit pixels.
+     */
+    private byte[] row;
+
     /**
      * (constructor) Creates a new interpreter for binary cellular automata.
      * @param imgPath the path of the output image
@@ -78,37 +102,75 @@ public class Binary1DImageInterp implements Interpreter {
     public void setOneColor(Color c) {
         oneColor = c;
     }
+
+    /**
+     * Gets the pool used to compress the image in parallel.
+     * @return the pool, or null if the image is compressed serially
+     */
+    public ExecutorService getEncoderPool() {
+        return encoderPool;
+    }
+
+    /**
+     * Sets the pool to use to compress the image in parallel (worth it for
+     * large images, where compression dominates the render time).
+     * @param pool the pool to use, or null to compress serially
+     */
+    public void setEncoderPool(ExecutorService pool) {
+        encoderPool = pool;
+    }
     
     /*
      * (non-Javadoc)
-     * @see jaw64.ca.interpreter.Interpreter#interpret(jaw64.ca.CellularAutomaton)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
      */
     @Override
-    public void interpret(CellularAutomaton ca) {
+    public void begin(CellularAutomaton ca) {
         if (ca.getDimensions().getNumDimensions() != 1) {
             throw new IllegalArgumentException("Cellular automaton must be 1-dimensional.");
         }
         int groupWidth = ca.getDimensions().getDimensionSize(0);
-        BufferedImage image;
-        if (zeroColor.equals(Color.WHITE) && oneColor.equals(Color.BLACK)) {
-            image = new BufferedImage(groupWidth, numGenerations, BufferedImage.TYPE_BYTE_BINARY);
-        }
-        else {
-            image = new BufferedImage(groupWidth, numGenerations, BufferedImage.TYPE_INT_RGB);
+        int[] palette = { zeroColor.getRGB() & 0xFFFFFF, oneColor.getRGB() & 0xFFFFFF };
+        values = new int[groupWidth];
+        row = new byte[PngWriter.getBytesPerRow(groupWidth, 1)];
+        try {
+            writer = new PngWriter(new BufferedOutputStream(new FileOutputStream(imgPath)),
+                    groupWidth, numGenerations, 1, palette, encoderPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        for (int r = 0; r < numGenerations; r++) {
-            CellGroup iter = ca.getIteration(r);
-            for (int c = 0; c < iter.getNumElements(); c++) {
-                int ival = iter.getValue(c) % 2;
-                image.setRGB(c, r, ival == 0 ? zeroColor.getRGB() : oneColor.getRGB());
-            }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        group.copyValues(values);
+        PngWriter.packRow(values, values.length, 1, row); // keeps value % 2
+        try {
+            writer.writeRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        File output = new File(imgPath);
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
         try {
-            ImageIO.write(image, "png", output);
+            writer.close();
         } catch (IOException e) {
-            e.printStackTrace();
-            System.exit(1);
+            throw new UncheckedIOException(e);
+        } finally {
+            writer = null;
+            values = null;
+            row = null;
         }
     }
 
@@ -0,0 +1,139 @@
+package jaw64.ca.interpreter;
+
+import jaw64.ca.CellGroup;
+
+/**
+ * Describes how a run of consecutive cells is split into little-endian bit
+ * fields (for example 3 bits selecting a song, then 3 bits selecting a
+ * duration). Fields may also sit anywhere within the run. The run is read with a single {@link CellGroup#getBits(int, int)}
+ * call and each field is then extracted with a precomputed shift and mask, so
+ * decoding a generation allocates nothing.
+ * @author jaw64
+ */
+public final class BitFieldLayout {
+
+    /**
+     * The position of the lowest bit of each field within the run.
+     */
+    private final int[] shifts;
+
+    /**
+     * The mask of each field (applied after shifting).
+     */
+    private final int[] masks;
+
+    /**
+     * The total number of cells spanned by the fields.
+     */
+    private final int totalWidth;
+
+    /**
+     * (constructor) Creates a layout of consecutive fields, the first field
+     * starting at the first cell of the run.
+     * @param widths the width of each field in bits (1-31, at most 64 in total)
+     */
+    public BitFieldLayout(int... widths) {
+        this(consecutiveOffsets(widths), widths);
+    }
+
+    /**
+     * (constructor) Creates a layout of fields at any offsets within the run
+     * (fields may leave gaps or overlap).
+     * @param offsets the offset of each field's first cell from the first cell of the run
+     * @param widths the width of each field in bits (1-31)
+     */
+    public BitFieldLayout(int[] offsets, int[] widths) {
+        if (offsets.length != widths.length) {
+            throw new IllegalArgumentException("Every bit field needs an offset and a width.");
+        }
+        this.shifts = new int[widths.length];
+        this.masks = new int[widths.length];
+        int end = 0;
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] < 1 || widths[i] > Integer.SIZE - 1) {
+                throw new IllegalArgumentException("Bit fields must be between 1 and 31 bits wide.");
+            }
+            if (offsets[i] < 0) {
+                throw new IllegalArgumentException("Bit field offsets cannot be negative.");
+            }
+            shifts[i] = offsets[i];
+            masks[i] = (1 << widths[i]) - 1;
+            end = Math.max(end, offsets[i] + widths[i]);
+        }
+        if (end > Long.SIZE) {
+            throw new IllegalArgumentException("Bit fields cannot span more than 64 cells.");
+        }
+        this.totalWidth = end;
+    }
+
+    /**
+     * Gets the offsets of fields laid out one after the other.
+     * @param widths the width of each field
+     * @return the offset of each field
+     */
+    private static int[] consecutiveOffsets(int[] widths) {
+        int[] offsets = new int[widths.length];
+        for (int i = 1; i < widths.length; i++) {
+            offsets[i] = offsets[i - 1] + widths[i - 1];
+        }
+        return offsets;
+    }
+
+    /**
+     * Gets the number of fields in this layout.
+     * @return the number of fields
+     */
+    public int getNumFields() {
+        return shifts.length;
+    }
+
+    /**
+     * Gets the total number of cells spanned by the fields.
+     * @return the total width (in bits)
+     */
+    public int getTotalWidth() {
+        return totalWidth;
+    }
+
+    /**
+     * Gets the width of a field.
+     * @param field the index of the field
+     * @return the width of the field (in bits)
+     */
+    public int getFieldWidth(int field) {
+        return Integer.bitCount(masks[field]);
+    }
+
+    /**
+     * Reads the cells spanned by this layout.
+     * @param cg the cell group to read from
+     * @param fromIndex the row-major (1D) index of the first cell
+     * @return the packed bits of every field
+     */
+    public long read(CellGroup cg, int fromIndex) {
+        return cg.getBits(fromIndex, totalWidth);
+    }
+
+    /**
+     * Extracts a field from bits read by {@link #read(CellGroup, int)}.
+     * @param bits the packed bits
+     * @param field the index of the field
+     * @return the value of the field
+     */
+    public int getField(long bits, int field) {
+        return (int) (bits >>> shifts[field]) & masks[field];
+    }
+
+    /**
+     * Reads the cells spanned by this layout and extracts every field.
+     * @param cg the cell group to read from
+     * @param fromIndex the row-major (1D) index of the first cell
+     * @param dest the array to store the value of each field in
+     */
+    public void decode(CellGroup cg, int fromIndex, int[] dest) {
+        long bits = read(cg, fromIndex);
+        for (int i = 0; i < shifts.length; i++) {
+            dest[i] = (int) (bits >>> shifts[i]) & masks[i];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package jaw64.ca.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.pipeline.GenerationConsumer;
+
+/**
+ * Interpreter that walks the generations of a cellular automaton once and
+ * dispatches each generation to several registered interpreters (or any other
+ * generation consumers), so running N interpreters costs a single simulation
+ * plus the interpreters themselves.
+ * @author jaw64
+ */
+public class FanOutInterpreter implements IncrementalInterpreter {
+
+    /**
+     * The registered interpreters, in the order they were added.
+     */
+    private final List<GenerationConsumer> interpreters;
+
+    /**
+     * Whether each registered interpreter still wants generations.
+     */
+    private boolean[] active;
+
+    /**
+     * The number of registered interpreters that still want generations.
+     */
+    private int numActive;
+
+    /**
+     * (constructor) Creates a fan-out interpreter for the provided interpreters.
+     * @param interpreters the interpreters to dispatch generations to
+     */
+    public FanOutInterpreter(GenerationConsumer... interpreters) {
+        this.interpreters = new ArrayList<>(Arrays.asList(interpreters));
+        this.active = new boolean[0];
+        this.numActive = 0;
+    }
+
+    /**
+     * Registers another interpreter to dispatch generations to.
+     * @param interpreter the interpreter to add
+     */
+    public void addInterpreter(GenerationConsumer interpreter) {
+        interpreters.add(interpreter);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        active = new boolean[interpreters.size()];
+        Arrays.fill(active, true);
+        numActive = active.length;
+        for (GenerationConsumer interp : interpreters) {
+            interp.begin(ca);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        for (int i = 0; i < active.length; i++) {
+            if (active[i] && !interpreters.get(i).onGeneration(iteration, group)) {
+                active[i] = false;
+                numActive--;
+            }
+        }
+        return numActive > 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        for (GenerationConsumer interp : interpreters) {
+            interp.end();
+        }
+    }
+}
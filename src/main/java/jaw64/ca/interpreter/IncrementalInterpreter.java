@@ -0,0 +1,31 @@
+package jaw64.ca.interpreter;
+
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.pipeline.GenerationConsumer;
+
+/**
+ * An interpreter that is fed one generation at a time instead of driving the
+ * cellular automaton itself, so it can run inside other drivers (such as a
+ * {@link FanOutInterpreter} or a {@link jaw64.ca.pipeline.GenerationPipeline}).
+ * Interpreters are called with {@link #begin(CellularAutomaton)}, then
+ * {@link #onGeneration(int, jaw64.ca.CellGroup)} for generations 0, 1, 2, ...
+ * until it returns false, then {@link #end()}.
+ * @author jaw64
+ */
+public interface IncrementalInterpreter extends Interpreter, GenerationConsumer {
+
+    /**
+     * Interprets a cellular automaton by feeding it its own generations on
+     * the calling thread.
+     * @param ca the cellular automata.
+     */
+    @Override
+    public default void interpret(CellularAutomaton ca) {
+        begin(ca);
+        int iteration = 0;
+        while (onGeneration(iteration, ca.getIteration(iteration))) {
+            iteration++;
+        }
+        end();
+    }
+}
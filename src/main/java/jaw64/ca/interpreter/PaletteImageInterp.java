@@ -0,0 +1,294 @@
+package jaw64.ca.interpreter;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellGroupDimensions;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.io.PngWriter;
+
+/**
+ * Interpreter for k-state cellular automata (such as those generated by
+ * {@link jaw64.ca.rules.Additive1DRule}) that outputs the CA as an indexed
+ * color image, one row per generation. Cell values are mapped onto the
+ * colors of a palette (wrapping around when there are more values than
+ * colors). 1D automata are drawn whole; 2D automata are drawn as a time
+ * slice through one of their rows.
+ * @author jaw64
+ */
+public class PaletteImageInterp implements IncrementalInterpreter {
+
+    /**
+     * The path of the output image generated.
+     */
+    private final String imgPath;
+
+    /**
+     * The number of the generations to generate given a cellular automata.
+     */
+    private final int numGenerations;
+
+    /**
+     * The colors that cell values are mapped onto.
+     */
+    private final IndexColorModel palette;
+
+    /**
+     * The row of a 2D cell group drawn for each generation.
+     */
+    private int sliceRow;
+
+    /**
+     * The pool used to compress the image in parallel (null to compress serially).
+     */
+    private ExecutorService encoderPool;
+
+    /**
+     * The image being written (only exists while interpreting).
+     */
+    private PngWriter writer;
+
+    /**
+     * The row-major index of the first cell drawn for each generation.
+     */
+    private int firstCell;
+
+    /**
+     * The number of bits per pixel of the image being written.
+     */
+    private int bitDepth;
+
+    /**
+     * Scratch space for the cell values (then palette indices) of a generation.
+     */
+    private int[] indices;
+
+    /**
+     * Scratch space for a generation packed into a row of pixels.
+     */
+    private byte[] row;
+
+    /**
+     * (constructor) Creates a new interpreter for k-state cellular automata.
+     * @param imgPath the path of the output image
+     * @param numGenerations the number of generations
+     * @param palette the colors to map cell values onto (at most 256)
+     */
+    public PaletteImageInterp(String imgPath, int numGenerations, IndexColorModel palette) {
+        this.imgPath = imgPath;
+        this.numGenerations = Math.max(1, numGenerations);
+        this.palette = palette;
+        this.sliceRow = 0;
+    }
+
+    /**
+     * Creates a palette of evenly spaced grays from white (value 0) to black.
+     * @param numColors the number of colors (between 2 and 256)
+     * @return the palette
+     */
+    public static IndexColorModel grayscalePalette(int numColors) {
+        checkNumColors(numColors);
+        byte[] levels = new byte[numColors];
+        for (int i = 0; i < numColors; i++) {
+            levels[i] = (byte) (255 - (255 * i) / (numColors - 1));
+        }
+        return new IndexColorModel(8, numColors, levels, levels, levels);
+    }
+
+    /**
+     * Creates a palette of fully saturated hues (value 0 is black).
+     * @param numColors the number of colors (between 2 and 256)
+     * @return the palette
+     */
+    public static IndexColorModel spectrumPalette(int numColors) {
+        checkNumColors(numColors);
+        byte[] r = new byte[numColors];
+        byte[] g = new byte[numColors];
+        byte[] b = new byte[numColors];
+        for (int i = 1; i < numColors; i++) {
+            int rgb = Color.HSBtoRGB((float) (i - 1) / (numColors - 1), 1.0f, 1.0f);
+            r[i] = (byte) (rgb >> 16);
+            g[i] = (byte) (rgb >> 8);
+            b[i] = (byte) rgb;
+        }
+        return new IndexColorModel(8, numColors, r, g, b);
+    }
+
+    /**
+     * Verifies that a palette size is valid.
+     * @param numColors the number of colors
+     */
+    private static void checkNumColors(int numColors) {
+        if (numColors < 2 || numColors > 256) {
+            throw new IllegalArgumentException("Palettes must have between 2 and 256 colors.");
+        }
+    }
+
+    /**
+     * Gets the row of a 2D cell group that is drawn for each generation.
+     * @return the slice row
+     */
+    public int getSliceRow() {
+        return sliceRow;
+    }
+
+    /**
+     * Sets the row of a 2D cell group to draw for each generation (ignored
+     * for 1D cellular automata).
+     * @param row the slice row
+     */
+    public void setSliceRow(int row) {
+        sliceRow = Math.max(0, row);
+    }
+
+    /**
+     * Gets the pool used to compress the image in parallel.
+     * @return the pool, or null if the image is compressed serially
+     */
+    public ExecutorService getEncoderPool() {
+        return encoderPool;
+    }
+
+    /**
+     * Sets the pool to use to compress the image in parallel.
+     * @param pool the pool to use, or null to compress serially
+     */
+    public void setEncoderPool(ExecutorService pool) {
+        encoderPool = pool;
+    }
+
+    /**
+     * Renders the cellular automaton into an in-memory image instead of a
+     * file, writing the palette indices straight into the image's pixel data.
+     * Only suitable for images that fit in the heap.
+     * @param ca the cellular automaton to render
+     * @return the image, one row per generation
+     */
+    public BufferedImage render(CellularAutomaton ca) {
+        int width = getImageWidth(ca.getDimensions());
+        int start = getFirstCell(ca.getDimensions());
+        BufferedImage image = new BufferedImage(width, numGenerations,
+                BufferedImage.TYPE_BYTE_INDEXED, palette);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int[] values = new int[width];
+        for (int r = 0; r < numGenerations; r++) {
+            ca.getIteration(r).copyValues(start, values, 0, width);
+            toPaletteIndices(values);
+            int offset = r * width;
+            for (int c = 0; c < width; c++) {
+                pixels[offset + c] = (byte) values[c];
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Gets the width of the image (the number of cells drawn per generation).
+     * @param dims the dimensions of the cellular automaton
+     * @return the width of the image
+     */
+    private int getImageWidth(CellGroupDimensions dims) {
+        switch (dims.getNumDimensions()) {
+        case 1:
+            return dims.getDimensionSize(0);
+        case 2:
+            return dims.getDimensionSize(1);
+        default:
+            throw new IllegalArgumentException("Cellular automaton must be 1- or 2-dimensional.");
+        }
+    }
+
+    /**
+     * Gets the row-major index of the first cell drawn for each generation.
+     * @param dims the dimensions of the cellular automaton
+     * @return the index of the first cell of the slice
+     */
+    private int getFirstCell(CellGroupDimensions dims) {
+        if (dims.getNumDimensions() == 1) {
+            return 0;
+        }
+        if (sliceRow >= dims.getDimensionSize(0)) {
+            throw new IllegalArgumentException(String.format(
+                    "Slice row %d is outside of the cell group.", sliceRow));
+        }
+        return sliceRow * dims.getDimensionSize(1);
+    }
+
+    /**
+     * Maps cell values onto palette indices (in place).
+     * @param values the cell values
+     */
+    private void toPaletteIndices(int[] values) {
+        final int numColors = palette.getMapSize();
+        for (int i = 0; i < values.length; i++) {
+            int index = values[i] % numColors;
+            values[i] = index < 0 ? index + numColors : index;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        int width = getImageWidth(ca.getDimensions());
+        firstCell = getFirstCell(ca.getDimensions());
+        int numColors = palette.getMapSize();
+        bitDepth = numColors <= 2 ? 1 : numColors <= 4 ? 2 : numColors <= 16 ? 4 : 8;
+        int[] rgbs = new int[numColors];
+        palette.getRGBs(rgbs);
+        for (int i = 0; i < numColors; i++) {
+            rgbs[i] &= 0xFFFFFF;
+        }
+        indices = new int[width];
+        row = new byte[PngWriter.getBytesPerRow(width, bitDepth)];
+        try {
+            writer = new PngWriter(new BufferedOutputStream(new FileOutputStream(imgPath)),
+                    width, numGenerations, bitDepth, rgbs, encoderPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        group.copyValues(firstCell, indices, 0, indices.length);
+        toPaletteIndices(indices);
+        PngWriter.packRow(indices, indices.length, bitDepth, row);
+        try {
+            writer.writeRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer = null;
+            indices = null;
+            row = null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package jaw64.ca.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.audio.AudioSink;
+import jaw64.ca.audio.SonificationEngine;
+import jaw64.ca.audio.VoiceControl;
+import jaw64.ca.io.WavWriter;
+
+/**
+ * Interprets cellular automata directly as audio: each generation updates the
+ * voices of a {@link SonificationEngine} through a {@link VoiceControl}, and
+ * its audio is rendered in blocks straight into a WAV file. No intermediate
+ * score, temporary file or per-generation allocation is involved, so long
+ * pieces render much faster than real time in constant memory.
+ * @author jaw64
+ */
+public class SonificationInterp implements IncrementalInterpreter {
+
+    /**
+     * The longest release tail rendered after the last generation (in seconds).
+     */
+    private static final double MAX_TAIL_SECONDS = 5.0;
+
+    /**
+     * The number of generations to interpret.
+     */
+    private final int numGenerations;
+
+    /**
+     * The engine rendering the audio.
+     */
+    private final SonificationEngine engine;
+
+    /**
+     * Updates the voices of {@link #engine} for each generation.
+     */
+    private final VoiceControl control;
+
+    /**
+     * The path of the WAV file.
+     */
+    private final String path;
+
+    /**
+     * The WAV output (only exists while interpreting).
+     */
+    private WavWriter wav;
+
+    /**
+     * Writes rendered blocks to {@link #wav}.
+     */
+    private AudioSink sink;
+
+    /**
+     * (constructor) Creates a sonification interpreter.
+     * @param numGenerations the number of generations to interpret
+     * @param engine the engine rendering the audio
+     * @param control updates the voices for each generation
+     * @param path the path of the WAV file
+     */
+    public SonificationInterp(int numGenerations, SonificationEngine engine,
+            VoiceControl control, String path) {
+        this.numGenerations = Math.max(0, numGenerations);
+        this.engine = engine;
+        this.control = control;
+        this.path = path;
+    }
+
+    /**
+     * Gets the engine rendering the audio.
+     * @return the engine
+     */
+    public SonificationEngine getEngine() {
+        return engine;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        try {
+            wav = new WavWriter(Paths.get(path), engine.getSampleRate(),
+                    SonificationEngine.CHANNELS);
+            sink = wav::write;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        if (iteration >= numGenerations) {
+            return false;
+        }
+        control.onGeneration(iteration, group, engine);
+        try {
+            engine.renderGeneration(sink);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        try {
+            engine.renderTail(sink, MAX_TAIL_SECONDS);
+            wav.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        wav = null;
+        sink = null;
+    }
+}
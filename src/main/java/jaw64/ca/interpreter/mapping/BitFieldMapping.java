@@ -0,0 +1,193 @@
+package jaw64.ca.interpreter.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Declares how the cells of each generation map to output events: a list of
+ * named bit fields (each an offset and width in cells, read little-endian as
+ * in {@link jaw64.ca.CellGroup#getBits(int, int)}), an optional lookup table
+ * per field, and the type of event to output. A mapping is compiled once
+ * into an {@link ExtractionPlan} which does the per-generation work.<br>
+ * <br>
+ * For example, the {@code RANDOM} melody of
+ * {@link jaw64.ca.interpreter.musc1280.LisztIntroInterp} is a 2-bit field
+ * choosing an arpeggio and a 4-bit field choosing a note of it, which can be
+ * declared as a single 6-bit {@link #PITCH} field whose lookup table lists the
+ * 64 resulting pitches (see
+ * {@link jaw64.ca.interpreter.musc1280.LisztIntroInterp#createRandomMapping()}).
+ * @author jaw64
+ */
+public class BitFieldMapping {
+
+    /**
+     * The types of events a mapping can output.
+     * @author jaw64
+     */
+    public static enum OutputType {
+        /**
+         * A monophonic MIDI melody, one note per generation, built from the
+         * {@link BitFieldMapping#PITCH} (required), {@link BitFieldMapping#DURATION},
+         * {@link BitFieldMapping#VELOCITY} and {@link BitFieldMapping#CHANNEL}
+         * fields. A pitch outside 0-127 is a rest, and velocities are
+         * clamped to 1-127 (a velocity of 0 would end the note at once).
+         */
+        NOTES,
+        /**
+         * One line of text per generation listing the value of every field.
+         */
+        TEXT
+    }
+
+    /**
+     * The field holding the MIDI note number of a note.
+     */
+    public static final String PITCH = "pitch";
+
+    /**
+     * The field holding the duration of a note (in MIDI ticks at
+     * {@link jaw64.ca.io.MidiFileWriter#DEFAULT_RESOLUTION} ticks per quarter
+     * note).
+     */
+    public static final String DURATION = "duration";
+
+    /**
+     * The field holding the velocity of a note.
+     */
+    public static final String VELOCITY = "velocity";
+
+    /**
+     * The field holding the MIDI channel of a note.
+     */
+    public static final String CHANNEL = "channel";
+
+    /**
+     * The type of events to output.
+     */
+    private final OutputType outputType;
+
+    /**
+     * The fields declared so far, in order.
+     */
+    private final List<FieldSpec> fields;
+
+    /**
+     * (constructor) Creates an empty mapping.
+     * @param outputType the type of events to output
+     */
+    public BitFieldMapping(OutputType outputType) {
+        this.outputType = outputType;
+        this.fields = new ArrayList<>();
+    }
+
+    /**
+     * Gets the type of events to output.
+     * @return the output type
+     */
+    public OutputType getOutputType() {
+        return outputType;
+    }
+
+    /**
+     * Declares a field whose value is used as is.
+     * @param name the name of the field
+     * @param offset the offset of the field's first cell (from the interpreter's bit offset)
+     * @param width the number of cells in the field (1-31)
+     * @return this mapping
+     */
+    public BitFieldMapping addField(String name, int offset, int width) {
+        return addField(name, offset, width, (int[]) null);
+    }
+
+    /**
+     * Declares a field whose value is mapped through a lookup table.
+     * @param name the name of the field
+     * @param offset the offset of the field's first cell (from the interpreter's bit offset)
+     * @param width the number of cells in the field (1-31)
+     * @param lookup the value for each of the {@code 2^width} possible field
+     * values, or null to use the field value as is
+     * @return this mapping
+     */
+    public BitFieldMapping addField(String name, int offset, int width, int... lookup) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Bit field offsets cannot be negative.");
+        }
+        if (width < 1 || width > Integer.SIZE - 1) {
+            throw new IllegalArgumentException("Bit fields must be between 1 and 31 bits wide.");
+        }
+        if (lookup != null && lookup.length != 1 << width) {
+            throw new IllegalArgumentException(String.format(
+                    "Lookup table of field '%s' must have %d entries.", name, 1 << width));
+        }
+        for (FieldSpec f : fields) {
+            if (f.name.equals(name)) {
+                throw new IllegalArgumentException(
+                        String.format("Bit field '%s' is declared twice.", name));
+            }
+        }
+        fields.add(new FieldSpec(name, offset, width,
+                lookup == null ? null : Arrays.copyOf(lookup, lookup.length)));
+        return this;
+    }
+
+    /**
+     * Compiles this mapping into an extraction plan. Later changes to this
+     * mapping do not affect the plan.
+     * @return the extraction plan
+     */
+    public ExtractionPlan compile() {
+        if (fields.isEmpty()) {
+            throw new IllegalStateException("Bit field mapping has no fields.");
+        }
+        int numFields = fields.size();
+        String[] names = new String[numFields];
+        int[] offsets = new int[numFields];
+        int[] widths = new int[numFields];
+        int[] tableBases = new int[numFields];
+        int tableSize = 0;
+        for (int i = 0; i < numFields; i++) {
+            FieldSpec f = fields.get(i);
+            names[i] = f.name;
+            offsets[i] = f.offset;
+            widths[i] = f.width;
+            if (f.lookup != null) {
+                tableBases[i] = tableSize;
+                tableSize += f.lookup.length;
+            }
+            else {
+                tableBases[i] = -1;
+            }
+        }
+        int[] tables = new int[tableSize];
+        for (int i = 0; i < numFields; i++) {
+            FieldSpec f = fields.get(i);
+            if (f.lookup != null) {
+                System.arraycopy(f.lookup, 0, tables, tableBases[i], f.lookup.length);
+            }
+        }
+        return new ExtractionPlan(outputType, names, offsets, widths, tableBases, tables);
+    }
+
+    /**
+     * A single declared field.
+     * @author jaw64
+     */
+    private static final class FieldSpec {
+
+        final String name;
+
+        final int offset;
+
+        final int width;
+
+        final int[] lookup;
+
+        FieldSpec(String name, int offset, int width, int[] lookup) {
+            this.name = name;
+            this.offset = offset;
+            this.width = width;
+            this.lookup = lookup;
+        }
+    }
+}
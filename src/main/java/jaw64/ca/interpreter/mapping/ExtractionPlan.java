@@ -0,0 +1,168 @@
+package jaw64.ca.interpreter.mapping;
+
+import jaw64.ca.CellGroup;
+import jaw64.ca.interpreter.BitFieldLayout;
+
+/**
+ * A compiled {@link BitFieldMapping}: a {@link BitFieldLayout} of the fields
+ * and flat lookup tables. When every field fits within 64 consecutive cells,
+ * the layout reads them with a single {@link CellGroup#getBits(int, int)}
+ * call and each field is a shift, a mask and (optionally) one table read;
+ * otherwise each field is read on its own. Decoding never allocates.
+ * @author jaw64
+ */
+public final class ExtractionPlan {
+
+    /**
+     * The type of events to output.
+     */
+    private final BitFieldMapping.OutputType outputType;
+
+    /**
+     * The name of each field.
+     */
+    private final String[] names;
+
+    /**
+     * The offset of each field's first cell.
+     */
+    private final int[] offsets;
+
+    /**
+     * The width of each field.
+     */
+    private final int[] widths;
+
+    /**
+     * The fields within the window starting at {@link #windowStart} (null
+     * when the fields span more than 64 cells).
+     */
+    private final BitFieldLayout layout;
+
+    /**
+     * The index of each field's lookup table within {@link #tables}, or -1.
+     */
+    private final int[] tableBases;
+
+    /**
+     * Every lookup table, one after the other.
+     */
+    private final int[] tables;
+
+    /**
+     * The offset of the first cell read.
+     */
+    private final int windowStart;
+
+    /**
+     * The number of cells from the first to the last cell read.
+     */
+    private final int windowWidth;
+
+    /**
+     * (constructor) Creates an extraction plan (see {@link BitFieldMapping#compile()}).
+     * @param outputType the type of events to output
+     * @param names the name of each field
+     * @param offsets the offset of each field's first cell
+     * @param widths the width of each field
+     * @param tableBases the index of each field's lookup table, or -1
+     * @param tables every lookup table, one after the other
+     */
+    ExtractionPlan(BitFieldMapping.OutputType outputType, String[] names, int[] offsets,
+            int[] widths, int[] tableBases, int[] tables) {
+        this.outputType = outputType;
+        this.names = names;
+        this.offsets = offsets;
+        this.widths = widths;
+        this.tableBases = tableBases;
+        this.tables = tables;
+        int start = Integer.MAX_VALUE;
+        int end = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            start = Math.min(start, offsets[i]);
+            end = Math.max(end, offsets[i] + widths[i]);
+        }
+        this.windowStart = start;
+        this.windowWidth = end - start;
+        if (windowWidth <= Long.SIZE) {
+            int[] shifts = new int[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                shifts[i] = offsets[i] - start;
+            }
+            this.layout = new BitFieldLayout(shifts, widths);
+        }
+        else {
+            this.layout = null;
+        }
+    }
+
+    /**
+     * Gets the type of events to output.
+     * @return the output type
+     */
+    public BitFieldMapping.OutputType getOutputType() {
+        return outputType;
+    }
+
+    /**
+     * Gets the number of fields.
+     * @return the number of fields
+     */
+    public int getNumFields() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of a field.
+     * @param field the index of the field
+     * @return the name of the field
+     */
+    public String getFieldName(int field) {
+        return names[field];
+    }
+
+    /**
+     * Gets the index of a field.
+     * @param name the name of the field
+     * @return the index of the field, or -1 if there is no such field
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of cells needed after the base index to decode every field.
+     * @return the number of required cells
+     */
+    public int getRequiredCells() {
+        return windowStart + windowWidth;
+    }
+
+    /**
+     * Decodes every field (mapping it through its lookup table, if any).
+     * @param cg the cell group to read from
+     * @param baseIndex the row-major (1D) index that field offsets are relative to
+     * @param dest the array to store the value of each field in
+     */
+    public void decode(CellGroup cg, int baseIndex, int[] dest) {
+        final int numFields = names.length;
+        if (layout != null) {
+            layout.decode(cg, baseIndex + windowStart, dest);
+        }
+        else {
+            for (int i = 0; i < numFields; i++) {
+                dest[i] = (int) cg.getBits(baseIndex + offsets[i], widths[i]);
+            }
+        }
+        for (int i = 0; i < numFields; i++) {
+            if (tableBases[i] >= 0) {
+                dest[i] = tables[tableBases[i] + dest[i]];
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package jaw64.ca.interpreter.mapping;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.event.EventChain;
+import jaw64.ca.event.MidiFileSink;
+import jaw64.ca.event.NoteEventBuffer;
+import jaw64.ca.event.NoteEventSink;
+import jaw64.ca.interpreter.IncrementalInterpreter;
+import jaw64.ca.io.MidiFileWriter;
+
+/**
+ * Interprets cellular automata according to a {@link BitFieldMapping}. The
+ * mapping is compiled once when the interpreter is created; each generation
+ * is then decoded into a reusable array and written straight to the output
+ * file, so interpreting allocates nothing per generation. Notes are passed to
+ * the MIDI file as a note event stream in batches, optionally through an
+ * {@link EventChain} of post-processing stages.
+ * @author jaw64
+ */
+public class MappingInterp implements IncrementalInterpreter {
+
+    /**
+     * The duration of notes when the mapping has no {@link BitFieldMapping#DURATION}
+     * field (a sixteenth note).
+     */
+    private static final int DEFAULT_DURATION = MidiFileWriter.DEFAULT_RESOLUTION / 4;
+
+    /**
+     * The velocity of notes when the mapping has no {@link BitFieldMapping#VELOCITY}
+     * field (jMusic's default dynamic).
+     */
+    private static final int DEFAULT_VELOCITY = 85;
+
+    /**
+     * The fraction of its duration each note sounds for (as in jMusic).
+     */
+    private static final double NOTE_LENGTH_RATIO = 0.9;
+
+    /**
+     * The tempo of note output (in beats per minute).
+     */
+    private static final int TEMPO = 120;
+
+    /**
+     * The number of generations to interpret.
+     */
+    private final int numGenerations;
+
+    /**
+     * The compiled mapping.
+     */
+    private final ExtractionPlan plan;
+
+    /**
+     * The number of cells from the first cell of the cell group to begin
+     * interpreting.
+     */
+    private final int bitOffset;
+
+    /**
+     * The path of the output file.
+     */
+    private final String path;
+
+    /**
+     * The decoded value of each field (reused for every generation).
+     */
+    private final int[] values;
+
+    /**
+     * The indices of the note fields (-1 if the mapping lacks the field).
+     */
+    private final int pitchField;
+
+    private final int durationField;
+
+    private final int velocityField;
+
+    private final int channelField;
+
+    /**
+     * The digits of the number being written (reused for every number).
+     */
+    private final char[] digits;
+
+    /**
+     * The stages notes go through before being written (null for none).
+     */
+    private EventChain eventChain;
+
+    /**
+     * The MIDI output (only exists while interpreting {@link BitFieldMapping.OutputType#NOTES}).
+     */
+    private MidiFileWriter midi;
+
+    /**
+     * Writes notes to {@link #midi}.
+     */
+    private MidiFileSink midiSink;
+
+    /**
+     * The head of the note event stream ({@link #midiSink} or the event chain feeding it).
+     */
+    private NoteEventSink noteSink;
+
+    /**
+     * The batch of notes not yet passed to {@link #noteSink}.
+     */
+    private NoteEventBuffer noteBatch;
+
+    /**
+     * The text output (only exists while interpreting {@link BitFieldMapping.OutputType#TEXT}).
+     */
+    private BufferedWriter textOut;
+
+    /**
+     * The time of the next note (in ticks).
+     */
+    private long currTick;
+
+    /**
+     * (constructor) Creates an interpreter for a bit-field mapping.
+     * @param numGenerations the number of generations to interpret
+     * @param mapping the mapping (compiled immediately; later changes are ignored)
+     * @param bitOffset the number of cells from the first cell of the cell
+     * group that field offsets are relative to
+     * @param path the path of the output file
+     */
+    public MappingInterp(int numGenerations, BitFieldMapping mapping, int bitOffset,
+            String path) {
+        this.numGenerations = Math.max(0, numGenerations);
+        this.plan = mapping.compile();
+        this.bitOffset = Math.max(0, bitOffset);
+        this.path = path;
+        this.values = new int[plan.getNumFields()];
+        this.pitchField = plan.indexOf(BitFieldMapping.PITCH);
+        this.durationField = plan.indexOf(BitFieldMapping.DURATION);
+        this.velocityField = plan.indexOf(BitFieldMapping.VELOCITY);
+        this.channelField = plan.indexOf(BitFieldMapping.CHANNEL);
+        this.digits = new char[11];
+        if (plan.getOutputType() == BitFieldMapping.OutputType.NOTES && pitchField < 0) {
+            throw new IllegalArgumentException(
+                    "Note mappings require a '" + BitFieldMapping.PITCH + "' field.");
+        }
+    }
+
+    /**
+     * Gets the stages notes go through before being written.
+     * @return the event chain, or null if notes are written as generated
+     */
+    public EventChain getEventChain() {
+        return eventChain;
+    }
+
+    /**
+     * Sets the stages notes go through before being written (only used for
+     * {@link BitFieldMapping.OutputType#NOTES}).
+     * @param eventChain the event chain, or null to write notes as generated
+     */
+    public void setEventChain(EventChain eventChain) {
+        this.eventChain = eventChain;
+    }
+
+    /**
+     * Gets the compiled mapping used by this interpreter.
+     * @return the extraction plan
+     */
+    public ExtractionPlan getPlan() {
+        return plan;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        // Error-checking.
+        if (ca.getDimensions().getNumElements() < plan.getRequiredCells() + bitOffset) {
+            throw new IllegalArgumentException(String.format(
+                    "MappingInterp requires CA to be at least %d cells big.",
+                    plan.getRequiredCells() + bitOffset));
+        }
+        currTick = 0;
+        try {
+            if (plan.getOutputType() == BitFieldMapping.OutputType.NOTES) {
+                midi = new MidiFileWriter(Paths.get(path));
+                midi.beginTrack();
+                midi.tempo(0, TEMPO);
+                midi.timeSignature(0, 4, 4);
+                midiSink = new MidiFileSink(midi, NOTE_LENGTH_RATIO);
+                noteSink = eventChain == null ? midiSink : eventChain.build(midiSink);
+                noteBatch = new NoteEventBuffer();
+            }
+            else {
+                textOut = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        if (iteration >= numGenerations) {
+            return false;
+        }
+        plan.decode(group, bitOffset, values);
+        try {
+            if (midi != null) {
+                writeNote();
+            }
+            else {
+                writeLine(iteration);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        try {
+            if (midi != null) {
+                if (noteBatch.size() > 0) {
+                    noteSink.accept(noteBatch);
+                }
+                noteSink.close();
+                midi.endTrack(Math.max(currTick, midiSink.getLastTick()));
+                midi.close();
+            }
+            if (textOut != null) {
+                textOut.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        midi = null;
+        midiSink = null;
+        noteSink = null;
+        noteBatch = null;
+        textOut = null;
+    }
+
+    /**
+     * Adds the note described by the decoded field values to the note event
+     * stream (passing the batch on when it is full). Pitches outside the MIDI
+     * range are rests and velocities are clamped to 1-127.
+     * @throws IOException if the notes cannot be written
+     */
+    private void writeNote() throws IOException {
+        int pitch = values[pitchField];
+        int duration = durationField < 0 ? DEFAULT_DURATION : Math.max(0, values[durationField]);
+        if (pitch >= 0 && pitch <= 127 && duration > 0) {
+            int velocity = velocityField < 0 ? DEFAULT_VELOCITY
+                    : Math.max(1, Math.min(127, values[velocityField]));
+            int channel = channelField < 0 ? 0 : values[channelField] & 0xF;
+            noteBatch.add(currTick, duration, pitch, velocity, channel);
+            if (noteBatch.isFull()) {
+                noteSink.accept(noteBatch);
+                noteBatch.clear();
+            }
+        }
+        currTick += duration;
+    }
+
+    /**
+     * Writes a line listing the decoded field values.
+     * @param iteration the iteration of the current generation
+     * @throws IOException if the line cannot be written
+     */
+    private void writeLine(int iteration) throws IOException {
+        writeNumber(iteration);
+        textOut.write(':');
+        for (int i = 0; i < values.length; i++) {
+            textOut.write(' ');
+            textOut.write(plan.getFieldName(i));
+            textOut.write('=');
+            writeNumber(values[i]);
+        }
+        textOut.newLine();
+    }
+
+    /**
+     * Writes a number to the text output without allocating a string.
+     * @param n the number
+     * @throws IOException if the number cannot be written
+     */
+    private void writeNumber(int n) throws IOException {
+        if (n < 0) {
+            textOut.write('-');
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + Math.abs(n % 10));
+            n /= 10;
+        } while (n != 0);
+        textOut.write(digits, pos, digits.length - pos);
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Package for interpreters configured by declarative bit-field mappings
+ * instead of hand-written decoding code.
+ * @author jaw64
+ */
+package jaw64.ca.interpreter.mapping;
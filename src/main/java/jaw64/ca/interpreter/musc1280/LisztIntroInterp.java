@@ -18,10 +18,20 @@ import static jm.constants.Pitches.FS5;
 import static jm.constants.Pitches.FS6;
 import static jm.constants.Pitches.GS4;
 import static jm.constants.Pitches.GS5;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import jaw64.ca.CellGroup;
 import jaw64.ca.CellGroupDimensions;
 import jaw64.ca.CellularAutomaton;
-import jaw64.ca.interpreter.Interpreter;
+import jaw64.ca.event.EventChain;
+import jaw64.ca.event.MidiFileSink;
+import jaw64.ca.event.NoteEventBuffer;
+import jaw64.ca.event.NoteEventSink;
+import jaw64.ca.interpreter.BitFieldLayout;
+import jaw64.ca.interpreter.IncrementalInterpreter;
+import jaw64.ca.interpreter.mapping.BitFieldMapping;
+import jaw64.ca.io.MidiFileWriter;
 import jm.music.data.Note;
 import jm.music.data.Part;
 import jm.music.data.Phrase;
@@ -35,7 +45,7 @@ import jm.util.Write;
  * d'eaux  la Villa d'Este</a>.
  * @author jaw64
  */
-public class LisztIntroInterp implements Interpreter {
+public class LisztIntroInterp implements IncrementalInterpreter {
 
     /**
      * Defines the way that this interpreter will create music.
@@ -65,22 +75,84 @@ public class LisztIntroInterp implements Interpreter {
      */
     private static final int[] NOTES_C = { CS4, GS4, B4, DS5, ES5, GS5, B5, DS6, FS6 };
 
+    /**
+     * Maps 0 thru 3 to an arpeggio.
+     */
+    private static final int[][] ARP_TYPE_MAP = { NOTES_A, NOTES_A, NOTES_B, NOTES_C };
+
+    /**
+     * Maps 0 thru 15 to an index within an arpeggio (for {@link Type#RANDOM}).
+     */
+    private static final int[] ARP_NOTE_MAP = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 0, 1, 2, 3, 4, 5, 6 };
+
+    /**
+     * Maps 0 thru 7 to a number of arpeggio notes to skip (for {@link Type#ASCENDING}
+     * and {@link Type#DESCENDING}).
+     */
+    private static final int[] ARP_SKIP_MAP = { 1, 2, 3, 1, 1, 1, 2, 2 };
+
     /**
      * The duration of all notes to be generated.
      */
     private static final double NOTE_DURATION = SIXTEENTH_NOTE;
 
+    /**
+     * The number of MIDI ticks between notes when streaming.
+     */
+    private static final int NOTE_TICKS = (int) Math
+            .round(NOTE_DURATION * MidiFileWriter.DEFAULT_RESOLUTION);
+
+    /**
+     * The number of MIDI ticks each note sounds for when streaming (jMusic
+     * plays notes for 90% of their rhythm value).
+     */
+    private static final int NOTE_LENGTH_TICKS = (int) Math.round(NOTE_TICKS * 0.9);
+
+    /**
+     * The velocity of every note when streaming (jMusic's default dynamic).
+     */
+    private static final int NOTE_VELOCITY = 85;
+
+    /**
+     * The tempo of the melody (in beats per minute).
+     */
+    private static final int TEMPO = 120;
+
+    /**
+     * The file written when no path is provided (jMusic's default file name).
+     */
+    private static final String DEFAULT_PATH = "Untitled Score.mid";
+
+    /**
+     * The bit fields interpreted per iteration by the {@link Type#RANDOM}
+     * method: the arpeggio type (2 bits) and the arpeggio note (4 bits).
+     */
+    private static final BitFieldLayout RANDOM_FIELDS = new BitFieldLayout(2, 4);
+
+    /**
+     * The bit fields interpreted per iteration by the {@link Type#ASCENDING}
+     * and {@link Type#DESCENDING} methods: the arpeggio type (2 bits) and the
+     * number of notes to skip (3 bits).
+     */
+    private static final BitFieldLayout ASC_DESC_FIELDS = new BitFieldLayout(2, 3);
+
+    /**
+     * The number of bits used to pick the starting note for the
+     * {@link Type#ASCENDING} and {@link Type#DESCENDING} methods.
+     */
+    private static final int INITIAL_NOTE_BITS = 3;
+
     /**
      * The number of cells required per iteration to correctly interpret using the
      * {@link Type#RANDOM} method.
      */
-    private static final int REQUIRED_RANDOM_SIZE = 6;
+    private static final int REQUIRED_RANDOM_SIZE = RANDOM_FIELDS.getTotalWidth();
 
     /**
      * The number of cells required per iteration to correctly interpret using the
      * {@link Type#ASCENDING} or {@link Type#DESCENDING} method.
      */
-    private static final int REQUIRED_ASC_DESC_SIZE = 5;
+    private static final int REQUIRED_ASC_DESC_SIZE = ASC_DESC_FIELDS.getTotalWidth();
 
     /**
      * The number of generations to generate.
@@ -103,6 +175,54 @@ public class LisztIntroInterp implements Interpreter {
      */
     private final String path;
 
+    /**
+     * Whether notes are written to the MIDI file as they are generated
+     * instead of being collected into a jMusic score first.
+     */
+    private boolean streaming;
+
+    /**
+     * The notes generated so far (only exists while interpreting without streaming).
+     */
+    private Note[] notes;
+
+    /**
+     * The number of generations interpreted so far (fewer than
+     * {@link #numGenerations} if the run was stopped early).
+     */
+    private int numInterpreted;
+
+    /**
+     * The MIDI file being written (only exists while interpreting with streaming).
+     */
+    private MidiFileWriter midi;
+
+    /**
+     * The stages streamed notes go through before being written (null for none).
+     */
+    private EventChain eventChain;
+
+    /**
+     * Writes streamed notes to {@link #midi}.
+     */
+    private MidiFileSink midiSink;
+
+    /**
+     * The head of the note event stream ({@link #midiSink} or the event chain feeding it).
+     */
+    private NoteEventSink noteSink;
+
+    /**
+     * The batch of streamed notes not yet passed to {@link #noteSink}.
+     */
+    private NoteEventBuffer noteBatch;
+
+    /**
+     * The index of the previous note within its arpeggio (for {@link Type#ASCENDING}
+     * and {@link Type#DESCENDING}).
+     */
+    private int currNoteIndex;
+
     /**
      * (constructor) Creates a CA interpreter (with 0 bit offset) used for
      * generating a very specific type of melody (see class definition for
@@ -153,6 +273,70 @@ public class LisztIntroInterp implements Interpreter {
         this.type = type;
         this.bitOffset = Math.max(0, bitOffset);
         this.path = path;
+        this.streaming = false;
+    }
+
+    /**
+     * Tells whether notes are written to the MIDI file as they are generated.
+     * @return true if streaming, false if a jMusic score is built first
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sets whether notes are written to the MIDI file as they are generated.
+     * Streaming keeps memory use constant regardless of the number of
+     * generations, while the default builds a jMusic score and writes it once
+     * every note has been generated.
+     * @param streaming true to stream notes, false to build a jMusic score first
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Gets the stages streamed notes go through before being written.
+     * @return the event chain, or null if notes are written as generated
+     */
+    public EventChain getEventChain() {
+        return eventChain;
+    }
+
+    /**
+     * Sets the stages streamed notes go through before being written (only
+     * used when streaming).
+     * @param eventChain the event chain, or null to write notes as generated
+     */
+    public void setEventChain(EventChain eventChain) {
+        this.eventChain = eventChain;
+    }
+
+    /**
+     * Creates a bit-field mapping equivalent to the {@link Type#RANDOM}
+     * method: both fields read as a single 6-bit pitch field whose lookup
+     * table lists the pitch for each of the 64 values. A
+     * {@link jaw64.ca.interpreter.mapping.MappingInterp} using it writes the
+     * same notes as this interpreter when streaming.
+     * @return the mapping
+     */
+    public static BitFieldMapping createRandomMapping() {
+        int[] pitches = new int[1 << REQUIRED_RANDOM_SIZE];
+        for (int value = 0; value < pitches.length; value++) {
+            int arpTypeIndex = RANDOM_FIELDS.getField(value, 0);
+            int arpNoteIndex = RANDOM_FIELDS.getField(value, 1);
+            pitches[value] = ARP_TYPE_MAP[arpTypeIndex][ARP_NOTE_MAP[arpNoteIndex]];
+        }
+        return new BitFieldMapping(BitFieldMapping.OutputType.NOTES)
+                .addField(BitFieldMapping.PITCH, 0, REQUIRED_RANDOM_SIZE, pitches);
+    }
+
+    /**
+     * Gets the path of the MIDI file to write.
+     * @return the path
+     */
+    private String getOutputPath() {
+        return path == null || path.isEmpty() ? DEFAULT_PATH : path;
     }
 
     /**
@@ -178,33 +362,15 @@ public class LisztIntroInterp implements Interpreter {
      *   </ul>
      * </ul>
      * 
-     * @param ca the cellular automaton from which to interpret
-     * @return the generated score
+     * @param cg the cell group of the current generation
+     * @return the generated pitch
      */
-    private Score randomInterp(CellularAutomaton ca) {
-        CellGroupDimensions dim = ca.getDimensions();
-        if (dim.getDimensionSize(0) < REQUIRED_RANDOM_SIZE + bitOffset) {
-            throw new IllegalArgumentException(
-                    String.format("LisztIntroInterp requires CA to be at least %d cells big.",
-                            REQUIRED_RANDOM_SIZE));
-        }
-        // Beginning interpretation!
-        final int[][] ARP_TYPE_MAP = { NOTES_A, NOTES_A, NOTES_B, NOTES_C };
-        final int[] ARP_NOTE_MAP = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 0, 1, 2, 3, 4, 5, 6 };
-        final Note[] FINAL_NOTES = new Note[numGenerations];
-        for (int i = 0; i < numGenerations; i++) {
-            CellGroup cg = ca.getIteration(i);
-            final int[] bits = new int[REQUIRED_RANDOM_SIZE];
-            for (int j = 0; j < REQUIRED_RANDOM_SIZE; j++) {
-                bits[j] = cg.getValue(j + bitOffset) % 2;
-            }
-            int arpTypeIndex = bits[0] + (bits[1] << 1);
-            int arpNoteIndex = bits[2] + (bits[3] << 1) + (bits[4] << 2) + (bits[5] << 3);
-            int[] arpType = ARP_TYPE_MAP[arpTypeIndex];
-            int arpNote = arpType[ARP_NOTE_MAP[arpNoteIndex]];
-            FINAL_NOTES[i] = new Note(arpNote, NOTE_DURATION);
-        }
-        return new Score(new Part(new Phrase(FINAL_NOTES)));
+    private int randomInterp(CellGroup cg) {
+        long bits = RANDOM_FIELDS.read(cg, bitOffset);
+        int arpTypeIndex = RANDOM_FIELDS.getField(bits, 0);
+        int arpNoteIndex = RANDOM_FIELDS.getField(bits, 1);
+        int[] arpType = ARP_TYPE_MAP[arpTypeIndex];
+        return arpType[ARP_NOTE_MAP[arpNoteIndex]];
     }
 
     /**
@@ -233,71 +399,137 @@ public class LisztIntroInterp implements Interpreter {
      *   </ul>
      * </ul>
      * 
-     * @param ca the cellular automaton from which to interpret
-     * @return the generated score
+     * @param iteration the iteration of the current generation
+     * @param cg the cell group of the current generation
+     * @return the generated pitch
      */
-    private Score ascDescInterp(CellularAutomaton ca) {
-        CellGroupDimensions dim = ca.getDimensions();
-        if (dim.getDimensionSize(0) < REQUIRED_ASC_DESC_SIZE + bitOffset) {
-            throw new IllegalArgumentException(
-                    String.format("LisztIntroInterp requires CA to be at least %d cells big.",
-                            REQUIRED_ASC_DESC_SIZE));
+    private int ascDescInterp(int iteration, CellGroup cg) {
+        if (iteration == 0) {
+            currNoteIndex = (int) cg.getBits(bitOffset, INITIAL_NOTE_BITS) % 9;
         }
-        // Beginning interpretation!
-        final int[][] ARP_TYPE_MAP = { NOTES_A, NOTES_A, NOTES_B, NOTES_C };
-        final int[] ARP_SKIP_MAP = { 1, 2, 3, 1, 1, 1, 2, 2 };
-        final Note[] FINAL_NOTES = new Note[numGenerations];
-        CellGroup cg = ca.getIteration(0);
-        int[] ibits = { cg.getValue(bitOffset), cg.getValue(bitOffset + 1),
-                cg.getValue(bitOffset + 2) }; // initial bits
-        int currNoteIndex = (ibits[0] + (ibits[1] << 1) + (ibits[2] << 2)) % 9;
-        for (int i = 0; i < numGenerations; i++) {
-            cg = ca.getIteration(i);
-            final int[] bits = new int[REQUIRED_ASC_DESC_SIZE];
-            for (int j = 0; j < REQUIRED_ASC_DESC_SIZE; j++) {
-                bits[j] = cg.getValue(j + bitOffset) % 2;
-            }
-            int arpTypeIndex = bits[0] + (bits[1] << 1);
-            int arpSkipAmt = ARP_SKIP_MAP[bits[2] + (bits[3] << 1) + (bits[4] << 2)];
-            int nextNoteIndex = type == Type.ASCENDING ? currNoteIndex + arpSkipAmt
-                    : currNoteIndex - arpSkipAmt;
-            nextNoteIndex = nextNoteIndex < 0 ? nextNoteIndex + 9 : nextNoteIndex % 9;
-            int[] arpType = ARP_TYPE_MAP[arpTypeIndex];
-            int arpNote = arpType[nextNoteIndex];
-            FINAL_NOTES[i] = new Note(arpNote, NOTE_DURATION);
-            currNoteIndex = nextNoteIndex;
-        }
-        return new Score(new Part(new Phrase(FINAL_NOTES)));
+        long bits = ASC_DESC_FIELDS.read(cg, bitOffset);
+        int arpTypeIndex = ASC_DESC_FIELDS.getField(bits, 0);
+        int arpSkipAmt = ARP_SKIP_MAP[ASC_DESC_FIELDS.getField(bits, 1)];
+        int nextNoteIndex = type == Type.ASCENDING ? currNoteIndex + arpSkipAmt
+                : currNoteIndex - arpSkipAmt;
+        nextNoteIndex = nextNoteIndex < 0 ? nextNoteIndex + 9 : nextNoteIndex % 9;
+        int[] arpType = ARP_TYPE_MAP[arpTypeIndex];
+        currNoteIndex = nextNoteIndex;
+        return arpType[nextNoteIndex];
     }
 
     /*
      * (non-Javadoc)
-     * @see jaw64.ca.interpreter.Interpreter#interpret(jaw64.ca.CellularAutomaton)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
      */
     @Override
-    public void interpret(CellularAutomaton ca) {
+    public void begin(CellularAutomaton ca) {
         // Error-checking.
         CellGroupDimensions dim = ca.getDimensions();
         if (dim.getNumDimensions() != 1) {
             throw new IllegalArgumentException("LisztIntroInterp requires 1D cellular automaton.");
         }
-        Score myScore = null;
+        int requiredSize;
         switch (type) {
         case RANDOM: {
-            myScore = randomInterp(ca);
+            requiredSize = REQUIRED_RANDOM_SIZE;
             break;
         }
         case ASCENDING:
         case DESCENDING: {
-            myScore = ascDescInterp(ca);
+            requiredSize = REQUIRED_ASC_DESC_SIZE;
             break;
         }
         default:
             throw new IllegalArgumentException("LisztIntroInterp received invalid type.");
         }
+        if (dim.getDimensionSize(0) < requiredSize + bitOffset) {
+            throw new IllegalArgumentException(String.format(
+                    "LisztIntroInterp requires CA to be at least %d cells big.", requiredSize));
+        }
+        currNoteIndex = 0;
+        numInterpreted = 0;
+        if (!streaming) {
+            notes = new Note[numGenerations];
+            return;
+        }
+        try {
+            midi = new MidiFileWriter(Paths.get(getOutputPath()));
+            midi.beginTrack();
+            midi.tempo(0, TEMPO);
+            midi.timeSignature(0, 4, 4);
+            midi.keySignature(0, KEY_SIGNATURE, false);
+            midi.programChange(0, 0, 0);
+            midiSink = new MidiFileSink(midi, (double) NOTE_LENGTH_TICKS / NOTE_TICKS);
+            noteSink = eventChain == null ? midiSink : eventChain.build(midiSink);
+            noteBatch = new NoteEventBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        if (iteration >= numGenerations) {
+            return false;
+        }
+        int pitch = type == Type.RANDOM ? randomInterp(group) : ascDescInterp(iteration, group);
+        numInterpreted = Math.max(numInterpreted, iteration + 1);
+        if (!streaming) {
+            notes[iteration] = new Note(pitch, NOTE_DURATION);
+            return iteration + 1 < numGenerations;
+        }
+        try {
+            noteBatch.add((long) iteration * NOTE_TICKS, NOTE_TICKS, pitch, NOTE_VELOCITY, 0);
+            if (noteBatch.isFull()) {
+                noteSink.accept(noteBatch);
+                noteBatch.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return iteration + 1 < numGenerations;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        if (streaming) {
+            try {
+                if (noteBatch.size() > 0) {
+                    noteSink.accept(noteBatch);
+                }
+                noteSink.close();
+                midi.endTrack(Math.max((long) numInterpreted * NOTE_TICKS, midiSink.getLastTick()));
+                midi.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            midi = null;
+            midiSink = null;
+            noteSink = null;
+            noteBatch = null;
+            return;
+        }
+        // Only the notes collected (the run may have stopped early).
+        Phrase phrase = new Phrase();
+        for (int i = 0; i < numInterpreted; i++) {
+            if (notes[i] != null) {
+                phrase.addNote(notes[i]);
+            }
+        }
+        Score myScore = new Score(new Part(phrase));
+        notes = null;
         myScore.setKeySignature(KEY_SIGNATURE);
         myScore.setTimeSignature(4, 4);
-        myScore.setTempo(120);
+        myScore.setTempo(TEMPO);
         // View.notation(myScore);
         if (path == null || path.isEmpty()) {
             Write.midi(myScore);
@@ -1,17 +1,22 @@
 package jaw64.ca.interpreter.musc1280;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import jaw64.ca.CellGroup;
 import jaw64.ca.CellGroupDimensions;
 import jaw64.ca.CellularAutomaton;
-import jaw64.ca.interpreter.Interpreter;
+import jaw64.ca.interpreter.BitFieldLayout;
+import jaw64.ca.interpreter.IncrementalInterpreter;
 
 /**
  * Interprets binary cellular automata and uses it to generate a
@@ -20,7 +25,7 @@ import jaw64.ca.interpreter.Interpreter;
  * the resource directory).
  * @author jaw64
  */
-public class MikeyJInterp implements Interpreter {
+public class MikeyJInterp implements IncrementalInterpreter {
 
     /**
      * Shows all of the songs that can be sampled.
@@ -43,6 +48,24 @@ public class MikeyJInterp implements Interpreter {
         }
     }
 
+    /**
+     * The formats events can be streamed in.
+     * @author jaw64
+     */
+    public static enum OutputFormat {
+        /**
+         * One human-readable line per event (the same as the non-streaming output).
+         */
+        TEXT,
+        /**
+         * The 4 bytes {@code MJEV} and a version byte (1), followed by one
+         * big-endian 16-bit word per event: the song's ordinal (bits 0-2), the
+         * sample id (bits 3-5), the starting beat (bits 6-11) and the duration
+         * in beats minus one (bits 12-14).
+         */
+        BINARY
+    }
+
     /**
      * Puts all the song enums in a convenient array for indexing.
      */
@@ -53,10 +76,34 @@ public class MikeyJInterp implements Interpreter {
      */
     private static final int[] DURATION_MAP = { 1, 2, 2, 3, 4, 4, 6, 8 };
 
+    /**
+     * The bit fields interpreted per iteration: the song (3 bits), the
+     * duration (3 bits), the starting beat (4 bits) and the sample id (3 bits).
+     */
+    private static final BitFieldLayout FIELDS = new BitFieldLayout(3, 3, 4, 3);
+
+    private static final int SONG_FIELD = 0;
+
+    private static final int DURATION_FIELD = 1;
+
+    private static final int START_FIELD = 2;
+
+    private static final int ID_FIELD = 3;
+
     /**
      * The number of cells required per iteration to correctly interpret.
      */
-    private static final int REQUIRED_SIZE = 13;
+    private static final int REQUIRED_SIZE = FIELDS.getTotalWidth();
+
+    /**
+     * The magic number and version at the start of {@link OutputFormat#BINARY} files.
+     */
+    private static final byte[] BINARY_HEADER = { 'M', 'J', 'E', 'V', 1 };
+
+    /**
+     * The size of the binary output buffer (in bytes).
+     */
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
 
     /**
      * The size of all samples in beats (or in this case, in 8th notes).
@@ -84,6 +131,36 @@ public class MikeyJInterp implements Interpreter {
      */
     private final String path;
 
+    /**
+     * Whether events are written as they are generated.
+     */
+    private boolean streaming;
+
+    /**
+     * The format events are streamed in.
+     */
+    private OutputFormat outputFormat;
+
+    /**
+     * The events generated so far (only exists while interpreting without streaming).
+     */
+    private List<MJEvent> events;
+
+    /**
+     * The text output (only exists while streaming {@link OutputFormat#TEXT}).
+     */
+    private BufferedWriter textOut;
+
+    /**
+     * The binary output (only exists while streaming {@link OutputFormat#BINARY}).
+     */
+    private DataOutputStream binaryOut;
+
+    /**
+     * The duration of the events generated so far (in seconds).
+     */
+    private double currDuration;
+
     /**
      * (constructor) Creates a CA interpreter (with 0 bit offset) used for
      * generating MJ sample mashups.
@@ -114,40 +191,50 @@ public class MikeyJInterp implements Interpreter {
         this.minDuration = Math.max(0.0, minDuration);
         this.bitOffset = Math.max(0, bitOffset);
         this.path = path;
+        this.streaming = false;
+        this.outputFormat = OutputFormat.TEXT;
     }
 
     /**
-     * Helper method to get the required bits for a particular CellGroup.
-     * @param cg the cell group to get bits from
-     * @return the required bits
+     * Tells whether events are written to the output file as they are generated.
+     * @return true if streaming, false if events are written once interpreting ends
      */
-    private int[] getRequiredBits(CellGroup cg) {
-        final int[] bits = new int[REQUIRED_SIZE];
-        for (int j = 0; j < REQUIRED_SIZE; j++) {
-            bits[j] = cg.getValue(j + bitOffset) % 2;
-        }
-        return bits;
+    public boolean isStreaming() {
+        return streaming;
     }
 
     /**
-     * Converts an array of bits to an integer (little-endian).
-     * @param bits the bits
-     * @return the converted integer
+     * Sets whether events are written to the output file as they are
+     * generated. Streaming keeps memory use constant regardless of the
+     * duration of the song, while the default collects every event first.
+     * @param streaming true to stream events, false to collect them first
      */
-    private int bitsToInt(int[] bits) {
-        int sum = 0;
-        for (int i = 0; i < bits.length; i++) {
-            sum += bits[i] << i;
-        }
-        return sum;
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Gets the format events are streamed in.
+     * @return the output format
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Sets the format events are streamed in (only used when streaming).
+     * @param outputFormat the output format
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
     }
 
     /*
      * (non-Javadoc)
-     * @see jaw64.ca.interpreter.Interpreter#interpret(jaw64.ca.CellularAutomaton)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
      */
     @Override
-    public void interpret(CellularAutomaton ca) {
+    public void begin(CellularAutomaton ca) {
         // Error-checking.
         CellGroupDimensions dim = ca.getDimensions();
         if (dim.getNumDimensions() != 1) {
@@ -157,42 +244,133 @@ public class MikeyJInterp implements Interpreter {
             throw new IllegalArgumentException(String.format(
                     "MikeyJInterp requires CA to be at least %d cells big.", REQUIRED_SIZE));
         }
+        currDuration = 0.0;
+        if (!streaming) {
+            events = new ArrayList<>();
+            return;
+        }
+        Path file = Paths.get(path);
+        try {
+            if (outputFormat == OutputFormat.BINARY) {
+                binaryOut = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(file), STREAM_BUFFER_SIZE));
+                binaryOut.write(BINARY_HEADER);
+            }
+            else {
+                textOut = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup cg) {
+        if (currDuration >= minDuration) {
+            return false;
+        }
         // Interpret!
-        List<MJEvent> events = new ArrayList<>();
-        int currIteration = 0;
-        double currDuration = 0.0;
-        while (currDuration < minDuration) {
-            CellGroup cg = ca.getIteration(currIteration);
-            int[] bits = getRequiredBits(cg);
-            int[] songBits = Arrays.copyOfRange(bits, 0, 3);
-            int[] durationBits = Arrays.copyOfRange(bits, 3, 6);
-            int[] startingBits = Arrays.copyOfRange(bits, 6, 10);
-            int[] idBits = Arrays.copyOfRange(bits, 10, 13);
-            Song song = SONG_MAP[bitsToInt(songBits)];
-            int duration = DURATION_MAP[bitsToInt(durationBits)];
-            int maxStart = SAMPLE_SIZE - duration;
-            int startingBeat = Math.min(4 * bitsToInt(startingBits), maxStart);
-            int id = 0;
-            if (song.numSamples > 1) {
-                id = bitsToInt(idBits) % song.numSamples;
+        long bits = FIELDS.read(cg, bitOffset);
+        Song song = SONG_MAP[FIELDS.getField(bits, SONG_FIELD)];
+        int duration = DURATION_MAP[FIELDS.getField(bits, DURATION_FIELD)];
+        int maxStart = SAMPLE_SIZE - duration;
+        int startingBeat = Math.min(4 * FIELDS.getField(bits, START_FIELD), maxStart);
+        int id = 0;
+        if (song.numSamples > 1) {
+            id = FIELDS.getField(bits, ID_FIELD) % song.numSamples;
+        }
+        if (!streaming) {
+            events.add(new MJEvent(song, id, startingBeat, duration));
+        }
+        else {
+            try {
+                writeEvent(song, id, startingBeat, duration);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        double durationSeconds = duration * BEAT_DURATION;
+        currDuration += durationSeconds;
+        return currDuration < minDuration;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#end()
+     */
+    @Override
+    public void end() {
+        if (streaming) {
+            try {
+                if (binaryOut != null) {
+                    binaryOut.close();
+                }
+                if (textOut != null) {
+                    textOut.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            MJEvent mj = new MJEvent(song, id, startingBeat, duration);
-            events.add(mj);
-            double durationSeconds = duration * BEAT_DURATION;
-            currDuration += durationSeconds;
-            currIteration++;
+            binaryOut = null;
+            textOut = null;
+            return;
         }
         // Write to output file:
         List<String> lines = new ArrayList<>(events.size());
         for (MJEvent e : events) {
             lines.add(e.toString());
         }
+        events = null;
         Path file = Paths.get(path);
         try {
             Files.write(file, lines, Charset.forName("UTF-8"));
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a single event to the streaming output (in the same form as
+     * {@link MJEvent#toString()} for {@link OutputFormat#TEXT}).
+     * @param song the song of the event
+     * @param id the sample id of the song
+     * @param startingBeat the beat to begin the sample
+     * @param duration the duration of the sample (in beats)
+     * @throws IOException if the event cannot be written
+     */
+    private void writeEvent(Song song, int id, int startingBeat, int duration)
+            throws IOException {
+        if (binaryOut != null) {
+            binaryOut.writeShort(song.ordinal() | (id << 3) | (startingBeat << 6)
+                    | ((duration - 1) << 12));
+            return;
+        }
+        textOut.write(song.name());
+        textOut.write(" -- sample ");
+        writeNumber(id);
+        textOut.write(", starts on beat ");
+        writeNumber(startingBeat);
+        textOut.write(", lasts for ");
+        writeNumber(duration);
+        textOut.write(" beats");
+        textOut.newLine();
+    }
+
+    /**
+     * Writes a small non-negative number to the text output without
+     * allocating a string.
+     * @param n the number (less than 100)
+     * @throws IOException if the number cannot be written
+     */
+    private void writeNumber(int n) throws IOException {
+        if (n >= 10) {
+            textOut.write('0' + n / 10);
         }
+        textOut.write('0' + n % 10);
     }
 
     /**
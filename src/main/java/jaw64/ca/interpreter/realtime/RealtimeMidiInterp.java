@@ -0,0 +1,661 @@
+package jaw64.ca.interpreter.realtime;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.exceptions.PipelineException;
+import jaw64.ca.interpreter.IncrementalInterpreter;
+import jaw64.ca.interpreter.mapping.BitFieldMapping;
+import jaw64.ca.interpreter.mapping.ExtractionPlan;
+import jaw64.ca.io.MidiFileWriter;
+
+/**
+ * Plays a cellular automaton in real time, sending the notes described by a
+ * {@link BitFieldMapping} (as for {@link BitFieldMapping.OutputType#NOTES}) to
+ * a MIDI {@link Receiver} as they become due.<br>
+ * <br>
+ * {@link #interpret(CellularAutomaton)} steps the automaton on a background
+ * thread up to a configurable number of generations ahead of playback, which
+ * happens on the calling thread. Only the decoded notes are buffered (not the
+ * cell groups), so a long look-ahead over a large automaton costs almost no
+ * memory and the playback thread is not stalled collecting garbage; large
+ * automata should also be created with a small cache (see
+ * {@link jaw64.ca.DefaultCellularAutomaton#DefaultCellularAutomaton(jaw64.ca.CellGroup, jaw64.ca.rules.Rule, int)}).
+ * While it is comfortably ahead, the look-ahead thread only starts stepping
+ * a generation if the step (judging by recent ones) will finish before the
+ * next event is due, so playback is not held up waiting for a processor (or
+ * for a collection the step triggers) even on a single core.
+ * When fed generations through {@link #onGeneration(int, CellGroup)} instead,
+ * each note is played as soon as its generation arrives.<br>
+ * <br>
+ * Every event is scheduled against the absolute start time of the
+ * performance rather than the previous event, so timing errors never
+ * accumulate into drift. How late each event was sent and how far each
+ * inter-onset interval strayed from the score are recorded in
+ * {@link TimingHistogram}s.
+ * @author jaw64
+ */
+public class RealtimeMidiInterp implements IncrementalInterpreter {
+
+    /**
+     * The default number of generations stepped ahead of playback.
+     */
+    public static final int DEFAULT_LOOK_AHEAD = 16;
+
+    /**
+     * How long before an event the playback thread stops sleeping and starts
+     * spinning (sleeps are far less precise than the clock). Spinning never
+     * yields, since yielding to the look-ahead thread on a busy core can give
+     * away a whole time slice.
+     */
+    private static final long SPIN_NANOS = 500000L;
+
+    /**
+     * How late an event may be sent before it counts as late.
+     */
+    private static final long LATE_THRESHOLD_NANOS = 1000000L;
+
+    /**
+     * The time the look-ahead thread leaves between the end of a step and
+     * the next event, on top of the time playback spins.
+     */
+    private static final long STEP_GUARD_NANOS = 2000000L;
+
+    private static final int DEFAULT_DURATION = MidiFileWriter.DEFAULT_RESOLUTION / 4;
+
+    private static final int DEFAULT_VELOCITY = 85;
+
+    private static final double NOTE_LENGTH_RATIO = 0.9;
+
+    /**
+     * The number of generations to play.
+     */
+    private final int numGenerations;
+
+    /**
+     * The compiled mapping.
+     */
+    private final ExtractionPlan plan;
+
+    /**
+     * The number of cells from the first cell of the cell group that field
+     * offsets are relative to.
+     */
+    private final int bitOffset;
+
+    /**
+     * The receiver notes are sent to.
+     */
+    private final Receiver receiver;
+
+    /**
+     * The length of a MIDI tick (in nanoseconds).
+     */
+    private final double nanosPerTick;
+
+    /**
+     * The decoded value of each field (reused for every generation).
+     */
+    private final int[] values;
+
+    private final int pitchField;
+
+    private final int durationField;
+
+    private final int velocityField;
+
+    private final int channelField;
+
+    /**
+     * How late each event was sent.
+     */
+    private final TimingHistogram latenessHistogram;
+
+    /**
+     * How far each inter-onset interval differed from the scheduled interval.
+     */
+    private final TimingHistogram jitterHistogram;
+
+    /**
+     * The number of generations stepped ahead of playback.
+     */
+    private int lookAhead;
+
+    /**
+     * The number of times playback had to wait for a generation to be stepped.
+     */
+    private volatile long underruns;
+
+    /**
+     * Whether playback should stop at the next generation.
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * The number of events sent later than {@link #LATE_THRESHOLD_NANOS}.
+     */
+    private volatile long lateEvents;
+
+    /**
+     * The earliest time the next event may be due (in {@link System#nanoTime()}
+     * nanoseconds), or {@link Long#MAX_VALUE} before playback starts.
+     */
+    private volatile long nextEventNanos;
+
+    /**
+     * The time playback started (in {@link System#nanoTime()} nanoseconds), or
+     * -1 before the first generation.
+     */
+    private long startNanos;
+
+    /**
+     * The scheduled time of the next note (in ticks from the start).
+     */
+    private long currTick;
+
+    /**
+     * The scheduled and actual times of the previous note on (in nanoseconds),
+     * or -1 before the first note.
+     */
+    private long prevOnsetTarget;
+
+    private long prevOnsetActual;
+
+    /**
+     * (constructor) Creates a real-time MIDI interpreter.
+     * @param numGenerations the number of generations to play
+     * @param mapping the mapping from cells to notes (compiled immediately)
+     * @param bitOffset the number of cells from the first cell of the cell
+     * group that field offsets are relative to
+     * @param receiver the receiver to send notes to
+     * @param bpm the tempo (in quarter notes per minute)
+     */
+    public RealtimeMidiInterp(int numGenerations, BitFieldMapping mapping, int bitOffset,
+            Receiver receiver, double bpm) {
+        if (bpm <= 0.0) {
+            throw new IllegalArgumentException("Tempo must be positive.");
+        }
+        this.numGenerations = Math.max(0, numGenerations);
+        this.plan = mapping.compile();
+        this.bitOffset = Math.max(0, bitOffset);
+        this.receiver = receiver;
+        this.nanosPerTick = 60e9 / (bpm * MidiFileWriter.DEFAULT_RESOLUTION);
+        this.values = new int[plan.getNumFields()];
+        this.pitchField = plan.indexOf(BitFieldMapping.PITCH);
+        this.durationField = plan.indexOf(BitFieldMapping.DURATION);
+        this.velocityField = plan.indexOf(BitFieldMapping.VELOCITY);
+        this.channelField = plan.indexOf(BitFieldMapping.CHANNEL);
+        this.latenessHistogram = new TimingHistogram();
+        this.jitterHistogram = new TimingHistogram();
+        this.lookAhead = DEFAULT_LOOK_AHEAD;
+        if (pitchField < 0) {
+            throw new IllegalArgumentException(
+                    "Note mappings require a '" + BitFieldMapping.PITCH + "' field.");
+        }
+    }
+
+    /**
+     * Gets the number of generations stepped ahead of playback.
+     * @return the look-ahead (in generations)
+     */
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * Sets the number of generations stepped ahead of playback. A longer
+     * look-ahead absorbs generations that are occasionally slow to step.
+     * @param lookAhead the look-ahead (in generations, at least 1)
+     */
+    public void setLookAhead(int lookAhead) {
+        if (lookAhead < 1) {
+            throw new IllegalArgumentException("Look-ahead must be at least 1 generation.");
+        }
+        this.lookAhead = lookAhead;
+    }
+
+    /**
+     * Stops playback after the current note (may be called from any thread).
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Gets how late each event was sent relative to its scheduled time.
+     * @return the lateness histogram
+     */
+    public TimingHistogram getLatenessHistogram() {
+        return latenessHistogram;
+    }
+
+    /**
+     * Gets how far each interval between consecutive note ons differed from
+     * the scheduled interval.
+     * @return the jitter histogram
+     */
+    public TimingHistogram getJitterHistogram() {
+        return jitterHistogram;
+    }
+
+    /**
+     * Gets the number of events sent more than a millisecond late.
+     * @return the number of late events
+     */
+    public long getLateEvents() {
+        return lateEvents;
+    }
+
+    /**
+     * Gets the number of times playback had to wait for the look-ahead thread
+     * (each of which probably made the following events late).
+     * @return the number of underruns
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Plays the cellular automaton on the calling thread while a background
+     * thread steps it ahead, and returns once playback has finished.
+     * @param ca the cellular automaton to play
+     * @throws PipelineException if stepping the automaton fails
+     */
+    @Override
+    public void interpret(CellularAutomaton ca) {
+        begin(ca);
+        LookAhead ahead = new LookAhead(ca, lookAhead);
+        Thread producer = new Thread(ahead::produce, "ca-midi-look-ahead");
+        producer.setDaemon(true);
+        producer.start();
+        try {
+            ahead.awaitPreroll();
+            for (int iteration = 0; iteration < numGenerations && !stopRequested; iteration++) {
+                if (!ahead.take()) {
+                    break;
+                }
+                playNote(ahead.pitch, ahead.duration, ahead.velocity, ahead.channel);
+            }
+        } finally {
+            ahead.close();
+        }
+        joinUninterruptibly(producer);
+        if (ahead.failure != null) {
+            throw new PipelineException("Look-ahead generation failed.", ahead.failure);
+        }
+        end();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#begin(jaw64.ca.CellularAutomaton)
+     */
+    @Override
+    public void begin(CellularAutomaton ca) {
+        // Error-checking.
+        if (ca.getDimensions().getNumElements() < plan.getRequiredCells() + bitOffset) {
+            throw new IllegalArgumentException(String.format(
+                    "RealtimeMidiInterp requires CA to be at least %d cells big.",
+                    plan.getRequiredCells() + bitOffset));
+        }
+        stopRequested = false;
+        lateEvents = 0;
+        underruns = 0;
+        latenessHistogram.reset();
+        jitterHistogram.reset();
+        startNanos = -1;
+        nextEventNanos = Long.MAX_VALUE;
+        currTick = 0;
+        prevOnsetTarget = -1;
+        prevOnsetActual = -1;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.pipeline.GenerationConsumer#onGeneration(int, jaw64.ca.CellGroup)
+     */
+    @Override
+    public boolean onGeneration(int iteration, CellGroup group) {
+        if (iteration >= numGenerations || stopRequested) {
+            return false;
+        }
+        plan.decode(group, bitOffset, values);
+        playNote(values[pitchField], getDuration(), getVelocity(), getChannel());
+        return iteration + 1 < numGenerations && !stopRequested;
+    }
+
+    /**
+     * Gets the duration of the note just decoded.
+     * @return the duration (in ticks)
+     */
+    private int getDuration() {
+        return durationField < 0 ? DEFAULT_DURATION : Math.max(0, values[durationField]);
+    }
+
+    /**
+     * Gets the velocity of the note just decoded, clamped to 1-127 (a
+     * velocity of 0 would end the note at once).
+     * @return the velocity
+     */
+    private int getVelocity() {
+        return velocityField < 0 ? DEFAULT_VELOCITY
+                : Math.max(1, Math.min(127, values[velocityField]));
+    }
+
+    /**
+     * Gets the MIDI channel of the note just decoded.
+     * @return the channel
+     */
+    private int getChannel() {
+        return channelField < 0 ? 0 : values[channelField] & 0xF;
+    }
+
+    /**
+     * Plays a note at its scheduled time (the schedule starts with the first note).
+     * @param pitch the note number (outside 0-127 for a rest)
+     * @param duration the duration of the note (in ticks)
+     * @param velocity the velocity of the note
+     * @param channel the MIDI channel of the note
+     */
+    private void playNote(int pitch, int duration, int velocity, int channel) {
+        if (startNanos < 0) {
+            startNanos = System.nanoTime();
+        }
+        if (pitch >= 0 && pitch <= 127 && duration > 0) {
+            long onTarget = tickToNanos(currTick);
+            long onActual = send(ShortMessage.NOTE_ON, channel, pitch, velocity, onTarget);
+            if (prevOnsetTarget >= 0) {
+                jitterHistogram.record((onActual - prevOnsetActual) - (onTarget - prevOnsetTarget));
+            }
+            prevOnsetTarget = onTarget;
+            prevOnsetActual = onActual;
+            long offTick = currTick + Math.max(1, Math.round(duration * NOTE_LENGTH_RATIO));
+            send(ShortMessage.NOTE_OFF, channel, pitch, 0, tickToNanos(offTick));
+        }
+        currTick += duration;
+        nextEventNanos = tickToNanos(currTick);
+    }
+
+    /**
+     * Converts a time in ticks from the start of playback to a
+     * {@link System#nanoTime()} time.
+     * @param tick the time (in ticks)
+     * @return the time (in nanoseconds)
+     */
+    private long tickToNanos(long tick) {
+        return startNanos + Math.round(tick * nanosPerTick);
+    }
+
+    /**
+     * Waits until an event is due, then sends it and records how late it was.
+     * @param command the MIDI command
+     * @param channel the MIDI channel
+     * @param data1 the first data byte
+     * @param data2 the second data byte
+     * @param target when the event is due (in {@link System#nanoTime()} nanoseconds)
+     * @return when the event was sent (in {@link System#nanoTime()} nanoseconds)
+     */
+    private long send(int command, int channel, int data1, int data2, long target) {
+        ShortMessage message;
+        try {
+            message = new ShortMessage(command, channel, data1, data2);
+        } catch (InvalidMidiDataException e) {
+            throw new IllegalArgumentException(e);
+        }
+        nextEventNanos = target;
+        waitUntil(target);
+        long now = System.nanoTime();
+        receiver.send(message, -1);
+        long lateness = now - target;
+        latenessHistogram.record(lateness);
+        if (lateness > LATE_THRESHOLD_NANOS) {
+            lateEvents++;
+        }
+        return now;
+    }
+
+    /**
+     * Waits for a thread to die, even if the calling thread is interrupted
+     * (the interrupt status is restored afterwards).
+     * @param t the thread to wait for
+     */
+    private static void joinUninterruptibly(Thread t) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                t.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A bounded ring of decoded notes filled by the look-ahead thread and
+     * emptied by playback. All fields are guarded by {@link #lock}, except the
+     * fields of the note just taken, which belong to the playback thread.
+     * @author jaw64
+     */
+    private final class LookAhead {
+
+        private final CellularAutomaton ca;
+
+        private final int[] pitches;
+
+        private final int[] durations;
+
+        private final int[] velocities;
+
+        private final int[] channels;
+
+        private final ReentrantLock lock;
+
+        private final Condition notFull;
+
+        private final Condition notEmpty;
+
+        /**
+         * The number of notes produced and taken so far.
+         */
+        private long produced;
+
+        private long taken;
+
+        /**
+         * Whether the producer has stopped producing.
+         */
+        private boolean finished;
+
+        /**
+         * Whether playback has stopped taking notes.
+         */
+        private boolean closed;
+
+        /**
+         * How long a step takes (the longest recent step, decaying), owned by
+         * the look-ahead thread.
+         */
+        private long stepNanos;
+
+        /**
+         * The failure of the look-ahead thread, if any.
+         */
+        private Throwable failure;
+
+        /**
+         * The note just taken by playback.
+         */
+        int pitch;
+
+        int duration;
+
+        int velocity;
+
+        int channel;
+
+        LookAhead(CellularAutomaton ca, int capacity) {
+            this.ca = ca;
+            this.pitches = new int[capacity];
+            this.durations = new int[capacity];
+            this.velocities = new int[capacity];
+            this.channels = new int[capacity];
+            this.lock = new ReentrantLock();
+            this.notFull = lock.newCondition();
+            this.notEmpty = lock.newCondition();
+        }
+
+        /**
+         * Steps the automaton and decodes its notes into the ring (runs on
+         * the look-ahead thread).
+         */
+        void produce() {
+            try {
+                for (int i = 0; i < numGenerations; i++) {
+                    awaitRoomForStep();
+                    long stepStart = System.nanoTime();
+                    CellGroup group = ca.getIteration(i);
+                    plan.decode(group, bitOffset, values);
+                    stepNanos = Math.max(System.nanoTime() - stepStart, stepNanos - (stepNanos >> 3));
+                    lock.lock();
+                    try {
+                        while (!closed && produced - taken >= pitches.length) {
+                            notFull.awaitUninterruptibly();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        int slot = (int) (produced % pitches.length);
+                        pitches[slot] = values[pitchField];
+                        durations[slot] = getDuration();
+                        velocities[slot] = getVelocity();
+                        channels[slot] = getChannel();
+                        produced++;
+                        notEmpty.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                lock.lock();
+                try {
+                    failure = e;
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                lock.lock();
+                try {
+                    finished = true;
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Waits while the ring is more than half full and the next event is
+         * due too soon for a step to finish before it (runs on the look-ahead
+         * thread).
+         */
+        private void awaitRoomForStep() {
+            while (true) {
+                lock.lock();
+                try {
+                    if (closed || produced - taken <= pitches.length / 2) {
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                long untilEvent = nextEventNanos - System.nanoTime();
+                if (untilEvent > stepNanos + SPIN_NANOS + STEP_GUARD_NANOS) {
+                    return;
+                }
+                LockSupport.parkNanos(Math.max(0, untilEvent) + SPIN_NANOS);
+            }
+        }
+
+        /**
+         * Waits until the ring is more than half full (or the look-ahead
+         * thread has finished), so playback starts with room for the
+         * look-ahead thread to keep out of its way (runs on the playback thread).
+         */
+        void awaitPreroll() {
+            lock.lock();
+            try {
+                while (produced <= pitches.length / 2 && !finished) {
+                    notEmpty.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes the next note, waiting for it if needed (runs on the playback thread).
+         * @return true if a note was taken, false if there are no more notes
+         */
+        boolean take() {
+            lock.lock();
+            try {
+                if (taken == produced && !finished) {
+                    underruns++;
+                    do {
+                        notEmpty.awaitUninterruptibly();
+                    } while (taken == produced && !finished);
+                }
+                if (taken == produced) {
+                    return false;
+                }
+                int slot = (int) (taken % pitches.length);
+                pitch = pitches[slot];
+                duration = durations[slot];
+                velocity = velocities[slot];
+                channel = channels[slot];
+                taken++;
+                notFull.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Tells the look-ahead thread to stop.
+         */
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until the provided time, sleeping while it is far off and spinning
+     * once it is close.
+     * @param target the time to wait for (in {@link System#nanoTime()} nanoseconds)
+     */
+    private static void waitUntil(long target) {
+        long remaining;
+        while ((remaining = target - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while (System.nanoTime() < target) {
+            // Spin.
+        }
+    }
+}
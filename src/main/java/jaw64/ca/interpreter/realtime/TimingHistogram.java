@@ -0,0 +1,131 @@
+package jaw64.ca.interpreter.realtime;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of timing errors with logarithmic buckets: bucket 0 counts
+ * errors under 1 microsecond and bucket {@code i} counts errors from
+ * {@code 2^(i-1)} up to {@code 2^i} microseconds. Recording is constant time
+ * and allocation-free.
+ * @author jaw64
+ */
+public class TimingHistogram {
+
+    /**
+     * The number of buckets (the last bucket also counts anything larger).
+     */
+    public static final int NUM_BUCKETS = 32;
+
+    private final long[] buckets;
+
+    private long count;
+
+    private long totalNanos;
+
+    private long maxNanos;
+
+    /**
+     * (constructor) Creates an empty histogram.
+     */
+    public TimingHistogram() {
+        this.buckets = new long[NUM_BUCKETS];
+    }
+
+    /**
+     * Records a timing error.
+     * @param nanos the size of the error (in nanoseconds, negative values count as their magnitude)
+     */
+    public synchronized void record(long nanos) {
+        nanos = Math.abs(nanos);
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(micros);
+        buckets[Math.min(bucket, NUM_BUCKETS - 1)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Clears every recorded error.
+     */
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * Gets the number of errors recorded.
+     * @return the number of errors
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of errors recorded in a bucket.
+     * @param bucket the index of the bucket
+     * @return the number of errors in the bucket
+     */
+    public synchronized long getBucketCount(int bucket) {
+        return buckets[bucket];
+    }
+
+    /**
+     * Gets the (exclusive) upper bound of a bucket.
+     * @param bucket the index of the bucket
+     * @return the upper bound (in microseconds)
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    /**
+     * Gets the largest error recorded.
+     * @return the largest error (in nanoseconds)
+     */
+    public synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Gets the average error recorded.
+     * @return the average error (in nanoseconds), or 0 if nothing was recorded
+     */
+    public synchronized double getMeanNanos() {
+        return count == 0 ? 0.0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Gets an upper bound of a percentile of the errors recorded.
+     * @param percentile the percentile (0-100)
+     * @return the upper bound of the bucket holding the percentile (in
+     * microseconds), or 0 if nothing was recorded
+     */
+    public synchronized long getPercentileMicros(double percentile) {
+        long rank = (long) Math.ceil(count * Math.max(0.0, Math.min(100.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return getBucketUpperBoundMicros(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("count=%d mean=%.1fus max=%.1fus", count, getMeanNanos() / 1e3,
+                maxNanos / 1e3));
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if (buckets[i] > 0) {
+                sb.append(String.format("%n  <%dus: %d", getBucketUpperBoundMicros(i),
+                        buckets[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
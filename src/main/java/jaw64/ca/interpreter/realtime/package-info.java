@@ -0,0 +1,5 @@
+/**
+ * Package for interpreters that play cellular automata in real time.
+ * @author jaw64
+ */
+package jaw64.ca.interpreter.realtime;
@@ -0,0 +1,414 @@
+package jaw64.ca.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes an animated GIF one frame at a time. Each frame is compared with
+ * the previous one and only the rectangle enclosing the changed pixels is
+ * LZW-encoded (on top of the previous frame, which is never disposed). Only
+ * the previous frame and the encoder's fixed-size tables are held in memory,
+ * regardless of the number of frames.
+ * @author jaw64
+ */
+public class GifWriter implements Closeable {
+
+    /**
+     * The largest code allowed by GIF's LZW variant (plus one).
+     */
+    private static final int MAX_CODES = 1 << 12;
+
+    /**
+     * The size of the LZW string table's hash table (a prime ~ 80% occupancy).
+     */
+    private static final int HASH_SIZE = 5003;
+
+    /**
+     * The shift used to hash (pixel, prefix code) pairs into the hash table.
+     */
+    private static final int HASH_SHIFT = 4;
+
+    /**
+     * GIF disposal method leaving the frame in place for the next one.
+     */
+    private static final int DISPOSE_NONE = 1;
+
+    /**
+     * The stream the animation is written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The width of each frame (in pixels).
+     */
+    private final int width;
+
+    /**
+     * The height of each frame (in pixels).
+     */
+    private final int height;
+
+    /**
+     * The delay between frames (in hundredths of a second).
+     */
+    private final int delayCentis;
+
+    /**
+     * The number of bits per palette index (at least 2, as LZW requires).
+     */
+    private final int colorBits;
+
+    /**
+     * The previous frame, or null before the first frame.
+     */
+    private byte[] previous;
+
+    /**
+     * The number of frames written so far.
+     */
+    private int framesWritten;
+
+    /**
+     * LZW hash table of (pixel, prefix code) pairs.
+     */
+    private final int[] hashKeys;
+
+    /**
+     * LZW codes of the pairs in {@link #hashKeys}.
+     */
+    private final int[] hashCodes;
+
+    /**
+     * The current data sub-block (at most 255 bytes).
+     */
+    private final byte[] block;
+
+    private int blockLength;
+
+    private int bitAccumulator;
+
+    private int bitCount;
+
+    private int codeBits;
+
+    private int maxCode;
+
+    private int nextCode;
+
+    private boolean clearPending;
+
+    /**
+     * (constructor) Creates a GIF writer and writes the header, global palette
+     * and (optionally) the looping extension.
+     * @param out the stream to write to (closed when this writer is closed)
+     * @param width the width of each frame (in pixels)
+     * @param height the height of each frame (in pixels)
+     * @param palette the colors of the animation as 0xRRGGBB values (at most 256)
+     * @param delayCentis the delay between frames (in hundredths of a second)
+     * @param loop whether the animation should loop forever
+     * @throws IOException if the header cannot be written
+     */
+    public GifWriter(OutputStream out, int width, int height, int[] palette, int delayCentis,
+            boolean loop) throws IOException {
+        if (width < 1 || height < 1 || width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException(
+                    "GIF frames must be between 1 and 65535 pixels wide and high.");
+        }
+        if (palette.length < 1 || palette.length > 256) {
+            throw new IllegalArgumentException("GIF palette must have between 1 and 256 colors.");
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.delayCentis = Math.max(0, Math.min(0xFFFF, delayCentis));
+        int bits = 2;
+        while ((1 << bits) < palette.length) {
+            bits++;
+        }
+        this.colorBits = bits;
+        this.previous = null;
+        this.framesWritten = 0;
+        this.hashKeys = new int[HASH_SIZE];
+        this.hashCodes = new int[HASH_SIZE];
+        this.block = new byte[255];
+        this.writeHeader(palette, loop);
+    }
+
+    /**
+     * Gets the number of frames written so far.
+     * @return the number of frames
+     */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * Writes the next frame of the animation.
+     * @param frame the palette index of each pixel, row by row ({@code width * height} values)
+     * @throws IOException if the frame cannot be written
+     */
+    public void writeFrame(byte[] frame) throws IOException {
+        int left = 0;
+        int top = 0;
+        int right = width - 1;
+        int bottom = height - 1;
+        if (previous == null) {
+            previous = new byte[width * height];
+        }
+        else {
+            // Find the rectangle enclosing every changed pixel.
+            top = height;
+            bottom = -1;
+            left = width;
+            right = -1;
+            for (int y = 0; y < height; y++) {
+                int rowStart = y * width;
+                int x = 0;
+                while (x < width && frame[rowStart + x] == previous[rowStart + x]) {
+                    x++;
+                }
+                if (x == width) {
+                    continue;
+                }
+                int lastX = width - 1;
+                while (frame[rowStart + lastX] == previous[rowStart + lastX]) {
+                    lastX--;
+                }
+                top = Math.min(top, y);
+                bottom = y;
+                left = Math.min(left, x);
+                right = Math.max(right, lastX);
+            }
+            if (bottom < 0) {
+                // Nothing changed; repeat a single pixel to keep the timing.
+                top = 0;
+                bottom = 0;
+                left = 0;
+                right = 0;
+            }
+        }
+        writeGraphicControl();
+        writeImageDescriptor(left, top, right - left + 1, bottom - top + 1);
+        compress(frame, left, top, right - left + 1, bottom - top + 1);
+        System.arraycopy(frame, 0, previous, 0, frame.length);
+        framesWritten++;
+    }
+
+    /**
+     * Writes the GIF trailer.
+     * @throws IOException if the trailer cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(0x3B);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the GIF header, logical screen descriptor, global color table and
+     * looping extension.
+     * @param palette the colors of the animation
+     * @param loop whether the animation should loop forever
+     * @throws IOException if the header cannot be written
+     */
+    private void writeHeader(int[] palette, boolean loop) throws IOException {
+        out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+        writeShort(width);
+        writeShort(height);
+        out.write(0x80 | 0x70 | (colorBits - 1)); // global color table, 8-bit color resolution
+        out.write(0); // background color index
+        out.write(0); // no pixel aspect ratio
+        byte[] table = new byte[3 << colorBits];
+        for (int i = 0; i < palette.length; i++) {
+            table[3 * i] = (byte) (palette[i] >> 16);
+            table[3 * i + 1] = (byte) (palette[i] >> 8);
+            table[3 * i + 2] = (byte) palette[i];
+        }
+        out.write(table);
+        if (loop) {
+            out.write(new byte[] { 0x21, (byte) 0xFF, 0x0B });
+            out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+            out.write(new byte[] { 0x03, 0x01, 0x00, 0x00, 0x00 }); // loop forever
+        }
+    }
+
+    /**
+     * Writes the graphic control extension (delay and disposal) of a frame.
+     * @throws IOException if the extension cannot be written
+     */
+    private void writeGraphicControl() throws IOException {
+        out.write(0x21);
+        out.write(0xF9);
+        out.write(4);
+        out.write(DISPOSE_NONE << 2);
+        writeShort(delayCentis);
+        out.write(0); // no transparent color
+        out.write(0);
+    }
+
+    /**
+     * Writes the image descriptor of a frame's (changed) rectangle.
+     * @param left the left edge of the rectangle
+     * @param top the top edge of the rectangle
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @throws IOException if the descriptor cannot be written
+     */
+    private void writeImageDescriptor(int left, int top, int w, int h) throws IOException {
+        out.write(0x2C);
+        writeShort(left);
+        writeShort(top);
+        writeShort(w);
+        writeShort(h);
+        out.write(0); // no local color table, not interlaced
+    }
+
+    /**
+     * LZW-encodes a rectangle of a frame into data sub-blocks.
+     * @param frame the frame
+     * @param left the left edge of the rectangle
+     * @param top the top edge of the rectangle
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @throws IOException if the data cannot be written
+     */
+    private void compress(byte[] frame, int left, int top, int w, int h) throws IOException {
+        final int clearCode = 1 << colorBits;
+        final int endCode = clearCode + 1;
+        out.write(colorBits);
+        blockLength = 0;
+        bitAccumulator = 0;
+        bitCount = 0;
+        codeBits = colorBits + 1;
+        maxCode = (1 << codeBits) - 1;
+        resetTable(clearCode);
+        clearPending = false;
+        writeCode(clearCode);
+        int prefix = frame[top * width + left] & 0xFF;
+        int x = 1;
+        for (int y = top; y < top + h; y++) {
+            final int rowStart = y * width + left;
+            for (; x < w; x++) {
+                final int pixel = frame[rowStart + x] & 0xFF;
+                final int key = (pixel << 12) + prefix;
+                int i = (pixel << HASH_SHIFT) ^ prefix;
+                if (hashKeys[i] == key) {
+                    prefix = hashCodes[i];
+                    continue;
+                }
+                if (hashKeys[i] >= 0) {
+                    final int step = i == 0 ? 1 : HASH_SIZE - i;
+                    boolean found = false;
+                    do {
+                        i -= step;
+                        if (i < 0) {
+                            i += HASH_SIZE;
+                        }
+                        if (hashKeys[i] == key) {
+                            found = true;
+                            break;
+                        }
+                    } while (hashKeys[i] >= 0);
+                    if (found) {
+                        prefix = hashCodes[i];
+                        continue;
+                    }
+                }
+                writeCode(prefix);
+                prefix = pixel;
+                if (nextCode < MAX_CODES) {
+                    hashCodes[i] = nextCode++;
+                    hashKeys[i] = key;
+                }
+                else {
+                    resetTable(clearCode);
+                    clearPending = true;
+                    writeCode(clearCode);
+                }
+            }
+            x = 0;
+        }
+        writeCode(prefix);
+        writeCode(endCode);
+        if (bitCount > 0) {
+            writeByte(bitAccumulator & 0xFF);
+        }
+        flushBlock();
+        out.write(0); // block terminator
+    }
+
+    /**
+     * Empties the LZW string table (the code width is reset once the clear
+     * code has been written).
+     * @param clearCode the clear code
+     */
+    private void resetTable(int clearCode) {
+        Arrays.fill(hashKeys, -1);
+        nextCode = clearCode + 2;
+    }
+
+    /**
+     * Appends a code to the bit stream (least significant bits first), then
+     * widens the codes if the string table has outgrown the current width.
+     * @param code the code to append
+     * @throws IOException if a sub-block cannot be written
+     */
+    private void writeCode(int code) throws IOException {
+        bitAccumulator |= code << bitCount;
+        bitCount += codeBits;
+        while (bitCount >= 8) {
+            writeByte(bitAccumulator & 0xFF);
+            bitAccumulator >>>= 8;
+            bitCount -= 8;
+        }
+        if (clearPending) {
+            codeBits = colorBits + 1;
+            maxCode = (1 << codeBits) - 1;
+            clearPending = false;
+        }
+        else if (nextCode > maxCode) {
+            codeBits++;
+            maxCode = codeBits == 12 ? MAX_CODES : (1 << codeBits) - 1;
+        }
+    }
+
+    /**
+     * Appends a byte to the current data sub-block.
+     * @param b the byte to append
+     * @throws IOException if the sub-block cannot be written
+     */
+    private void writeByte(int b) throws IOException {
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Writes the current data sub-block (if it holds anything).
+     * @throws IOException if the sub-block cannot be written
+     */
+    private void flushBlock() throws IOException {
+        if (blockLength > 0) {
+            out.write(blockLength);
+            out.write(block, 0, blockLength);
+            blockLength = 0;
+        }
+    }
+
+    /**
+     * Writes a little-endian 16-bit value.
+     * @param value the value to write
+     * @throws IOException if the value cannot be written
+     */
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+}
@@ -0,0 +1,345 @@
+package jaw64.ca.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a Standard MIDI File (format 0 or 1) event by event. Events are
+ * encoded with variable-length delta times (and running status) into a
+ * buffer which is flushed to the file as it fills up; each track's length
+ * and the number of tracks are patched into the file once they are known.
+ * Memory use is constant regardless of the number of events.
+ * @author jaw64
+ */
+public class MidiFileWriter implements Closeable {
+
+    /**
+     * The default number of ticks per quarter note.
+     */
+    public static final int DEFAULT_RESOLUTION = 480;
+
+    /**
+     * The size of the event buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The largest number of bytes a single event can take up (meta events
+     * written by this class included).
+     */
+    private static final int MAX_EVENT_SIZE = 16;
+
+    /**
+     * The largest delta time a variable-length quantity can hold (4 bytes).
+     */
+    private static final long MAX_DELTA = 0x0FFFFFFF;
+
+    /**
+     * The file offset of the number of tracks in the header chunk.
+     */
+    private static final long NUM_TRACKS_OFFSET = 10;
+
+    /**
+     * The file being written.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Events waiting to be written to the file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The SMF format (0 or 1).
+     */
+    private final int format;
+
+    /**
+     * The number of tracks begun so far.
+     */
+    private int numTracks;
+
+    /**
+     * The file offset of the current track's length, or -1 if no track is open.
+     */
+    private long trackLengthOffset;
+
+    /**
+     * The number of bytes written to the current track so far.
+     */
+    private long trackLength;
+
+    /**
+     * The absolute time of the previous event in the current track (in ticks).
+     */
+    private long lastTick;
+
+    /**
+     * The status byte of the previous channel event (for running status), or 0.
+     */
+    private int runningStatus;
+
+    /**
+     * (constructor) Creates a format 0 MIDI file with the default resolution.
+     * @param path the path of the file to write
+     * @throws IOException if the file cannot be created
+     */
+    public MidiFileWriter(Path path) throws IOException {
+        this(path, 0, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * (constructor) Creates a MIDI file and writes its header chunk.
+     * @param path the path of the file to write
+     * @param format the SMF format (0 for a single track, 1 for simultaneous tracks)
+     * @param resolution the number of ticks per quarter note
+     * @throws IOException if the file cannot be created
+     */
+    public MidiFileWriter(Path path, int format, int resolution) throws IOException {
+        if (format != 0 && format != 1) {
+            throw new IllegalArgumentException("Only MIDI file formats 0 and 1 are supported.");
+        }
+        if (resolution < 1 || resolution > 0x7FFF) {
+            throw new IllegalArgumentException("MIDI resolution must be between 1 and 32767.");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.format = format;
+        this.numTracks = 0;
+        this.trackLengthOffset = -1;
+        buffer.put(new byte[] { 'M', 'T', 'h', 'd' });
+        buffer.putInt(6);
+        buffer.putShort((short) format);
+        buffer.putShort((short) 0); // number of tracks, patched on close
+        buffer.putShort((short) resolution);
+    }
+
+    /**
+     * Begins a new track. Event times within the track start at tick 0.
+     * @throws IOException if the track header cannot be written
+     */
+    public void beginTrack() throws IOException {
+        if (trackLengthOffset >= 0) {
+            throw new IllegalStateException("The previous MIDI track has not been ended.");
+        }
+        if (format == 0 && numTracks == 1) {
+            throw new IllegalStateException("Format 0 MIDI files only have a single track.");
+        }
+        ensureCapacity(8);
+        buffer.put(new byte[] { 'M', 'T', 'r', 'k' });
+        trackLengthOffset = channel.position() + buffer.position();
+        buffer.putInt(0); // track length, patched when the track ends
+        trackLength = 0;
+        lastTick = 0;
+        runningStatus = 0;
+        numTracks++;
+    }
+
+    /**
+     * Writes a note on event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param channel the MIDI channel (0-15)
+     * @param key the note number (0-127)
+     * @param velocity the velocity (1-127)
+     * @throws IOException if the event cannot be written
+     */
+    public void noteOn(long tick, int channel, int key, int velocity) throws IOException {
+        writeChannelEvent(tick, 0x90 | channel, key, velocity);
+    }
+
+    /**
+     * Writes a note off event (as a note on with velocity 0, so interleaved
+     * note ons and offs share running status).
+     * @param tick the absolute time of the event (in ticks)
+     * @param channel the MIDI channel (0-15)
+     * @param key the note number (0-127)
+     * @throws IOException if the event cannot be written
+     */
+    public void noteOff(long tick, int channel, int key) throws IOException {
+        writeChannelEvent(tick, 0x90 | channel, key, 0);
+    }
+
+    /**
+     * Writes a program change event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param channel the MIDI channel (0-15)
+     * @param program the program (instrument) number (0-127)
+     * @throws IOException if the event cannot be written
+     */
+    public void programChange(long tick, int channel, int program) throws IOException {
+        writeChannelEvent(tick, 0xC0 | channel, program, -1);
+    }
+
+    /**
+     * Writes a tempo meta event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param bpm the tempo (in quarter notes per minute)
+     * @throws IOException if the event cannot be written
+     */
+    public void tempo(long tick, double bpm) throws IOException {
+        int microsPerQuarter = (int) Math.round(60000000.0 / bpm);
+        writeMetaEvent(tick, 0x51, (byte) (microsPerQuarter >> 16),
+                (byte) (microsPerQuarter >> 8), (byte) microsPerQuarter);
+    }
+
+    /**
+     * Writes a time signature meta event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param numerator the number of beats per bar
+     * @param denominator the beat unit (a power of two)
+     * @throws IOException if the event cannot be written
+     */
+    public void timeSignature(long tick, int numerator, int denominator) throws IOException {
+        int denominatorPower = Integer.numberOfTrailingZeros(denominator);
+        writeMetaEvent(tick, 0x58, (byte) numerator, (byte) denominatorPower, (byte) 24,
+                (byte) 8);
+    }
+
+    /**
+     * Writes a key signature meta event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param sharps the number of sharps (negative for flats)
+     * @param minor whether the key is minor
+     * @throws IOException if the event cannot be written
+     */
+    public void keySignature(long tick, int sharps, boolean minor) throws IOException {
+        writeMetaEvent(tick, 0x59, (byte) sharps, (byte) (minor ? 1 : 0));
+    }
+
+    /**
+     * Ends the current track and patches its length into the file.
+     * @param tick the absolute time of the end of the track (in ticks)
+     * @throws IOException if the track cannot be written
+     */
+    public void endTrack(long tick) throws IOException {
+        writeMetaEvent(tick, 0x2F);
+        flush();
+        ByteBuffer length = ByteBuffer.allocate(4);
+        length.putInt(0, (int) trackLength);
+        channel.write(length, trackLengthOffset);
+        trackLengthOffset = -1;
+    }
+
+    /**
+     * Patches the number of tracks into the file and closes it. Every track
+     * must have been ended.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (trackLengthOffset >= 0) {
+                throw new IllegalStateException("MIDI file closed before its last track ended.");
+            }
+            flush();
+            ByteBuffer tracks = ByteBuffer.allocate(2);
+            tracks.putShort(0, (short) numTracks);
+            channel.write(tracks, NUM_TRACKS_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a channel event (using running status when possible).
+     * @param tick the absolute time of the event (in ticks)
+     * @param status the status byte (including the channel)
+     * @param data1 the first data byte
+     * @param data2 the second data byte, or -1 if the event has only one
+     * @throws IOException if the event cannot be written
+     */
+    private void writeChannelEvent(long tick, int status, int data1, int data2)
+            throws IOException {
+        writeDelta(tick);
+        int start = buffer.position();
+        if (status != runningStatus) {
+            buffer.put((byte) status);
+            runningStatus = status;
+        }
+        buffer.put((byte) (data1 & 0x7F));
+        if (data2 >= 0) {
+            buffer.put((byte) (data2 & 0x7F));
+        }
+        trackLength += buffer.position() - start;
+    }
+
+    /**
+     * Writes a meta event.
+     * @param tick the absolute time of the event (in ticks)
+     * @param type the meta event type
+     * @param data the event data
+     * @throws IOException if the event cannot be written
+     */
+    private void writeMetaEvent(long tick, int type, byte... data) throws IOException {
+        writeDelta(tick);
+        int start = buffer.position();
+        buffer.put((byte) 0xFF);
+        buffer.put((byte) type);
+        buffer.put((byte) data.length);
+        buffer.put(data);
+        runningStatus = 0; // meta events cancel running status
+        trackLength += buffer.position() - start;
+    }
+
+    /**
+     * Writes the variable-length delta time from the previous event.
+     * @param tick the absolute time of the event (in ticks)
+     * @throws IOException if the buffer cannot be flushed
+     */
+    private void writeDelta(long tick) throws IOException {
+        if (trackLengthOffset < 0) {
+            throw new IllegalStateException("MIDI events must be written inside a track.");
+        }
+        if (tick < lastTick) {
+            throw new IllegalArgumentException(String.format(
+                    "MIDI event at tick %d is before the previous event (tick %d).", tick,
+                    lastTick));
+        }
+        if (tick - lastTick > MAX_DELTA) {
+            throw new IllegalArgumentException(String.format(
+                    "MIDI event at tick %d is more than %d ticks after the previous event (tick %d).",
+                    tick, MAX_DELTA, lastTick));
+        }
+        ensureCapacity(MAX_EVENT_SIZE);
+        int start = buffer.position();
+        long delta = tick - lastTick;
+        lastTick = tick;
+        int shift = 21;
+        while (shift > 0 && (delta >> shift) == 0) {
+            shift -= 7;
+        }
+        for (; shift > 0; shift -= 7) {
+            buffer.put((byte) (0x80 | ((delta >> shift) & 0x7F)));
+        }
+        buffer.put((byte) (delta & 0x7F));
+        trackLength += buffer.position() - start;
+    }
+
+    /**
+     * Makes sure the buffer has room for the provided number of bytes.
+     * @param bytes the number of bytes about to be written
+     * @throws IOException if the buffer cannot be flushed
+     */
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered events to the file.
+     * @throws IOException if the events cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,604 @@
+package jaw64.ca.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an indexed-color PNG image one row at a time. Rows are deflated as
+ * they arrive and flushed to the output stream in IDAT chunks, so only a
+ * single row (plus the compressor's window) is ever held in memory,
+ * regardless of the image height.<br>
+ * <br>
+ * When given a thread pool, the rows are instead split into independent
+ * blocks which are compressed in parallel (each block primed with the tail of
+ * the previous one and ended with a sync flush) and concatenated, in order,
+ * into a single zlib stream. The result decodes exactly like the serially
+ * compressed image, and only a bounded number of blocks are in flight at once.
+ * @author jaw64
+ */
+public class PngWriter implements Closeable {
+
+    /**
+     * The eight bytes every PNG file begins with.
+     */
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    /**
+     * The PNG color type for palette images.
+     */
+    private static final int COLOR_TYPE_INDEXED = 3;
+
+    /**
+     * The PNG filter type for unfiltered rows.
+     */
+    private static final int FILTER_NONE = 0;
+
+    /**
+     * The size of the raw row buffer and of each IDAT chunk.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The size of the raw blocks compressed in parallel.
+     */
+    private static final int BLOCK_SIZE = 1 << 17;
+
+    /**
+     * The size of the deflate window, i.e. the number of preceding bytes used
+     * to prime each parallel block.
+     */
+    private static final int WINDOW_SIZE = 1 << 15;
+
+    /**
+     * The zlib stream header (deflate, 32K window, default compression).
+     */
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9C };
+
+    /**
+     * The modulus of the Adler-32 checksum.
+     */
+    private static final long ADLER_BASE = 65521;
+
+    /**
+     * The stream the image is written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The width of the image (in pixels).
+     */
+    private final int width;
+
+    /**
+     * The height of the image (in pixels).
+     */
+    private final int height;
+
+    /**
+     * The number of bits per pixel (1, 2, 4 or 8).
+     */
+    private final int bitDepth;
+
+    /**
+     * The number of bytes in a packed row (without the filter byte).
+     */
+    private final int bytesPerRow;
+
+    /**
+     * Compresses the (filtered) rows, or null when compressing in parallel.
+     */
+    private final Deflater deflater;
+
+    /**
+     * The pool compressing blocks in parallel, or null when compressing serially.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * The maximum number of parallel blocks in flight at once.
+     */
+    private final int maxPendingBlocks;
+
+    /**
+     * The parallel blocks being compressed, in stream order.
+     */
+    private final Queue<Future<CompressedBlock>> pendingBlocks;
+
+    /**
+     * The last {@link #WINDOW_SIZE} bytes of the previous parallel block.
+     */
+    private byte[] dictionary;
+
+    /**
+     * The Adler-32 checksum of all parallel blocks written so far.
+     */
+    private long adler;
+
+    /**
+     * Unfiltered rows waiting to be compressed.
+     */
+    private final byte[] rawBuffer;
+
+    /**
+     * The number of bytes used in {@link #rawBuffer}.
+     */
+    private int rawLength;
+
+    /**
+     * Compressed data waiting to be written as an IDAT chunk.
+     */
+    private final byte[] chunkBuffer;
+
+    /**
+     * The number of bytes used in {@link #chunkBuffer}.
+     */
+    private int chunkLength;
+
+    /**
+     * The number of rows written so far.
+     */
+    private int rowsWritten;
+
+    /**
+     * Checksum of the chunk currently being written.
+     */
+    private final CRC32 crc;
+
+    /**
+     * (constructor) Creates a PNG writer and writes the image header and palette.
+     * @param out the stream to write to (closed when this writer is closed)
+     * @param width the width of the image (in pixels)
+     * @param height the height of the image (in pixels)
+     * @param bitDepth the number of bits per pixel (1, 2, 4 or 8)
+     * @param palette the colors of the image as 0xRRGGBB values (at most
+     *        {@code 2^bitDepth} colors)
+     * @throws IOException if the header cannot be written
+     */
+    public PngWriter(OutputStream out, int width, int height, int bitDepth, int[] palette)
+            throws IOException {
+        this(out, width, height, bitDepth, palette, null);
+    }
+
+    /**
+     * (constructor) Creates a PNG writer which compresses blocks of rows in
+     * parallel on the provided pool, and writes the image header and palette.
+     * @param out the stream to write to (closed when this writer is closed)
+     * @param width the width of the image (in pixels)
+     * @param height the height of the image (in pixels)
+     * @param bitDepth the number of bits per pixel (1, 2, 4 or 8)
+     * @param palette the colors of the image as 0xRRGGBB values (at most
+     *        {@code 2^bitDepth} colors)
+     * @param pool the pool to compress on (null to compress serially)
+     * @throws IOException if the header cannot be written
+     */
+    public PngWriter(OutputStream out, int width, int height, int bitDepth, int[] palette,
+            ExecutorService pool) throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("PNG images must be at least 1x1 pixels.");
+        }
+        if (bitDepth != 1 && bitDepth != 2 && bitDepth != 4 && bitDepth != 8) {
+            throw new IllegalArgumentException("PNG palette bit depth must be 1, 2, 4 or 8.");
+        }
+        if (palette.length < 1 || palette.length > (1 << bitDepth)) {
+            throw new IllegalArgumentException(String.format(
+                    "PNG palette must have between 1 and %d colors.", 1 << bitDepth));
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.bitDepth = bitDepth;
+        this.bytesPerRow = getBytesPerRow(width, bitDepth);
+        this.pool = pool;
+        this.deflater = pool == null ? new Deflater(Deflater.DEFAULT_COMPRESSION) : null;
+        this.maxPendingBlocks = 2 * Runtime.getRuntime().availableProcessors();
+        this.pendingBlocks = new ArrayDeque<>();
+        this.dictionary = null;
+        this.adler = 1;
+        int rawSize = pool == null ? BUFFER_SIZE : BLOCK_SIZE;
+        this.rawBuffer = new byte[Math.max(rawSize, bytesPerRow + 1)];
+        this.rawLength = 0;
+        this.chunkBuffer = new byte[BUFFER_SIZE];
+        this.chunkLength = 0;
+        this.rowsWritten = 0;
+        this.crc = new CRC32();
+        this.writeHeader(palette);
+        if (pool != null) {
+            // The serial compressor writes its own zlib header.
+            writeCompressed(ZLIB_HEADER, 0, ZLIB_HEADER.length);
+        }
+    }
+
+    /**
+     * Gets the number of bytes required to hold a row of packed pixels.
+     * @param width the width of the row (in pixels)
+     * @param bitDepth the number of bits per pixel
+     * @return the number of bytes in a packed row
+     */
+    public static int getBytesPerRow(int width, int bitDepth) {
+        return (width * bitDepth + 7) / 8;
+    }
+
+    /**
+     * Packs palette indices into a row of pixels (most significant bits first,
+     * as PNG requires). Only the lowest {@code bitDepth} bits of each index are used.
+     * @param indices the palette index of each pixel
+     * @param width the number of pixels in the row
+     * @param bitDepth the number of bits per pixel (1, 2, 4 or 8)
+     * @param dest the packed row (at least {@link #getBytesPerRow(int, int)} bytes)
+     */
+    public static void packRow(int[] indices, int width, int bitDepth, byte[] dest) {
+        if (bitDepth == 8) {
+            for (int i = 0; i < width; i++) {
+                dest[i] = (byte) indices[i];
+            }
+            return;
+        }
+        final int pixelsPerByte = 8 / bitDepth;
+        final int mask = (1 << bitDepth) - 1;
+        int pixel = 0;
+        for (int b = 0; pixel < width; b++) {
+            int packed = 0;
+            for (int j = 0; j < pixelsPerByte; j++, pixel++) {
+                int index = pixel < width ? indices[pixel] & mask : 0;
+                packed = (packed << bitDepth) | index;
+            }
+            dest[b] = (byte) packed;
+        }
+    }
+
+    /**
+     * Gets the number of bytes in a packed row of this image.
+     * @return the number of bytes per row
+     */
+    public int getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    /**
+     * Writes the next row of the image.
+     * @param packedRow the packed pixels of the row (see {@link #packRow(int[], int, int, byte[])})
+     * @throws IOException if compressed data cannot be written
+     */
+    public void writeRow(byte[] packedRow) throws IOException {
+        if (rowsWritten == height) {
+            throw new IllegalStateException("All rows of the PNG image have been written.");
+        }
+        if (rawLength + bytesPerRow + 1 > rawBuffer.length) {
+            if (pool == null) {
+                compressRaw();
+            }
+            else {
+                submitBlock(false);
+            }
+        }
+        rawBuffer[rawLength++] = FILTER_NONE;
+        System.arraycopy(packedRow, 0, rawBuffer, rawLength, bytesPerRow);
+        rawLength += bytesPerRow;
+        rowsWritten++;
+    }
+
+    /**
+     * Finishes the image data and writes the end of the image. Rows that were
+     * never written (if the image is closed early) are filled with palette
+     * index 0, since the height is already in the header.
+     * @throws IOException if the image cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten < height) {
+                byte[] blankRow = new byte[bytesPerRow];
+                while (rowsWritten < height) {
+                    writeRow(blankRow);
+                }
+            }
+            if (pool == null) {
+                compressRaw();
+                deflater.finish();
+                drainDeflater();
+            }
+            else {
+                submitBlock(true);
+                while (!pendingBlocks.isEmpty()) {
+                    writeNextBlock();
+                }
+                byte[] adlerBytes = new byte[4];
+                putInt(adlerBytes, 0, (int) adler);
+                writeCompressed(adlerBytes, 0, adlerBytes.length);
+            }
+            flushChunk();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            for (Future<CompressedBlock> f : pendingBlocks) {
+                f.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the signature, IHDR chunk and PLTE chunk.
+     * @param palette the colors of the image
+     * @throws IOException if the header cannot be written
+     */
+    private void writeHeader(int[] palette) throws IOException {
+        out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, width);
+        putInt(ihdr, 4, height);
+        ihdr[8] = (byte) bitDepth;
+        ihdr[9] = COLOR_TYPE_INDEXED;
+        ihdr[10] = 0; // deflate compression
+        ihdr[11] = 0; // adaptive filtering
+        ihdr[12] = 0; // no interlacing
+        writeChunk("IHDR", ihdr, ihdr.length);
+        byte[] plte = new byte[palette.length * 3];
+        for (int i = 0; i < palette.length; i++) {
+            plte[3 * i] = (byte) (palette[i] >> 16);
+            plte[3 * i + 1] = (byte) (palette[i] >> 8);
+            plte[3 * i + 2] = (byte) palette[i];
+        }
+        writeChunk("PLTE", plte, plte.length);
+    }
+
+    /**
+     * Feeds the buffered raw rows to the compressor.
+     * @throws IOException if compressed data cannot be written
+     */
+    private void compressRaw() throws IOException {
+        deflater.setInput(rawBuffer, 0, rawLength);
+        while (!deflater.needsInput()) {
+            drainDeflaterIntoChunk();
+        }
+        rawLength = 0;
+    }
+
+    /**
+     * Writes out everything left in the (finished) compressor.
+     * @throws IOException if compressed data cannot be written
+     */
+    private void drainDeflater() throws IOException {
+        while (!deflater.finished()) {
+            drainDeflaterIntoChunk();
+        }
+    }
+
+    /**
+     * Moves compressed data from the serial compressor into the IDAT chunk
+     * buffer, writing the chunk when it fills up.
+     * @throws IOException if compressed data cannot be written
+     */
+    private void drainDeflaterIntoChunk() throws IOException {
+        if (chunkLength == chunkBuffer.length) {
+            flushChunk();
+        }
+        chunkLength += deflater.deflate(chunkBuffer, chunkLength, chunkBuffer.length - chunkLength);
+    }
+
+    /**
+     * Hands the buffered raw rows to the pool as the next parallel block,
+     * writing out finished blocks (and waiting for the oldest one if too many
+     * are in flight).
+     * @param last whether this is the final block of the image
+     * @throws IOException if compressed data cannot be written
+     */
+    private void submitBlock(final boolean last) throws IOException {
+        final byte[] block = Arrays.copyOf(rawBuffer, rawLength);
+        final byte[] blockDictionary = dictionary;
+        if (rawLength >= WINDOW_SIZE) {
+            dictionary = Arrays.copyOfRange(rawBuffer, rawLength - WINDOW_SIZE, rawLength);
+        }
+        else if (rawLength > 0) {
+            byte[] prev = dictionary == null ? new byte[0] : dictionary;
+            int keep = Math.min(prev.length, WINDOW_SIZE - rawLength);
+            dictionary = new byte[keep + rawLength];
+            System.arraycopy(prev, prev.length - keep, dictionary, 0, keep);
+            System.arraycopy(rawBuffer, 0, dictionary, keep, rawLength);
+        }
+        rawLength = 0;
+        pendingBlocks.add(pool.submit(() -> compressBlock(block, blockDictionary, last)));
+        while (pendingBlocks.size() >= maxPendingBlocks
+                || (!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone())) {
+            writeNextBlock();
+        }
+    }
+
+    /**
+     * Waits for the oldest parallel block and writes it out.
+     * @throws IOException if the block failed or cannot be written
+     */
+    private void writeNextBlock() throws IOException {
+        CompressedBlock block;
+        try {
+            block = pendingBlocks.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing PNG data.");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress PNG data.", e.getCause());
+        }
+        writeCompressed(block.data, 0, block.data.length);
+        adler = combineAdler32(adler, block.adler, block.rawLength);
+    }
+
+    /**
+     * Compresses a single parallel block into raw deflate data. Every block
+     * but the last ends with a sync flush (so it is byte-aligned and can be
+     * followed by the next block); the last one ends the deflate stream.
+     * @param block the raw rows of the block
+     * @param blockDictionary the bytes preceding the block (null for the first block)
+     * @param last whether this is the final block of the image
+     * @return the compressed block
+     */
+    private static CompressedBlock compressBlock(byte[] block, byte[] blockDictionary,
+            boolean last) {
+        Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (blockDictionary != null) {
+                def.setDictionary(blockDictionary);
+            }
+            def.setInput(block);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.length / 4 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            if (last) {
+                def.finish();
+                while (!def.finished()) {
+                    int len = def.deflate(buffer);
+                    compressed.write(buffer, 0, len);
+                }
+            }
+            else {
+                int len;
+                do {
+                    len = def.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, len);
+                } while (len == buffer.length);
+            }
+            Adler32 checksum = new Adler32();
+            checksum.update(block);
+            return new CompressedBlock(compressed.toByteArray(), checksum.getValue(),
+                    block.length);
+        } finally {
+            def.end();
+        }
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive pieces of data into
+     * the checksum of their concatenation (as zlib's {@code adler32_combine}).
+     * @param adler1 the checksum of the first piece
+     * @param adler2 the checksum of the second piece
+     * @param length2 the length of the second piece
+     * @return the checksum of both pieces
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Appends compressed data to the IDAT chunk buffer, writing chunks as it fills up.
+     * @param data the compressed data
+     * @param offset the index of the first byte to append
+     * @param length the number of bytes to append
+     * @throws IOException if a chunk cannot be written
+     */
+    private void writeCompressed(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (chunkLength == chunkBuffer.length) {
+                flushChunk();
+            }
+            int len = Math.min(length, chunkBuffer.length - chunkLength);
+            System.arraycopy(data, offset, chunkBuffer, chunkLength, len);
+            chunkLength += len;
+            offset += len;
+            length -= len;
+        }
+    }
+
+    /**
+     * Writes the IDAT chunk buffer (if it holds anything) as an IDAT chunk.
+     * @throws IOException if the chunk cannot be written
+     */
+    private void flushChunk() throws IOException {
+        if (chunkLength > 0) {
+            writeChunk("IDAT", chunkBuffer, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    /**
+     * Writes a single PNG chunk.
+     * @param type the four-letter chunk type
+     * @param data the chunk data
+     * @param length the number of bytes of {@code data} to write
+     * @throws IOException if the chunk cannot be written
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] lengthBytes = new byte[4];
+        putInt(lengthBytes, 0, length);
+        out.write(lengthBytes);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] crcBytes = new byte[4];
+        putInt(crcBytes, 0, (int) crc.getValue());
+        out.write(crcBytes);
+    }
+
+    /**
+     * Writes a big-endian integer into a byte array.
+     * @param dest the array to write into
+     * @param offset the index of the first byte
+     * @param value the integer to write
+     */
+    static void putInt(byte[] dest, int offset, int value) {
+        dest[offset] = (byte) (value >>> 24);
+        dest[offset + 1] = (byte) (value >>> 16);
+        dest[offset + 2] = (byte) (value >>> 8);
+        dest[offset + 3] = (byte) value;
+    }
+
+    /**
+     * A parallel block after compression.
+     * @author jaw64
+     */
+    private static final class CompressedBlock {
+
+        /**
+         * The raw deflate data of the block.
+         */
+        final byte[] data;
+
+        /**
+         * The Adler-32 checksum of the uncompressed block.
+         */
+        final long adler;
+
+        /**
+         * The length of the uncompressed block.
+         */
+        final int rawLength;
+
+        CompressedBlock(byte[] data, long adler, int rawLength) {
+            this.data = data;
+            this.adler = adler;
+            this.rawLength = rawLength;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package jaw64.ca.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes 16-bit PCM WAV files one block of floating point samples at a time.
+ * Samples are clipped to [-1, 1], converted into a reusable buffer and
+ * written straight to the file; the chunk sizes are patched into the header
+ * when the writer is closed. Memory use is constant regardless of the length
+ * of the audio.
+ * @author jaw64
+ */
+public class WavWriter implements Closeable {
+
+    /**
+     * The size of the WAV header (RIFF, fmt and data chunk headers).
+     */
+    private static final int HEADER_SIZE = 44;
+
+    /**
+     * The number of bytes per sample.
+     */
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    /**
+     * The file being written.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The number of interleaved channels.
+     */
+    private final int channels;
+
+    /**
+     * Converted samples waiting to be written.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The number of sample bytes written so far.
+     */
+    private long dataSize;
+
+    /**
+     * (constructor) Creates a WAV file and writes its header.
+     * @param path the path of the file to write
+     * @param sampleRate the number of frames per second
+     * @param channels the number of interleaved channels
+     * @throws IOException if the file cannot be created
+     */
+    public WavWriter(Path path, int sampleRate, int channels) throws IOException {
+        if (channels < 1) {
+            throw new IllegalArgumentException("WAV files need at least one channel.");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.channels = channels;
+        this.buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        this.dataSize = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt(0); // patched on close
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * channels * BYTES_PER_SAMPLE);
+        header.putShort((short) (channels * BYTES_PER_SAMPLE));
+        header.putShort((short) (8 * BYTES_PER_SAMPLE));
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt(0); // patched on close
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Gets the number of frames written so far.
+     * @return the number of frames
+     */
+    public long getFramesWritten() {
+        return dataSize / (channels * BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * Writes a block of frames.
+     * @param samples the interleaved samples (nominally in [-1, 1])
+     * @param frames the number of frames to write
+     * @throws IOException if the samples cannot be written
+     */
+    public void write(float[] samples, int frames) throws IOException {
+        int count = frames * channels;
+        if (buffer.capacity() < count * BYTES_PER_SAMPLE) {
+            buffer = ByteBuffer.allocateDirect(count * BYTES_PER_SAMPLE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            float s = samples[i];
+            s = s > 1.0f ? 1.0f : (s < -1.0f ? -1.0f : s);
+            buffer.putShort((short) Math.round(s * 32767.0f));
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dataSize += count * BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * Patches the chunk sizes into the header and closes the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ByteBuffer size = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            size.putInt(0, (int) Math.min(0xFFFFFFFFL, dataSize + HEADER_SIZE - 8));
+            channel.write(size, 4);
+            size.clear();
+            size.putInt(0, (int) Math.min(0xFFFFFFFFL, dataSize));
+            channel.write(size, HEADER_SIZE - 4);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Package for streaming file formats written by interpreters (one
+ * generation at a time, without holding the whole output in memory).
+ * @author jaw64
+ */
+package jaw64.ca.io;
@@ -0,0 +1,34 @@
+package jaw64.ca.pipeline;
+
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+
+/**
+ * Contract for anything that processes the generations of a cellular
+ * automaton one at a time, in order, starting from generation 0.
+ * @author jaw64
+ */
+public interface GenerationConsumer {
+
+    /**
+     * Called once before the first generation is passed to this consumer.
+     * @param ca the cellular automaton whose generations will be consumed
+     */
+    public default void begin(CellularAutomaton ca) {}
+
+    /**
+     * Processes a single generation. Implementations must not modify the
+     * provided cell group.
+     * @param iteration the iteration of the generation
+     * @param group the cell group at that iteration
+     * @return true if this consumer wants the next generation, false if it is done
+     */
+    public boolean onGeneration(int iteration, CellGroup group);
+
+    /**
+     * Called once after the last generation has been passed to this consumer
+     * (either because it returned false or because no more generations will
+     * be produced).
+     */
+    public default void end() {}
+}
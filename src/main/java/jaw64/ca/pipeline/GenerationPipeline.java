@@ -0,0 +1,399 @@
+package jaw64.ca.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.exceptions.PipelineException;
+
+/**
+ * Runs a cellular automaton through several {@link GenerationConsumer}s at
+ * once. The calling thread acts as the producer, stepping the automaton ahead
+ * into a bounded ring buffer, while each consumer processes the buffered
+ * generations on its own thread. The producer never gets more than the buffer
+ * capacity ahead of the slowest consumer that still wants generations.<br>
+ * <br>
+ * Consumer threads are created by the provided {@link ThreadFactory}, so on a
+ * JVM with virtual threads {@code Thread.ofVirtual().factory()} can be passed
+ * in to run each consumer on a virtual thread.
+ * @author jaw64
+ */
+public class GenerationPipeline {
+
+    /**
+     * The default number of generations the producer may run ahead.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The cellular automaton whose generations are produced.
+     */
+    private final CellularAutomaton ca;
+
+    /**
+     * The maximum number of generations buffered ahead of the slowest consumer.
+     */
+    private final int capacity;
+
+    /**
+     * Creates the consumer threads.
+     */
+    private final ThreadFactory threadFactory;
+
+    /**
+     * The consumers, in the order they were added.
+     */
+    private final List<GenerationConsumer> consumers;
+
+    /**
+     * (constructor) Creates a pipeline with the default capacity whose
+     * consumers run on platform threads.
+     * @param ca the cellular automaton to produce generations from
+     */
+    public GenerationPipeline(CellularAutomaton ca) {
+        this(ca, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * (constructor) Creates a pipeline whose consumers run on platform threads.
+     * @param ca the cellular automaton to produce generations from
+     * @param capacity the number of generations the producer may run ahead
+     */
+    public GenerationPipeline(CellularAutomaton ca, int capacity) {
+        this(ca, capacity, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * (constructor) Creates a pipeline.
+     * @param ca the cellular automaton to produce generations from
+     * @param capacity the number of generations the producer may run ahead
+     * @param threadFactory creates the thread for each consumer
+     */
+    public GenerationPipeline(CellularAutomaton ca, int capacity, ThreadFactory threadFactory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pipeline capacity must be at least 1.");
+        }
+        this.ca = ca;
+        this.capacity = capacity;
+        this.threadFactory = threadFactory;
+        this.consumers = new ArrayList<>();
+    }
+
+    /**
+     * Adds a consumer to the pipeline.
+     * @param consumer the consumer to add
+     */
+    public void addConsumer(GenerationConsumer consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Runs the pipeline until every consumer is done (or {@code maxGenerations}
+     * generations have been produced) and waits for the consumers to finish.
+     * @param maxGenerations the maximum number of generations to produce
+     * @return the metrics gathered during the run
+     * @throws PipelineException if a consumer or the producer fails
+     */
+    public PipelineMetrics run(int maxGenerations) {
+        return new Run(maxGenerations).execute();
+    }
+
+    /**
+     * Runs the pipeline until every consumer is done and waits for the
+     * consumers to finish.
+     * @return the metrics gathered during the run
+     * @throws PipelineException if a consumer or the producer fails
+     */
+    public PipelineMetrics run() {
+        return run(Integer.MAX_VALUE);
+    }
+
+    /**
+     * The state of a single consumer during a run.
+     * @author jaw64
+     */
+    private static final class ConsumerState {
+
+        final GenerationConsumer consumer;
+
+        /**
+         * The next generation this consumer will read.
+         */
+        long cursor;
+
+        /**
+         * Whether this consumer no longer wants generations.
+         */
+        boolean done;
+
+        long stalls;
+
+        long stallNanos;
+
+        ConsumerState(GenerationConsumer consumer) {
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * The ring buffer and bookkeeping of a single run. All fields are guarded
+     * by {@link #lock}, except for the slots of {@link #ring} being read by
+     * consumers (a slot is never overwritten before every consumer has
+     * advanced past it).
+     * @author jaw64
+     */
+    private final class Run {
+
+        private final int maxGenerations;
+
+        private final CellGroup[] ring;
+
+        private final ConsumerState[] states;
+
+        private final ReentrantLock lock;
+
+        /**
+         * Signaled when a consumer advances (the buffer may no longer be full).
+         */
+        private final Condition notFull;
+
+        /**
+         * Signaled when a generation is buffered or the run ends.
+         */
+        private final Condition notEmpty;
+
+        /**
+         * The number of generations buffered so far.
+         */
+        private long published;
+
+        /**
+         * Whether the producer has stopped producing.
+         */
+        private boolean finished;
+
+        /**
+         * The number of consumers that still want generations.
+         */
+        private int activeConsumers;
+
+        /**
+         * The first failure of the run, if any.
+         */
+        private Throwable failure;
+
+        private long producerStalls;
+
+        private long producerStallNanos;
+
+        private int maxQueueDepth;
+
+        private long totalQueueDepth;
+
+        Run(int maxGenerations) {
+            this.maxGenerations = Math.max(0, maxGenerations);
+            this.ring = new CellGroup[capacity];
+            this.states = new ConsumerState[consumers.size()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = new ConsumerState(consumers.get(i));
+            }
+            this.lock = new ReentrantLock();
+            this.notFull = lock.newCondition();
+            this.notEmpty = lock.newCondition();
+            this.activeConsumers = states.length;
+        }
+
+        /**
+         * Starts the consumers, produces generations and collects the results.
+         * @return the metrics of the run
+         */
+        PipelineMetrics execute() {
+            final long startTime = System.nanoTime();
+            Thread[] threads = new Thread[states.length];
+            for (int i = 0; i < states.length; i++) {
+                final ConsumerState state = states[i];
+                threads[i] = threadFactory.newThread(() -> consume(state));
+                threads[i].start();
+            }
+            try {
+                produce();
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+            for (Thread t : threads) {
+                joinUninterruptibly(t);
+            }
+            if (failure != null) {
+                throw new PipelineException("Generation pipeline failed.", failure);
+            }
+            long[] consumerStalls = new long[states.length];
+            long[] consumerStallNanos = new long[states.length];
+            for (int i = 0; i < states.length; i++) {
+                consumerStalls[i] = states[i].stalls;
+                consumerStallNanos[i] = states[i].stallNanos;
+            }
+            return new PipelineMetrics(published, producerStalls, producerStallNanos,
+                    consumerStalls, consumerStallNanos, maxQueueDepth, totalQueueDepth,
+                    System.nanoTime() - startTime);
+        }
+
+        /**
+         * Gets the position of the slowest consumer that still wants generations.
+         * Must be called while holding the lock.
+         * @return the smallest cursor of all active consumers
+         */
+        private long minCursor() {
+            long min = published;
+            for (ConsumerState state : states) {
+                if (!state.done) {
+                    min = Math.min(min, state.cursor);
+                }
+            }
+            return min;
+        }
+
+        /**
+         * Steps the cellular automaton into the ring buffer on the calling thread.
+         */
+        private void produce() {
+            for (int i = 0; i < maxGenerations; i++) {
+                CellGroup group = ca.getIteration(i);
+                lock.lock();
+                try {
+                    while (failure == null && activeConsumers > 0
+                            && published - minCursor() >= capacity) {
+                        producerStalls++;
+                        long stallStart = System.nanoTime();
+                        notFull.awaitUninterruptibly();
+                        producerStallNanos += System.nanoTime() - stallStart;
+                    }
+                    if (failure != null || activeConsumers == 0) {
+                        break;
+                    }
+                    ring[(int) (published % capacity)] = group;
+                    published++;
+                    int depth = (int) (published - minCursor());
+                    maxQueueDepth = Math.max(maxQueueDepth, depth);
+                    totalQueueDepth += depth;
+                    notEmpty.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                finished = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Feeds buffered generations to a single consumer (runs on that
+         * consumer's thread).
+         * @param state the consumer's state
+         */
+        private void consume(ConsumerState state) {
+            try {
+                state.consumer.begin(ca);
+                while (true) {
+                    CellGroup group;
+                    long iteration;
+                    lock.lock();
+                    try {
+                        while (state.cursor == published && !finished && failure == null) {
+                            state.stalls++;
+                            long stallStart = System.nanoTime();
+                            notEmpty.awaitUninterruptibly();
+                            state.stallNanos += System.nanoTime() - stallStart;
+                        }
+                        if (failure != null) {
+                            return;
+                        }
+                        if (state.cursor == published) {
+                            break; // producer finished, nothing left to read
+                        }
+                        iteration = state.cursor;
+                        group = ring[(int) (iteration % capacity)];
+                    } finally {
+                        lock.unlock();
+                    }
+                    boolean wantsMore = state.consumer.onGeneration((int) iteration, group);
+                    lock.lock();
+                    try {
+                        state.cursor++;
+                        if (!wantsMore) {
+                            state.done = true;
+                            activeConsumers--;
+                        }
+                        notFull.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (!wantsMore) {
+                        break;
+                    }
+                }
+                state.consumer.end();
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            } finally {
+                lock.lock();
+                try {
+                    if (!state.done) {
+                        state.done = true;
+                        activeConsumers--;
+                    }
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Records a failure and wakes up every thread so the run stops.
+         * @param t the failure
+         */
+        private void fail(Throwable t) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = t;
+                }
+                else {
+                    failure.addSuppressed(t);
+                }
+                notFull.signalAll();
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits for a thread to die, even if the calling thread is interrupted
+     * (the interrupt status is restored afterwards).
+     * @param t the thread to wait for
+     */
+    private static void joinUninterruptibly(Thread t) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                t.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
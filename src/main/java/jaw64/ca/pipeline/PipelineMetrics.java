@@ -0,0 +1,162 @@
+package jaw64.ca.pipeline;
+
+/**
+ * Statistics gathered while running a {@link GenerationPipeline}.
+ * @author jaw64
+ */
+public final class PipelineMetrics {
+
+    /**
+     * The number of generations stepped by the producer.
+     */
+    private final long generationsProduced;
+
+    /**
+     * The number of times the producer waited for the slowest consumer.
+     */
+    private final long producerStalls;
+
+    /**
+     * The total time the producer spent waiting (in nanoseconds).
+     */
+    private final long producerStallNanos;
+
+    /**
+     * The number of times each consumer waited for the producer.
+     */
+    private final long[] consumerStalls;
+
+    /**
+     * The total time each consumer spent waiting (in nanoseconds).
+     */
+    private final long[] consumerStallNanos;
+
+    /**
+     * The largest number of generations buffered ahead of the slowest consumer.
+     */
+    private final int maxQueueDepth;
+
+    /**
+     * The sum of the queue depths sampled each time a generation was buffered.
+     */
+    private final long totalQueueDepth;
+
+    /**
+     * The wall-clock time of the run (in nanoseconds).
+     */
+    private final long elapsedNanos;
+
+    /**
+     * (constructor) Creates a new set of pipeline metrics.
+     * @param generationsProduced the number of generations stepped
+     * @param producerStalls the number of producer stalls
+     * @param producerStallNanos the total producer stall time
+     * @param consumerStalls the number of stalls for each consumer
+     * @param consumerStallNanos the total stall time for each consumer
+     * @param maxQueueDepth the maximum queue depth
+     * @param totalQueueDepth the sum of all sampled queue depths
+     * @param elapsedNanos the wall-clock time of the run
+     */
+    PipelineMetrics(long generationsProduced, long producerStalls, long producerStallNanos,
+            long[] consumerStalls, long[] consumerStallNanos, int maxQueueDepth,
+            long totalQueueDepth, long elapsedNanos) {
+        this.generationsProduced = generationsProduced;
+        this.producerStalls = producerStalls;
+        this.producerStallNanos = producerStallNanos;
+        this.consumerStalls = consumerStalls;
+        this.consumerStallNanos = consumerStallNanos;
+        this.maxQueueDepth = maxQueueDepth;
+        this.totalQueueDepth = totalQueueDepth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of generations stepped by the producer.
+     * @return the number of generations produced
+     */
+    public long getGenerationsProduced() {
+        return generationsProduced;
+    }
+
+    /**
+     * Gets the number of times the producer had to wait because the buffer was full.
+     * @return the number of producer stalls
+     */
+    public long getProducerStalls() {
+        return producerStalls;
+    }
+
+    /**
+     * Gets the total time the producer spent waiting on a full buffer.
+     * @return the producer stall time (in nanoseconds)
+     */
+    public long getProducerStallNanos() {
+        return producerStallNanos;
+    }
+
+    /**
+     * Gets the number of times a consumer had to wait because the buffer was empty.
+     * @param consumer the index of the consumer (in the order it was added)
+     * @return the number of stalls of that consumer
+     */
+    public long getConsumerStalls(int consumer) {
+        return consumerStalls[consumer];
+    }
+
+    /**
+     * Gets the total time a consumer spent waiting on an empty buffer.
+     * @param consumer the index of the consumer (in the order it was added)
+     * @return the stall time of that consumer (in nanoseconds)
+     */
+    public long getConsumerStallNanos(int consumer) {
+        return consumerStallNanos[consumer];
+    }
+
+    /**
+     * Gets the number of consumers that were run.
+     * @return the number of consumers
+     */
+    public int getNumConsumers() {
+        return consumerStalls.length;
+    }
+
+    /**
+     * Gets the largest number of generations that were buffered ahead of the
+     * slowest consumer.
+     * @return the maximum queue depth
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Gets the average number of generations buffered ahead of the slowest
+     * consumer (sampled each time a generation was buffered).
+     * @return the average queue depth
+     */
+    public double getAverageQueueDepth() {
+        return generationsProduced == 0 ? 0.0 : (double) totalQueueDepth / generationsProduced;
+    }
+
+    /**
+     * Gets the wall-clock time of the run.
+     * @return the elapsed time (in nanoseconds)
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d generations in %.3f ms, queue depth avg %.2f / max %d, "
+                + "producer stalled %d times (%.3f ms)", generationsProduced,
+                elapsedNanos / 1e6, getAverageQueueDepth(), maxQueueDepth, producerStalls,
+                producerStallNanos / 1e6));
+        for (int i = 0; i < consumerStalls.length; i++) {
+            sb.append(String.format(", consumer %d stalled %d times (%.3f ms)", i,
+                    consumerStalls[i], consumerStallNanos[i] / 1e6));
+        }
+        return sb.toString();
+    }
+}
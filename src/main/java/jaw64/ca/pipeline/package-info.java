@@ -0,0 +1,6 @@
+/**
+ * Package for running cellular automata through pipelines of generation
+ * consumers (interpreters, analyzers, etc.) on separate threads.
+ * @author jaw64
+ */
+package jaw64.ca.pipeline;
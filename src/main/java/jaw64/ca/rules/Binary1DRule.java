@@ -13,16 +13,87 @@ public class Binary1DRule extends AbstractRule {
      */
     private int ruleNo;
 
+    /**
+     * The value of the (imaginary) cells beyond the borders of a cell group.
+     */
+    private final int defaultCellValue;
+
     /**
      * (constructor) Creates a new 1-dimensional binary rule based on the
      * provided Wolfram rule number ({@code ruleNo >= 0 and < 256}).
      * @param ruleNo the rule number between [0, 256)
      */
     public Binary1DRule(int ruleNo) {
+        this(ruleNo, 0);
+    }
+
+    /**
+     * (constructor) Creates a new 1-dimensional binary rule based on the
+     * provided Wolfram rule number ({@code ruleNo >= 0 and < 256}) whose
+     * borders are filled with the provided value.
+     * @param ruleNo the rule number between [0, 256)
+     * @param defaultCellValue the border value (either 0 or 1)
+     */
+    public Binary1DRule(int ruleNo, int defaultCellValue) {
         this.ruleNo = ruleNo;
+        this.defaultCellValue = defaultCellValue;
         if (ruleNo < 0 || ruleNo > 255) {
             throw new IllegalArgumentException("1-dimensional binary rules range from [0, 255]");
         }
+        if (defaultCellValue != 0 && defaultCellValue != 1) {
+            throw new IllegalArgumentException(
+                    "1-dimensional binary rules require a border value of 0 or 1");
+        }
+    }
+
+    /**
+     * Gets the rule number mirrored left-to-right, i.e. the rule which
+     * produces the same iterations as {@code ruleNo} but reversed.
+     * @param ruleNo the rule number between [0, 256)
+     * @return the mirrored rule number
+     */
+    public static int mirrorRuleNumber(int ruleNo) {
+        int mirrored = 0;
+        for (int index = 0; index < 8; index++) {
+            int left = (index >> 2) & 1;
+            int curr = (index >> 1) & 1;
+            int right = index & 1;
+            int mirroredIndex = 4 * right + 2 * curr + left;
+            mirrored |= ((ruleNo >> index) & 1) << mirroredIndex;
+        }
+        return mirrored;
+    }
+
+    /**
+     * Gets the complemented rule number, i.e. the rule which produces the
+     * same iterations as {@code ruleNo} but with every cell inverted (given that
+     * the initial cells and the border value are inverted too).
+     * @param ruleNo the rule number between [0, 256)
+     * @return the complemented rule number
+     */
+    public static int complementRuleNumber(int ruleNo) {
+        int complemented = 0;
+        for (int index = 0; index < 8; index++) {
+            complemented |= (1 - ((ruleNo >> (7 - index)) & 1)) << index;
+        }
+        return complemented;
+    }
+
+    /**
+     * Gets the Wolfram rule number of this rule.
+     * @return the rule number between [0, 256)
+     */
+    public int getRuleNumber() {
+        return ruleNo;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see jaw64.ca.rules.AbstractRule#getDefaultCellValue()
+     */
+    @Override
+    public int getDefaultCellValue() {
+        return defaultCellValue;
     }
 
     @Override
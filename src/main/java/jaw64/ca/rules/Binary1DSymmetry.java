@@ -0,0 +1,66 @@
+package jaw64.ca.rules;
+
+/**
+ * The symmetries of Wolfram's 1-dimensional binary rules. Running the
+ * transformed rule on the transformed initial cells (and border value) yields
+ * the transformed iterations of the original rule, so the 256 rules collapse
+ * into 88 equivalence classes.
+ * @author jaw64
+ */
+public enum Binary1DSymmetry {
+    IDENTITY(false, false),
+    MIRROR(true, false),
+    COMPLEMENT(false, true),
+    MIRROR_COMPLEMENT(true, true);
+
+    /**
+     * Whether cells are reversed left-to-right.
+     */
+    public final boolean mirrors;
+
+    /**
+     * Whether cell values are inverted.
+     */
+    public final boolean complements;
+
+    private Binary1DSymmetry(boolean mirrors, boolean complements) {
+        this.mirrors = mirrors;
+        this.complements = complements;
+    }
+
+    /**
+     * Transforms a rule number by this symmetry. Every symmetry is its own
+     * inverse, so applying it twice returns the original rule number.
+     * @param ruleNo the rule number between [0, 256)
+     * @return the transformed rule number
+     */
+    public int applyToRuleNumber(int ruleNo) {
+        int ret = ruleNo;
+        if (mirrors) {
+            ret = Binary1DRule.mirrorRuleNumber(ret);
+        }
+        if (complements) {
+            ret = Binary1DRule.complementRuleNumber(ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Transforms a single (binary) cell value by this symmetry.
+     * @param value the cell value (either 0 or 1)
+     * @return the transformed cell value
+     */
+    public int applyToCellValue(int value) {
+        return complements ? 1 - value : value;
+    }
+
+    /**
+     * Transforms a rule (including its border value) by this symmetry.
+     * @param rule the rule to transform
+     * @return the transformed rule
+     */
+    public Binary1DRule applyTo(Binary1DRule rule) {
+        return new Binary1DRule(applyToRuleNumber(rule.getRuleNumber()),
+                applyToCellValue(rule.getDefaultCellValue()));
+    }
+}
@@ -1,6 +1,7 @@
 package jm.inst;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -53,6 +54,6 @@ public class AMInst extends jm.audio.Instrument{
                     Oscillator.SINE_WAVE, WaveTable.AMPLITUDE);
 		Envelope env2 = new Envelope(carr,
                     new double[] {0.0, 0.0, 0.5, 1.0, 1.0, 0.0});
-		SampleOut sout = new SampleOut(env2);
+		AudioObject sout = RenderTarget.output(env2);
 	}	
 }
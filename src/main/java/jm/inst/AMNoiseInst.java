@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -60,7 +61,7 @@ public final class AMNoiseInst extends jm.audio.Instrument{
                     new double[] {0.0, 0.0, 0.5, 1.0, 1.0, 0.0});
 		Volume vol = new Volume(env,(float)1.0);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
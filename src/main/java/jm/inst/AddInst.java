@@ -1,6 +1,7 @@
 package jm.inst;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -55,7 +56,7 @@ public final class AddInst extends jm.audio.Instrument{
 		Envelope env2 = new Envelope(wt2,
                     new double[] {0.0, 0.0, 0.5, 1.0, 1.0, 0.0});
                 Add add = new Add(new AudioObject[] {env, env2});
-		SampleOut sout = new SampleOut(add);
+		AudioObject sout = RenderTarget.output(add);
 	}	
 }
 
@@ -2,9 +2,11 @@ package jm.inst;
 
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.Instrument;
+import jm.audio.AudioObject;
 
 /**
 * An additive synthesis instrument implementation
@@ -74,6 +76,6 @@ public final class AddMorphInst extends Instrument{
 		//And now the add object brings us back to one path.
 		Add add = new Add(vol);
 		StereoPan span = new StereoPan(add);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}
 }
@@ -2,6 +2,7 @@ package jm.inst;
 
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -96,6 +97,6 @@ public final class AddSynthInst extends Instrument{
 		//And now the add object brings us back to one path.
 		Add add = new Add(vol);
                 StereoPan span = new StereoPan(add);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}
 }
@@ -1,6 +1,7 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -68,7 +69,7 @@ public final class BandPassFilterInst extends Instrument{
           Envelope env = new Envelope(vol, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 0.4, 0.8, 0.3, 1.0, 0.0});
           StereoPan span = new StereoPan(env);
-          SampleOut sout = new SampleOut(span);
+          AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
@@ -1,5 +1,9 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.KarplusStrong;
+import jaw64.ca.audio.PluckedString;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -13,6 +17,8 @@ public final class BowedPluckInst extends jm.audio.Instrument{
 	private int sampleRate;
         /** the filter cutoff frequency in hertz */
 	private int cutoff;
+	/** The string (reused for every note) */
+	private PluckedString string;
 	/** A constructor to set an initial sampling rate */
 	public BowedPluckInst(int sampleRate){
 	    this(sampleRate, 1, 8000);
@@ -22,14 +28,15 @@ public final class BowedPluckInst extends jm.audio.Instrument{
 		this.sampleRate = sampleRate;
 		this.channels = channels;
                 this.cutoff = cutoff;
+		this.string = new PluckedString(sampleRate, 0.5);
 	}
 	/** Initialisation method used to build the objects that this instrument will use */
 	public void createChain(){
-		Pluck plk = new Pluck(this,sampleRate, this.channels);
-                Filter filt = new Filter(plk, this.cutoff, Filter.LOW_PASS);
+		KarplusStrong plk = new KarplusStrong(this, sampleRate, this.channels, this.string);
+                StateVariableFilter filt = new StateVariableFilter(plk, this.cutoff, StateVariableFilter.LOW_PASS);
                 Envelope env = new Envelope(filt, new double[] {0.0, 0.0, 0.1, 0.5, 0.3, 1.0, 0.4, 0.5, 1.0, 0.0});
 		Volume vol = new Volume(env);
-                SampleOut sout = new SampleOut(vol);
+                AudioObject sout = RenderTarget.output(vol);
 	}	
 }
 
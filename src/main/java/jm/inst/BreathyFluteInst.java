@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 
 import jm.audio.synth.*;
 
@@ -179,7 +180,7 @@ public final class BreathyFluteInst extends jm.audio.Instrument{
 
 		StereoPan span = new StereoPan(env);
 
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 
 	}	
 
@@ -7,6 +7,7 @@ package jm.inst;
 // Environment:          JDK1.1 / jMusic 1.1
 //==========================================================
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
@@ -72,7 +73,7 @@ public final class ChiffInst extends Instrument{
 		Envelope env = new Envelope(noise, pointArray);
 		Volume vol = new Volume(env, (float)1.0);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -81,10 +83,10 @@ public final class ControlledHPFInst extends Instrument{
             Oscillator sineMod = new Oscillator(modfreq, Oscillator.SINE_WAVE, Oscillator.FREQUENCY);
             sineMod.setAmp((float) this.modAmount);
             // filter
-            Filter filt = new Filter(new AudioObject[] {osc, sineMod}, this.filterCutoff, Filter.HIGH_PASS);
+            StateVariableFilter filt = new StateVariableFilter(new AudioObject[] {osc, sineMod}, this.filterCutoff, StateVariableFilter.HIGH_PASS);
             Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.1, 1.0, 0.3, 0.6, 0.8, 0.2, 1.0, 0.0});
-            SampleOut sout = new SampleOut(env);
+            AudioObject sout = RenderTarget.output(env);
 	}	
 }
 
@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -76,13 +78,12 @@ public final class DynamicFilterInst extends Instrument{
 	 */
 	public void createChain(){
             Value modSource = new Value(this, this.sampleRate, 1, Value.NOTE_DYNAMIC);
-            Value modAmount = new Value(this, this.sampleRate, 1, (float)this.dynScale);
-            Multiply filterControl = new Multiply(new AudioObject[] {modSource, modAmount});
             Oscillator wave = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, this.channels);
-            Filter filt = new Filter(new AudioObject[] {wave, filterControl}, this.filterCutoff, Filter.LOW_PASS);
+            StateVariableFilter filt = new StateVariableFilter(new AudioObject[] {wave, modSource}, this.filterCutoff, StateVariableFilter.LOW_PASS);
+            filt.setModulationDepth(this.dynScale);
             Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 0.4, 0.8, 0.3, 1.0, 0.0});
-            SampleOut sout = new SampleOut(env);
+            AudioObject sout = RenderTarget.output(env);
 	}	
 }
 
@@ -6,6 +6,7 @@ package jm.inst;
  */
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -49,6 +50,6 @@ public final class FGTRInst extends jm.audio.Instrument{
 		//Filter lpf = new Filter(sin, bandwidthBottom, Filter.LOW_PASS);
 		//Filter hpf = new Filter(lpf, bandwidthTop, Filter.HIGH_PASS);
 		AllFGTR fgtr = new AllFGTR(/*hpf*/sin, grainDuration, bandwidthTop, bandwidthBottom, grainsPerSecond);
-		SampleOut sout = new SampleOut(fgtr);
+		AudioObject sout = RenderTarget.output(fgtr);
 	}
 }
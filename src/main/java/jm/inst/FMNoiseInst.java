@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -57,7 +58,7 @@ public final class FMNoiseInst extends jm.audio.Instrument{
 		Envelope env2 = new Envelope(carrier, new double[] {0.0, 0.0, 0.02, 1.0, 1.0, 0.0});
 		Volume amp = new Volume(env2);
 		StereoPan pan = new StereoPan(amp);
-		SampleOut sout = new SampleOut(pan);         
+		AudioObject sout = RenderTarget.output(pan);         
 	}	
 }
 
@@ -8,6 +8,8 @@ package jm.inst;
  */
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -134,12 +136,12 @@ public final class GranularInst extends jm.audio.Instrument{
 		    vol = new Volume(grain,0.5f);
         	    Volume vol2 = new Volume(vol,0.1f);
         	    pan = new StereoPan(vol2);
-	            SampleOut sout = new SampleOut(pan);
+	            AudioObject sout = RenderTarget.output(pan);
 		} else {
 		    // if sounds is < 0 or > 6 and < 11 then it will
 		    // process an audio file. Default is 7.  Again it is 
 		    // very open ended to accommodate wrong input numbers. 
-        	    SampleIn grin = new SampleIn(this, this.fileName);
+        	    SourceIn grin = new SourceIn(this, this.fileName);
 		    //if (premapped) {
 //			grain = new Granulator(grin,durationArray,gpsArray,freqArray,ri,rgd,rf);
 //		    } else {
@@ -148,7 +150,7 @@ public final class GranularInst extends jm.audio.Instrument{
 		    vol = new Volume(grain,0.5f);
         	    Volume vol2 = new Volume(vol,0.1f);
         	    pan = new StereoPan(vol2);
-                    SampleOut sout = new SampleOut(pan);
+                    AudioObject sout = RenderTarget.output(pan);
 		}
     	    } else {
 		// At this stage the only values left are between 0-6
@@ -163,7 +165,7 @@ public final class GranularInst extends jm.audio.Instrument{
 		vol = new Volume(grain,0.5f);
         	Volume vol2 = new Volume(vol,0.1f);
         	pan = new StereoPan(vol2);
-                SampleOut sout = new SampleOut(pan);
+                AudioObject sout = RenderTarget.output(pan);
     	    }
 	}
 }
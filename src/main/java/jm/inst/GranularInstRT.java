@@ -14,6 +14,7 @@ package jm.inst;
  */
 
 import jm.audio.io.*;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -119,7 +120,7 @@ public final class GranularInstRT extends jm.audio.Instrument{
 		    // if sounds is < 0 or > 6 and < 11 then it will
 		    // process an audio file. Default is 7.  Again it is 
 		    // very open ended to accommodate wrong input numbers. 
-        	    SampleIn grin = new SampleIn(this, this.fileName);
+        	    SourceIn grin = new SourceIn(this, this.fileName);
 		    grain = new Granulator(grin,sampleRate, channels, 50,100); 
 		    vol = new Volume(grain, 0.95f);
         	    //Volume vol2 = new Volume(vol,0.1f);
@@ -1,6 +1,7 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -89,7 +90,7 @@ public final class LFOFilteredSquareInst extends Instrument{
             Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 0.3, 0.8, 0.2, 1.0, 0.0});
             Volume vol = new Volume(env);
-            SampleOut sout = new SampleOut(vol);
+            AudioObject sout = RenderTarget.output(vol);
 	}	
 }
 
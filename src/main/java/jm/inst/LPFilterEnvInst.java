@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -64,12 +66,12 @@ public final class LPFilterEnvInst extends Instrument{
             // oscilator
             Oscillator osc = new Oscillator(this, Oscillator.TRIANGLE_WAVE, this.sampleRate, this.channels);   
             // filter
-            Filter filt = new Filter(new AudioObject[] {osc, filtEnv}, this.filterCutoff, Filter.LOW_PASS);
+            StateVariableFilter filt = new StateVariableFilter(new AudioObject[] {osc, filtEnv}, this.filterCutoff, StateVariableFilter.LOW_PASS);
             Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 1.0, 0.0});
             Volume vol = new Volume(env);
             StereoPan pan = new StereoPan(vol);
-            SampleOut sout = new SampleOut(pan);
+            AudioObject sout = RenderTarget.output(pan);
 	}	
 }
 
@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -32,7 +33,7 @@ public final class NoiseCombInst extends jm.audio.Instrument{
             this.channels);
         Envelope env = new Envelope(osc, new double[] {0.0, 0.0, 0.1, 1.0, 0.3, 0.0});
         Comb comb = new Comb(env, delay, decay);
-        SampleOut sout = new SampleOut(comb);
+        AudioObject sout = RenderTarget.output(comb);
     }
 }
 
@@ -9,6 +9,7 @@ package jm.inst;
 // Environment:          JDK1.1
 //==========================================================
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
@@ -81,7 +82,7 @@ public final class NoiseInst extends Instrument{
 			new double[] {0.0, 0.0, 0.05, 1.0, 0.95, 1.0, 1.0, 0.0});
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
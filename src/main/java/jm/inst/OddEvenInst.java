@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -33,7 +34,7 @@ public final class OddEvenInst extends Instrument{
 
 	private boolean header = true;
 	private static int count = 0;
-	private SampleOut sout;
+	private AudioObject sout;
 	private int numberOfOvertones = 16;
 	/** the envelope data */
         private EnvPoint[] pointArray0 = {
@@ -112,6 +113,6 @@ public final class OddEvenInst extends Instrument{
 		}
 		//And now the add object brings us back to one path.
 		Add add = new Add(span);
-		SampleOut sout = new SampleOut(add);
+		AudioObject sout = RenderTarget.output(add);
 	}
 }
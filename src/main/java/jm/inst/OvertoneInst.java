@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -59,6 +60,6 @@ public final class OvertoneInst extends jm.audio.Instrument{
 		Envelope env = new Envelope(adder, new double[] {0.0, 0.0, 0.1,
                                                     1.0, 1.0, 0.0});
 		StereoPan span = new StereoPan(env);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}
 }
\ No newline at end of file
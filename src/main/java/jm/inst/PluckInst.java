@@ -1,5 +1,8 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.KarplusStrong;
+import jaw64.ca.audio.PluckedString;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -11,6 +14,8 @@ public final class PluckInst extends jm.audio.Instrument{
 	private int sampleRate;
     /** The amount of sustein in the pluck algorithm */
     private double feedback;
+    /** The string (reused for every note) */
+    private PluckedString string;
 	
 	/** A constructor to set an initial sampling rate */
 	public PluckInst(int sampleRate){
@@ -33,18 +38,19 @@ public final class PluckInst extends jm.audio.Instrument{
 		this.channels = channels;
         this.output = output;	
 		this.feedback = feedback;
+		this.string = new PluckedString(sampleRate, feedback);
 	}
 	
 	/** 
     * Initialisation method used to build the objects that this instrument uses.
     */
 	public void createChain(){
-        Pluck plk = new Pluck(this, this.sampleRate, this.channels, this.feedback);
+        KarplusStrong plk = new KarplusStrong(this, this.sampleRate, this.channels, this.string);
 		Volume vol = new Volume(plk);
 		StereoPan span = new StereoPan(vol);
         Envelope env = new Envelope(span, new double[] {0.0, 1.0, 0.9, 1.0, 1.0, 0.0});
-		SampleOut sout;
-        if(output == RENDER) sout = new SampleOut(env);
+		AudioObject sout;
+        if(output == RENDER) sout = RenderTarget.output(env);
 	}
 	
 	public void actionEvent(Object obj, int intValue) {
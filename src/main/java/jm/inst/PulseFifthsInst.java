@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -68,7 +69,7 @@ public final class PulseFifthsInst extends Instrument{
 		// continue to process
 		Envelope env = new Envelope(add, pointArray);
 		Volume vol = new Volume(env);
-		SampleOut sout = new SampleOut(vol);
+		AudioObject sout = RenderTarget.output(vol);
 	}	
 }
 
@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -20,7 +21,7 @@ public final class PulsewaveInst extends Instrument{
 	/** The points to use in the construction of Envelopes */
 	private EnvPoint[] pointArray = new EnvPoint[10];
 	private int sampleRate;
-    private SampleOut sout;
+    private AudioObject sout;
 
 	//----------------------------------------------
 	// Constructor
@@ -63,7 +64,7 @@ public final class PulsewaveInst extends Instrument{
 		Envelope env = new Envelope(wt, pointArray);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		if(output == RENDER) sout = new SampleOut(span);
+		if(output == RENDER) sout = RenderTarget.output(span);
 	}	
 }
 
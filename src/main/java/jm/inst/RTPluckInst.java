@@ -1,5 +1,7 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.KarplusStrong;
+import jaw64.ca.audio.PluckedString;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -15,6 +17,8 @@ public final class RTPluckInst extends jm.audio.Instrument{
 	private int sampleRate;
         /** The sustain value */
         private double feedback;
+        /** The string (reused for every note) */
+        private PluckedString string;
 
 	//----------------------------------------------
 	// Constructor
@@ -44,6 +48,7 @@ public final class RTPluckInst extends jm.audio.Instrument{
 		this.sampleRate = sampleRate;
 		this.channels = channels;
 		this.feedback = feedback;
+		this.string = new PluckedString(sampleRate, feedback);
 	}
 
 	//----------------------------------------------
@@ -55,7 +60,7 @@ public final class RTPluckInst extends jm.audio.Instrument{
 	 * this instrument will use
 	 */
 	public void createChain(){
-		Pluck plk = new Pluck(this, sampleRate, channels, feedback);
+		KarplusStrong plk = new KarplusStrong(this, sampleRate, channels, string);
 		Volume vol = new Volume(plk);
 		StereoPan pan = new StereoPan(vol);
 		Envelope env = new Envelope(pan, new double[] {0.0, 1.0, 0.9, 1.0, 1.0, 0.0});
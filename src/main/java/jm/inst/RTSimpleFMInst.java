@@ -1,5 +1,7 @@
 package jm.inst;
 
+import jaw64.ca.audio.FeedbackDelayNetwork;
+import jaw64.ca.audio.Reverb;
 import jm.audio.io.*;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -26,7 +28,7 @@ public final class RTSimpleFMInst extends jm.audio.Instrument{
 	/** The volume to apply to each envelopes output */
 	private Volume vol;
 	/** This is where it all gets added together */
-	public SampleOut sout;
+	public AudioObject sout;
 	/** Pan */
 	private float pan;
 	/** The points to use in the construction of Envelopes */
@@ -39,6 +41,8 @@ public final class RTSimpleFMInst extends jm.audio.Instrument{
 	private float frqRatio;
 	
 	private int sampleRate;
+	/** The reverb applied to each note (null for none), reused by every note */
+	private FeedbackDelayNetwork reverbNetwork;
 
 	//----------------------------------------------
 	// Constructor
@@ -57,7 +61,22 @@ public final class RTSimpleFMInst extends jm.audio.Instrument{
 	 * @param sampleRate 
 	 */
 	public RTSimpleFMInst(int sampleRate, int channels, int dIndex, double ratio){
+	    this(sampleRate, channels, dIndex, ratio, false);
+	}
+	/**
+	 * A constructor to set an initial 
+	 * sampling rate and number of channels, and
+	 * whether to add reverb.
+	 * @param sampleRate 
+	 * @param reverb true to reverberate each note
+	 */
+	public RTSimpleFMInst(int sampleRate, int channels, int dIndex, double ratio, boolean reverb){
 		this.sampleRate = sampleRate;
+		if(reverb){
+			this.reverbNetwork = new FeedbackDelayNetwork(sampleRate);
+			this.reverbNetwork.setDecayTime(1.2);
+			this.reverbNetwork.setMix(1.0, 0.4);
+		}
 		EnvPoint[] tempArray = {
 			new EnvPoint((float)0.0, (float)0.0),
 			new EnvPoint((float)0.1, (float)1.0),
@@ -94,20 +113,9 @@ public final class RTSimpleFMInst extends jm.audio.Instrument{
 		Oscillator osc2 = new Oscillator(add,Oscillator.SINE_WAVE, 1);
 		Envelope env = new Envelope(osc2,pointArray);
 		Volume vol = new Volume(env,(float)1.0);
-/*
-		
-		Splitter split = new Splitter(vol);
-		Comb comb1 = new Comb(split,30,0.5);
-		Comb comb2 = new Comb(split,40,0.5);
-		Comb comb3 = new Comb(split,157,0.5);
-		Comb comb4 = new Comb(split,90,0.5);
-		AudioObject[] grp2 = {comb1,comb2,comb3,comb4};
-		Add add2 = new Add(grp2);
-		AllPass ap1 = new AllPass(add2,200,0.5);
-		AllPass ap2 = new AllPass(ap1,50,0.5);
-*/
-		
-		StereoPan span = new StereoPan(vol);
+		AudioObject wet = vol;
+		if(this.reverbNetwork != null) wet = new Reverb(vol, this.reverbNetwork);
+		StereoPan span = new StereoPan(wet);
 		//SampleOut sout = new SampleOut(span, "jmusic.tmp");
 	}	
 }
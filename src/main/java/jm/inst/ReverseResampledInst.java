@@ -1,5 +1,7 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -60,11 +62,11 @@ public final class ReverseResampledInst extends jm.audio.Instrument{
 	 */
 	public void createChain(){
 		//define the chain
-		SampleIn sin = new SampleIn(this, fileName);
+		SourceIn sin = new SourceIn(this, fileName);
 		NoteBufferReversed nb = new NoteBufferReversed(sin);
 		ReSample reSample = new ReSample(nb, this.baseFreq);
                 Volume vol = new Volume(reSample, (float)1.0);
                 Envelope env = new Envelope(vol, pointArray);
-		SampleOut sout = new SampleOut(env, "jmusic.tmp");
+		AudioObject sout = RenderTarget.output(env);
 	}
 }
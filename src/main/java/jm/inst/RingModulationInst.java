@@ -1,6 +1,7 @@
 package jm.inst;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -47,7 +48,7 @@ public final class RingModulationInst extends jm.audio.Instrument{
                     Oscillator.SINE_WAVE, Oscillator.AMPLITUDE);
 		Envelope env2 = new Envelope(wt2,
                     new double[] {0.0, 0.0, 0.05, 1.0, 1.0, 0.0});
-		SampleOut sout = new SampleOut(env2);
+		AudioObject sout = RenderTarget.output(env2);
 	}	
 }
 
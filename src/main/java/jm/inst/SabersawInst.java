@@ -1,6 +1,9 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SawEnsemble;
+import jaw64.ca.audio.UnisonSaw;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -20,7 +23,9 @@ public final class SabersawInst extends Instrument{
 	/** The points to use in the construction of Envelopes */
 	private EnvPoint[] pointArray = new EnvPoint[10];
 	private int sampleRate;
-    private SampleOut sout;
+    private AudioObject sout;
+	/** The sabersaw, reused by every note */
+	private SawEnsemble saw;
 
 	//----------------------------------------------
 	// Constructor
@@ -38,6 +43,8 @@ public final class SabersawInst extends Instrument{
 	 */
 	public SabersawInst(int sampleRate){
 		this.sampleRate = sampleRate;
+		this.saw = new SawEnsemble(sampleRate, 1, 0.0);
+		this.saw.setCurve(3.0); // exponential ramp, band-limited
 		EnvPoint[] tempArray = {
 			new EnvPoint((float)0.0, (float)0.0),
 			new EnvPoint((float)0.02, (float)1.0),
@@ -57,12 +64,11 @@ public final class SabersawInst extends Instrument{
 	 * this instrument will use
 	 */
 	public void createChain(){
-		Oscillator wt = new Oscillator(this, Oscillator.SABERSAW_WAVE, 
-                    this.sampleRate, 2);
+		UnisonSaw wt = new UnisonSaw(this, this.sampleRate, 2, this.saw);
 		Envelope env = new Envelope(wt, pointArray);
 		Volume vol = new Volume(env,(float)1.0);
 		StereoPan span = new StereoPan(vol);
-		if(output == RENDER) sout = new SampleOut(span);
+		if(output == RENDER) sout = RenderTarget.output(span);
 	}	
 }
 
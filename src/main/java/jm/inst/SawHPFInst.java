@@ -2,6 +2,8 @@ package jm.inst;
 import jm.audio.Instrument;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 
 import jm.audio.synth.*;
 
@@ -104,7 +106,7 @@ public final class SawHPFInst extends Instrument{
             Oscillator wt = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, 
                                            this.sampleRate, this.channels);
 
-            Filter filt = new Filter(wt, this.filterCutoff, Filter.HIGH_PASS);
+            StateVariableFilter filt = new StateVariableFilter(wt, this.filterCutoff, StateVariableFilter.HIGH_PASS);
 
             Envelope env = new Envelope(filt, 
                                         new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 
@@ -112,7 +114,7 @@ public final class SawHPFInst extends Instrument{
 
             Volume vol = new Volume(env);
 
-            SampleOut sout = new SampleOut(vol);
+            AudioObject sout = RenderTarget.output(vol);
 
 	}	
 
@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -63,13 +65,13 @@ public class SawLPFInst extends Instrument{
 	 */
 	public void createChain(){
 		Oscillator osc = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, this.channels);
-		Filter filt = new Filter(osc, this.filterCutoff, Filter.LOW_PASS);
+		StateVariableFilter filt = new StateVariableFilter(osc, this.filterCutoff, StateVariableFilter.LOW_PASS);
 		//Envelope env = new Envelope(filt, 
 		//new double[] {0.0, 0.0, 0.1, 1.0, 0.2, 0.6, 0.8, 0.4, 1.0, 0.0});
 		ADSR env = new ADSR(filt, 20, 100, 0.6, 400);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -69,18 +71,17 @@ public final class SawLPFInstF extends Instrument{
 	public void createChain(){
           Envelope filtEnv = new Envelope(this, this.sampleRate, this.channels,
               new double[] {0.0, 0.0, 0.5, 1.0, 1.0, 0.0});
-          Value scalefactor = new Value(this, this.sampleRate, this.channels, (float)2000.0);
-          Multiply mult = new Multiply(new AudioObject[] {filtEnv, scalefactor});
           Oscillator wave = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, this.channels);
           Oscillator wave2 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, this.channels);
           wave2.setFrqRatio((float)1.001); // for effect try 1.02
           Add summedWaves = new Add(new AudioObject[] {wave, wave2});
-          Filter filt = new Filter(new AudioObject[] {summedWaves, mult}, this.filterCutoff, Filter.LOW_PASS);
+          StateVariableFilter filt = new StateVariableFilter(new AudioObject[] {summedWaves, filtEnv}, this.filterCutoff, StateVariableFilter.LOW_PASS);
+          filt.setModulationDepth(2000.0);
           Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 0.4, 0.8, 0.3, 1.0, 0.0});
 		Volume vol = new Volume(env);
         Compressor comp = new Compressor(vol);
-		SampleOut sout = new SampleOut(comp);
+		AudioObject sout = RenderTarget.output(comp);
 	}	
 }
 
@@ -1,6 +1,8 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -80,19 +82,18 @@ public final class SawLPFInstG extends Instrument{
           // Filter cutoff envelope control
           Envelope filtEnv = new Envelope(this, this.sampleRate, this.channels,
               new double[] {0.0, 0.0, 0.5, 1.0, 1.0, 0.0});
-          Value scalefactor = new Value(this, this.sampleRate, this.channels, (float)2000.0);
-          Multiply mult = new Multiply(new AudioObject[] {filtEnv, scalefactor});
           // Waveform 1
           Oscillator wave = new Oscillator(add, Oscillator.SAWTOOTH_WAVE, Oscillator.FREQUENCY);
           // Filter
-          Filter filt = new Filter(new AudioObject[] {wave, mult}, this.filterCutoff, Filter.LOW_PASS);
+          StateVariableFilter filt = new StateVariableFilter(new AudioObject[] {wave, filtEnv}, this.filterCutoff, StateVariableFilter.LOW_PASS);
+          filt.setModulationDepth(2000.0);
           // Envelope gnerator
           Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.2, 0.4, 0.8, 0.3, 1.0, 0.0});
           // respond to note dynamics
 		Volume vol = new Volume(env);
 		// save to a file
-		SampleOut sout = new SampleOut(vol);
+		AudioObject sout = RenderTarget.output(vol);
 	}	
 }
 
@@ -1,6 +1,7 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -57,7 +58,7 @@ public final class SawLPFInstRT extends Instrument{
 	 */
 	public void createChain(){
           Oscillator wt = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, this.channels);
-          Filter filt = new Filter(wt, this.filterCutoff, Filter.LOW_PASS);
+          StateVariableFilter filt = new StateVariableFilter(wt, this.filterCutoff, StateVariableFilter.LOW_PASS);
           Envelope env = new Envelope(filt, 
               new double[] {0.0, 0.0, 0.05, 1.0, 0.3, 0.4, 1.0, 0.0});
 		Volume vol = new Volume(env);
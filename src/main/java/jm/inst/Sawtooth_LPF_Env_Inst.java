@@ -1,6 +1,7 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -84,7 +85,7 @@ public final class Sawtooth_LPF_Env_Inst extends Instrument{
           Envelope env = new Envelope(filt, envValues);
           Volume vol = new Volume(env);
           StereoPan pan = new StereoPan(vol);
-          SampleOut sout = new SampleOut(pan);
+          AudioObject sout = RenderTarget.output(pan);
 	}	
 }
 
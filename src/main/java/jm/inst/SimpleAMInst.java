@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -46,7 +47,7 @@ public final class SimpleAMInst extends jm.audio.Instrument{
             Add add = new Add(new AudioObject[] {wtAmp, offsetAmp});
             Oscillator carrier = new Oscillator(add, 
                 Oscillator.SINE_WAVE, Oscillator.AMPLITUDE);
-            SampleOut sout = new SampleOut(carrier);
+            AudioObject sout = RenderTarget.output(carrier);
 	}	
 }
 
@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -30,7 +31,7 @@ public final class SimpleAllPassInst extends jm.audio.Instrument{
 	public void createChain(){
 		Oscillator osc = new Oscillator(this, Oscillator.TRIANGLE_WAVE, this.sampleRate, this.channels);
 		AllPass ap = new AllPass(osc, this.delay);
-                SampleOut sout = new SampleOut(ap);
+                AudioObject sout = RenderTarget.output(ap);
 	}	
 }
 
@@ -1,6 +1,7 @@
 package jm.inst;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -75,7 +76,7 @@ public final class SimpleFMInst extends jm.audio.Instrument{
 		Envelope ampEnv = new Envelope(carrier, new double[] {0.0, 0.0, 0.02, 1.0, 1.0, 0.0});
 		Volume amp = new Volume(ampEnv);
 		StereoPan pan = new StereoPan(amp);
-		SampleOut sout = new SampleOut(pan);                
+		AudioObject sout = RenderTarget.output(pan);                
 	}	
 }
 
@@ -1,5 +1,8 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.KarplusStrong;
+import jaw64.ca.audio.PluckedString;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -7,6 +10,8 @@ import jm.audio.AudioObject;
 public final class SimplePluckInst extends jm.audio.Instrument{
 	private int sampleRate;
 	private int channels;
+	/** The string (reused for every note) */
+	private PluckedString string;
         
 	public SimplePluckInst(int sampleRate){
 	    this(sampleRate, 1);
@@ -15,11 +20,12 @@ public final class SimplePluckInst extends jm.audio.Instrument{
 	public SimplePluckInst(int sampleRate, int channels){
 		this.sampleRate = sampleRate;
 		this.channels = channels;
+		this.string = new PluckedString(sampleRate, 0.5);
 	}
 	/** Initialisation method used to build the objects that this instrument will use */
 	public void createChain(){
-		Pluck plk = new Pluck(this, sampleRate, this.channels);
-		SampleOut sout = new SampleOut( plk);
+		KarplusStrong plk = new KarplusStrong(this, sampleRate, this.channels, this.string);
+		AudioObject sout = RenderTarget.output(plk);
 	}	
 }
 
@@ -2,6 +2,10 @@ package jm.inst;
 
 
 import jm.audio.io.*;
+import jaw64.ca.audio.FeedbackDelayNetwork;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.Reverb;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -21,6 +25,8 @@ public final class SimpleReverbInst extends jm.audio.Instrument{
 	private boolean wholeFile;
 	/** The points to use in the construction of Envelopes */
 	private EnvPoint[] pointArray = new EnvPoint[10];
+	/** The reverb (kept so its delay lines are reused for every note) */
+	private FeedbackDelayNetwork reverbNetwork;
 	//----------------------------------------------
 	// Constructor
 	//----------------------------------------------
@@ -48,6 +54,9 @@ public final class SimpleReverbInst extends jm.audio.Instrument{
 			new EnvPoint((float)1.0, (float)0.0)
 		};
 		pointArray = tempArray;
+		reverbNetwork = new FeedbackDelayNetwork(44100);
+		reverbNetwork.setDecayTime(0.6);
+		reverbNetwork.setMix(1.0, 0.8);
 	}
 
 	//----------------------------------------------
@@ -61,25 +70,14 @@ public final class SimpleReverbInst extends jm.audio.Instrument{
 	 */
 	public void createChain(){
 		//define the chain
-		SampleIn sin = new SampleIn(this,fileName);
-		SampleIn sin2 = new SampleIn(this,fileName);
-		SampleIn sin3 = new SampleIn(this,fileName);
-		SampleIn sin4 = new SampleIn(this,fileName);
-
-		
-		Comb comb = new Comb(sin,20,0.5);
-		Comb comb2 = new Comb(sin2,100,0.4);
-		Comb comb3 = new Comb(sin3,70,0.6);
-		Comb comb4 = new Comb(sin4,50,0.5);
-		AudioObject[] array = {comb,comb2,comb3,comb4};
-		Add add = new Add(array);
-		//AllPass ap = new AllPass(add,50,0.9);
-		Filter filter = new Filter(add,2000.0, Filter.LOW_PASS);
+		SourceIn sin = new SourceIn(this,fileName);
+		Reverb reverb = new Reverb(sin, this.reverbNetwork);
+		Filter filter = new Filter(reverb,2000.0, Filter.LOW_PASS);
 		Filter filter2 = new Filter(filter,2000.0,Filter.HIGH_PASS);
 		ReSample reSample = new ReSample(filter2, this.baseFreq);
 	    	Volume vol = new Volume(reSample);
 	    	Envelope env = new Envelope(vol, pointArray);
 		StereoPan span = new StereoPan(env);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}
 }
@@ -1,5 +1,7 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -19,7 +21,7 @@ public final class SimpleSampleInst extends jm.audio.Instrument{
 	private boolean wholeFile;
 	/** The points for the break point envelope */
 	private double[] points;
-    private SampleOut sout;
+    private AudioObject sout;
 	//----------------------------------------------
 	// Constructor
 	//----------------------------------------------
@@ -61,18 +63,18 @@ public final class SimpleSampleInst extends jm.audio.Instrument{
 	 */
 	public void createChain(){
             //define the chain
-            SampleIn sin = new SampleIn(this, fileName);
+            SourceIn sin = new SourceIn(this, fileName);
             
             ReSample reSample = new ReSample(sin, this.baseFreq);
             Volume vol = new Volume(reSample);
             StereoPan span = new StereoPan(vol);
             if (wholeFile) {
                 sin.setWholeFile(wholeFile);	
-                if(output == RENDER) sout = new SampleOut(span);
+                if(output == RENDER) sout = RenderTarget.output(span);
             } 
             else {
                 Envelope env = new Envelope(span, points);
-                if(output == RENDER) sout = new SampleOut(env);
+                if(output == RENDER) sout = RenderTarget.output(env);
             }
 	}
 }
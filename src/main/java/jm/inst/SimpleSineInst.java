@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -47,7 +48,7 @@ public final class SimpleSineInst extends jm.audio.Instrument{
 				this.sampleRate, this.channels);
 		Envelope env = new Envelope(osc, 
 				new double[] {0.0, 0.0, 0.1, 1.0, 1.0, 0.0}); 
-		SampleOut sout = new SampleOut(env);
+		AudioObject sout = RenderTarget.output(env);
 	}	
 }
 
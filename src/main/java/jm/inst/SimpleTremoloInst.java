@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -43,7 +44,7 @@ public final class SimpleTremoloInst extends jm.audio.Instrument{
                  Oscillator.FREQUENCY);
             Volume amp = new Volume(modulator, (float)0.4);
             Oscillator carrier = new Oscillator(amp, Oscillator.SINE_WAVE, Oscillator.AMPLITUDE);
-            SampleOut sout = new SampleOut(carrier);
+            AudioObject sout = RenderTarget.output(carrier);
 	}	
 }
 
@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -23,7 +24,7 @@ public final class SineInst extends jm.audio.Instrument{
 	private float frequency = -1.0f;
 	/** The bereak point values fo the amplitude envelope */
 	private double[] envPoints;
-    private SampleOut sout;
+    private AudioObject sout;
 
 	//----------------------------------------------
 	// Constructor
@@ -118,7 +119,7 @@ public final class SineInst extends jm.audio.Instrument{
 		Envelope env = new Envelope(osc, envPoints);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		if(output == RENDER) sout = new SampleOut(span);
+		if(output == RENDER) sout = RenderTarget.output(span);
 	}	
 }
 
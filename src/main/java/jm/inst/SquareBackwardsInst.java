@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -63,7 +64,7 @@ public final class SquareBackwardsInst extends Instrument{
 		Envelope env = new Envelope(wt, pointArray);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -32,6 +33,6 @@ public final class SquareCombInst extends jm.audio.Instrument{
             this.sampleRate, this.channels);
         Envelope env = new Envelope(osc, new double[] {0.0, 0.0, 0.1, 1.0, 0.3, 0.0});
         Comb comb = new Comb(env, delay, decay);
-        SampleOut sout = new SampleOut(comb);
+        AudioObject sout = RenderTarget.output(comb);
     }
 }
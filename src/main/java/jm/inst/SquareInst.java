@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -22,7 +23,7 @@ public final class SquareInst extends Instrument{
 			0.95, 0.4, 1.0, 0.0};
 	private int sampleRate;
     private int channels;
-    private SampleOut sout;
+    private AudioObject sout;
 
 	//----------------------------------------------
 	// Constructor
@@ -84,7 +85,7 @@ public final class SquareInst extends Instrument{
 		Envelope env = new Envelope(wt, envArray);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		if (output == RENDER) sout = new SampleOut(span);
+		if (output == RENDER) sout = RenderTarget.output(span);
 	}	
 }
 
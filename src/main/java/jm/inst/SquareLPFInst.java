@@ -2,6 +2,8 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.StateVariableFilter;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -65,11 +67,11 @@ public final class SquareLPFInst extends Instrument{
 	public void createChain(){
             Oscillator wt = new Oscillator(this, Oscillator.SQUARE_WAVE, 
                 this.sampleRate, 2);
-            Filter filt = new Filter(wt, cutoff, Filter.LOW_PASS);
+            StateVariableFilter filt = new StateVariableFilter(wt, cutoff, StateVariableFilter.LOW_PASS);
             Envelope env = new Envelope(filt, pointArray);
             Volume vol = new Volume(env);
             StereoPan span = new StereoPan(vol);
-            SampleOut sout = new SampleOut(span);
+            AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
@@ -1,5 +1,7 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -89,7 +91,7 @@ public final class SubtractiveSampleInst extends jm.audio.Instrument{
 	 */
 	public void createChain(){
             //define the chain
-            SampleIn sin = new SampleIn(this, fileName);
+            SourceIn sin = new SourceIn(this, fileName);
             sin.setWholeFile(wholeFile);
             ReSample reSample = new ReSample(sin, this.baseFreq);
             // modulate filter cutoff
@@ -107,6 +109,6 @@ public final class SubtractiveSampleInst extends jm.audio.Instrument{
             ADSR env = new ADSR(filt, attack, decay, sustain, release);
             Volume vol = new Volume(env);
             StereoPan span = new StereoPan(vol);
-            SampleOut sout = new SampleOut(span);
+            AudioObject sout = RenderTarget.output(span);
 	}
 }
@@ -1,6 +1,7 @@
 package jm.inst;
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -172,7 +173,7 @@ public final class SubtractiveSynthInst extends Instrument{
         //Envelope env = new Envelope(filt, new double[] {0.0, 0.0, 0.1, 1.0, 1.0, 0.0});
         Volume vol = new Volume(env);
         StereoPan pan = new StereoPan(vol);
-        SampleOut sout = new SampleOut(pan);
+        AudioObject sout = RenderTarget.output(pan);
     }	
 }
 
@@ -2,13 +2,17 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SawEnsemble;
+import jaw64.ca.audio.UnisonSaw;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
 
 /**
  * A multiple sawtooth instrument implementation
- * which has each wave detuned.
+ * which has each wave detuned. The seven waves are
+ * band-limited and generated together by a UnisonSaw.
  * @author Andrew Brown, Nick Coleman and Andrew Sorensen
  */
 
@@ -23,6 +27,8 @@ public final class SuperSawInst extends Instrument{
 	private int sampleRate;
 	/** The frequency ratio between wavefroms */
 	private double detune;
+	/** The detuned saws, reused by every note */
+	private SawEnsemble saws;
 
 	//----------------------------------------------
 	// Constructor
@@ -42,6 +48,7 @@ public final class SuperSawInst extends Instrument{
 	public SuperSawInst(int sampleRate, double detune){	
 		this.sampleRate = sampleRate;
 		this.detune = detune;
+		this.saws = new SawEnsemble(sampleRate, 7, detune);
 		EnvPoint[] tempArray = {
 			new EnvPoint((float)0.0, (float)0.0),
 			new EnvPoint((float)0.02, (float)1.0),
@@ -61,25 +68,11 @@ public final class SuperSawInst extends Instrument{
 	 * this instrument will use
 	 */
 	public void createChain(){
-		Oscillator wt1 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		Oscillator wt2 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt2.setFrqRatio((float)(1.0 + detune));
-		Oscillator wt3 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt3.setFrqRatio((float)(1.0 - detune * 2));
-		Oscillator wt4 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt4.setFrqRatio((float)(1.0 + detune * 2));
-		Oscillator wt5 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt5.setFrqRatio((float)(1.0 - detune));
-		Oscillator wt6 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt6.setFrqRatio((float)(1.0 + detune * 3));
-		Oscillator wt7 = new Oscillator(this, Oscillator.SAWTOOTH_WAVE, this.sampleRate, 2);
-		wt7.setFrqRatio((float)(1.0 - detune * 3));
-		AudioObject[] waves = {wt1, wt2, wt3, wt4, wt5, wt6, wt7};
-		Add add = new Add(waves);
-		Envelope env = new Envelope(add, pointArray);
+		UnisonSaw wt = new UnisonSaw(this, this.sampleRate, 2, this.saws);
+		Envelope env = new Envelope(wt, pointArray);
 		Volume vol = new Volume(env);
 		StereoPan span = new StereoPan(vol);
-		SampleOut sout = new SampleOut(span);
+		AudioObject sout = RenderTarget.output(span);
 	}	
 }
 
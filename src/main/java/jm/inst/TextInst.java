@@ -2,6 +2,8 @@ package jm.inst;
 
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
+import jaw64.ca.audio.SourceIn;
 import jm.audio.Instrument;
 import jm.audio.synth.*;
 import jm.music.data.Note;
@@ -60,8 +62,8 @@ public final class TextInst extends jm.audio.Instrument{
 	 */
 	public void createChain(){
 		//define the chain
-		TextIn tin = new TextIn(this, fileName, 44100, 1);
-		SampleOut sout = new SampleOut(tin);
+		SourceIn tin = new SourceIn(this, fileName, 44100, 1);
+		AudioObject sout = RenderTarget.output(tin);
 	}
         
         // read a file
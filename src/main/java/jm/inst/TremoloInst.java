@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -45,7 +46,7 @@ public final class TremoloInst extends jm.audio.Instrument{
 			Oscillator.SINE_WAVE, Oscillator.AMPLITUDE);
 		Envelope env2 = new Envelope(carrier, 
 			new double[] {0.0, 0.0, 0.1, 1.0, 1.0, 0.0});
-		SampleOut sout = new SampleOut(env2);
+		AudioObject sout = RenderTarget.output(env2);
 	}	
 }
 
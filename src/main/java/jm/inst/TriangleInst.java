@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -21,7 +22,7 @@ public final class TriangleInst extends Instrument{
 	private EnvPoint[] pointArray = new EnvPoint[10];
 	private int sampleRate;
 	private int channels;
-    private SampleOut sout;
+    private AudioObject sout;
 
 	//----------------------------------------------
 	// Constructor
@@ -75,7 +76,7 @@ public final class TriangleInst extends Instrument{
 		Filter filt = new Filter(vol, (float)(this.sampleRate/2.1),
 			Filter.LOW_PASS);
 		StereoPan span = new StereoPan(filt);
-		if(output == RENDER) sout = new SampleOut(span);
+		if(output == RENDER) sout = RenderTarget.output(span);
 	}	
 }
 
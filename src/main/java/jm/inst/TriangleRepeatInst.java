@@ -2,6 +2,7 @@ package jm.inst;
 
 import jm.audio.Instrument;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -64,7 +65,7 @@ public final class TriangleRepeatInst extends Instrument{
 		Delay delay = new Delay(vol, 4000);
 		AudioObject[] sources = {vol, delay};
 		Add add = new Add(sources);
-		SampleOut sout = new SampleOut(add);
+		AudioObject sout = RenderTarget.output(add);
 	}	
 }
 
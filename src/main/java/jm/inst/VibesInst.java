@@ -1,6 +1,7 @@
 package jm.inst;
 
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -44,7 +45,7 @@ public final class VibesInst extends Instrument{
 
 	private boolean header = true;
 	private static int count = 0;
-	private SampleOut sout;
+	private AudioObject sout;
 
 	//----------------------------------------------
 	// Constructor
@@ -126,6 +127,6 @@ public final class VibesInst extends Instrument{
 		}
 		//And now the add object brings us back to one path.
 		add = new Add(span);
-		sout = new SampleOut(add);
+		sout = RenderTarget.output(add);
 	}
 }
@@ -1,5 +1,6 @@
 package jm.inst;
 import jm.audio.io.*;
+import jaw64.ca.audio.RenderTarget;
 import jm.audio.synth.*;
 import jm.music.data.Note;
 import jm.audio.AudioObject;
@@ -69,7 +70,7 @@ public final class VibratoInst extends jm.audio.Instrument{
             Envelope env2 = new Envelope(carrier, 
                new double[] {0.0, 0.0, 0.1, 1.0, 1.0, 0.0});
             Volume amp = new Volume(env2);
-            SampleOut sout = new SampleOut(amp);
+            AudioObject sout = RenderTarget.output(amp);
 	}	
 }
 
@@ -0,0 +1,82 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeedbackDelayNetwork}.
+ * @author jaw64
+ */
+public class FeedbackDelayNetworkTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    /**
+     * Every channel of a multichannel mix is as loud as mono output (within
+     * 1.5 dB) and differs from the other channels.
+     */
+    @Test
+    public void reverberatesEveryChannelAlike() {
+        double mono = impulseResponse(1)[0];
+        for (int channels : new int[] { 2, 3, 4, 6, 12 }) {
+            double[] levels = impulseResponse(channels);
+            for (int c = 0; c < channels; c++) {
+                double ratio = levels[c] / mono;
+                assertTrue(channels + " channels, channel " + c + ": " + ratio,
+                        ratio > 0.84 && ratio < 1.19);
+            }
+        }
+    }
+
+    /**
+     * Channels taking different lines are decorrelated.
+     */
+    @Test
+    public void decorrelatesChannels() {
+        final int channels = 4;
+        float[] samples = reverberateImpulse(channels);
+        for (int c = 1; c < channels; c++) {
+            double dot = 0.0, a = 0.0, b = 0.0;
+            for (int i = 0; i < samples.length; i += channels) {
+                dot += samples[i] * samples[i + c];
+                a += samples[i] * samples[i];
+                b += samples[i + c] * samples[i + c];
+            }
+            assertEquals("channel " + c, 0.0, dot / Math.sqrt(a * b), 0.3);
+        }
+    }
+
+    /**
+     * Gets the RMS level of each channel of the reverberated impulse.
+     * @param channels the number of channels
+     * @return the level of each channel
+     */
+    private static double[] impulseResponse(int channels) {
+        float[] samples = reverberateImpulse(channels);
+        double[] levels = new double[channels];
+        for (int i = 0; i < samples.length; i++) {
+            levels[i % channels] += samples[i] * samples[i];
+        }
+        for (int c = 0; c < channels; c++) {
+            levels[c] = Math.sqrt(levels[c] * channels / samples.length);
+        }
+        return levels;
+    }
+
+    /**
+     * Reverberates an impulse on every channel, fully wet.
+     * @param channels the number of channels
+     * @return the interleaved samples
+     */
+    private static float[] reverberateImpulse(int channels) {
+        FeedbackDelayNetwork network = new FeedbackDelayNetwork(SAMPLE_RATE);
+        network.setDecayTime(1.0);
+        float[] samples = new float[(int) network.getTailFrames() * channels];
+        for (int c = 0; c < channels; c++) {
+            samples[c] = 1.0f;
+        }
+        network.process(samples, 0, samples.length / channels, channels);
+        return samples;
+    }
+}
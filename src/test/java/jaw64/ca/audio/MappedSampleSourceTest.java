@@ -0,0 +1,135 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MappedSampleSource}.
+ * @author jaw64
+ */
+public class MappedSampleSourceTest {
+
+    private static final int FRAMES = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A WAV file written by {@link jaw64.ca.io.WavWriter} reads back as the
+     * samples written.
+     */
+    @Test
+    public void roundTripsWavWriter() throws Exception {
+        File file = SampleCacheTest.writeRamp(folder.newFile("ramp.wav"), 22050, 2, FRAMES);
+        MappedSampleSource source = MappedSampleSource.open(file.getPath());
+        assertEquals(22050, source.getSampleRate());
+        assertEquals(2, source.getChannels());
+        assertEquals(FRAMES, source.getFrames());
+        float[] samples = new float[2 * FRAMES];
+        source.read(0, samples, 0, FRAMES);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(SampleCacheTest.ramp(i / 2, FRAMES), samples[i], 1e-4);
+        }
+    }
+
+    /**
+     * 16 and 24-bit samples in both byte orders (WAV and AU files) read back
+     * exactly, scaled to -1 to 1.
+     */
+    @Test
+    public void roundTripsIntegerSamples() throws Exception {
+        for (AudioFileFormat.Type type : new AudioFileFormat.Type[] {
+            AudioFileFormat.Type.WAVE, AudioFileFormat.Type.AU
+        }) {
+            boolean bigEndian = type == AudioFileFormat.Type.AU;
+            for (int bits : new int[] { 16, 24 }) {
+                int[] values = new int[FRAMES];
+                for (int i = 0; i < FRAMES; i++) {
+                    values[i] = (int) (i * 2654435761L) >> (32 - bits);
+                }
+                File file = folder.newFile();
+                write(file, type, new AudioFormat(8000, bits, 1, true, bigEndian), values);
+                MappedSampleSource source = MappedSampleSource.open(file.getPath());
+                assertEquals(8000, source.getSampleRate());
+                assertEquals(FRAMES, source.getFrames());
+                float[] expected = new float[FRAMES];
+                for (int i = 0; i < FRAMES; i++) {
+                    expected[i] = values[i] / (float) (1 << (bits - 1));
+                }
+                float[] samples = new float[FRAMES];
+                source.read(0, samples, 0, FRAMES);
+                assertArrayEquals(type + ", " + bits + " bits", expected, samples, 0.0f);
+            }
+        }
+    }
+
+    /**
+     * Frames before the start and past the end read as silence.
+     */
+    @Test
+    public void readsSilenceOutsideTheFile() throws Exception {
+        File file = SampleCacheTest.writeRamp(folder.newFile("ramp.wav"), 8000, 1, FRAMES);
+        MappedSampleSource source = MappedSampleSource.open(file.getPath());
+        float[] samples = new float[FRAMES + 20];
+        samples[0] = 5.0f;
+        samples[samples.length - 1] = 5.0f;
+        source.read(-10, samples, 0, samples.length);
+        for (int i = 0; i < samples.length; i++) {
+            boolean outside = i < 10 || i >= FRAMES + 10;
+            float expected = outside ? 0.0f : SampleCacheTest.ramp(i - 10, FRAMES);
+            assertEquals("sample " + i, expected, samples[i], 1e-4);
+        }
+    }
+
+    /**
+     * Any file can be read as raw signed 8-bit samples.
+     */
+    @Test
+    public void readsRawBytes() throws Exception {
+        File file = folder.newFile("raw");
+        Files.write(file.toPath(), new byte[] { 0, 64, -128, 127, -1, 32 });
+        MappedSampleSource source = MappedSampleSource.openRaw(file.getPath(), 8000, 2);
+        assertEquals(3, source.getFrames());
+        float[] samples = new float[6];
+        source.read(0, samples, 0, 3);
+        assertArrayEquals(new float[] { 0.0f, 0.5f, -1.0f, 127 / 128.0f, -1 / 128.0f, 0.25f },
+                samples, 0.0f);
+    }
+
+    /**
+     * Writes mono integer samples to an audio file.
+     * @param file the file
+     * @param type the type of the file
+     * @param format the format of the samples
+     * @param values the samples (as integers of the format's size)
+     * @throws Exception if the file cannot be written
+     */
+    private static void write(File file, AudioFileFormat.Type type, AudioFormat format,
+            int[] values) throws Exception {
+        int size = format.getFrameSize();
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * size)
+                .order(format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        for (int value : values) {
+            for (int b = 0; b < size; b++) {
+                int shift = format.isBigEndian() ? 8 * (size - 1 - b) : 8 * b;
+                bytes.put((byte) (value >> shift));
+            }
+        }
+        try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(bytes.array()),
+                format, values.length)) {
+            AudioSystem.write(in, type, file);
+        }
+    }
+}
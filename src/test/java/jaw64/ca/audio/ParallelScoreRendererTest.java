@@ -0,0 +1,172 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import jm.audio.Instrument;
+import jm.inst.SineInst;
+import jm.music.data.Note;
+import jm.music.data.Part;
+import jm.music.data.Phrase;
+import jm.music.data.Score;
+import jm.util.Write;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ParallelScoreRenderer}, against jMusic's own rendering.
+ * @author jaw64
+ */
+public class ParallelScoreRendererTest {
+
+    private static final int SAMPLE_RATE = 22050;
+
+    private static final int CHANNELS = 2;
+
+    /**
+     * The largest difference allowed between two peak-normalized mixes (jMusic
+     * writes 16-bit samples).
+     */
+    private static final double TOLERANCE = 1e-3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Rendering on a pool in small tasks mixes the same sound as jMusic's
+     * sequential rendering through {@code SampleOut}.
+     */
+    @Test
+    public void matchesSequentialRendering() throws Exception {
+        Score score = createScore();
+        File au = folder.newFile("sequential.au");
+        Write.au(score, au.getPath(), new Instrument[] {
+            new SineInst(SAMPLE_RATE, CHANNELS), new SineInst(SAMPLE_RATE, CHANNELS)
+        });
+        float[] sequential = normalize(readSamples(au));
+
+        ParallelScoreRenderer renderer = new ParallelScoreRenderer(SAMPLE_RATE, CHANNELS,
+                index -> new SineInst(SAMPLE_RATE, CHANNELS));
+        renderer.setNotesPerTask(2);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        float[] parallel;
+        try {
+            renderer.setPool(pool);
+            parallel = normalize(renderer.render(score));
+        } finally {
+            pool.shutdown();
+        }
+
+        // jMusic may pad the end of the file; whatever is not in both must be silent.
+        int length = Math.min(sequential.length, parallel.length);
+        assertTrue("The parallel mix is too short.", length > SAMPLE_RATE * CHANNELS);
+        double worst = 0.0;
+        for (int i = 0; i < Math.max(sequential.length, parallel.length); i++) {
+            double a = i < sequential.length ? sequential[i] : 0.0;
+            double b = i < parallel.length ? parallel[i] : 0.0;
+            worst = Math.max(worst, Math.abs(a - b));
+        }
+        assertEquals("The mixes differ.", 0.0, worst, TOLERANCE);
+    }
+
+    /**
+     * The mix is the same, sample for sample, without a pool and with one.
+     */
+    @Test
+    public void rendersTheSameOnAnyPool() throws Exception {
+        Score score = createScore();
+        ParallelScoreRenderer renderer = new ParallelScoreRenderer(SAMPLE_RATE, CHANNELS,
+                index -> new SineInst(SAMPLE_RATE, CHANNELS));
+        renderer.setNotesPerTask(1);
+        float[] serial = renderer.render(score);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            renderer.setPool(pool);
+            assertArrayEquals(serial, renderer.render(score), 0.0f);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Creates a small score of two overlapping parts with rests, on note
+     * boundaries which fall on whole frames.
+     * @return the score
+     */
+    private static Score createScore() {
+        Phrase melody = new Phrase(0.0);
+        int[] pitches = {60, 64, 67, Note.REST, 72, 71, 67, 64};
+        for (int pitch : pitches) {
+            melody.addNote(new Note(pitch, 0.5));
+        }
+        Phrase bass = new Phrase(1.0);
+        for (int pitch : new int[] {36, 43, 41}) {
+            bass.addNote(new Note(pitch, 1.0));
+        }
+        Part upper = new Part();
+        upper.setInstrument(0);
+        upper.addPhrase(melody);
+        Part lower = new Part();
+        lower.setInstrument(1);
+        lower.addPhrase(bass);
+        Score score = new Score();
+        score.setTempo(60.0);
+        score.addPart(upper);
+        score.addPart(lower);
+        return score;
+    }
+
+    /**
+     * Reads the samples of an audio file.
+     * @param file the file
+     * @return the interleaved samples (-1 to 1)
+     * @throws IOException if the file cannot be read
+     * @throws UnsupportedAudioFileException if the file cannot be decoded
+     */
+    private static float[] readSamples(File file) throws IOException, UnsupportedAudioFileException {
+        AudioFormat pcm = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(file);
+                InputStream converted = AudioSystem.getAudioInputStream(pcm, in)) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = converted.read(buffer)) > 0;) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        byte[] data = bytes.toByteArray();
+        float[] samples = new float[data.length / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((data[2 * i] & 0xFF) | (data[2 * i + 1] << 8)) / 32768.0f;
+        }
+        return samples;
+    }
+
+    /**
+     * Scales samples so their peak is 1.
+     * @param samples the samples (scaled in place)
+     * @return the samples
+     */
+    private static float[] normalize(float[] samples) {
+        float peak = 0.0f;
+        for (float sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        if (peak > 0.0f) {
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] /= peak;
+            }
+        }
+        return samples;
+    }
+}
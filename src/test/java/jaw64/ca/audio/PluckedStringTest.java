@@ -0,0 +1,42 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PluckedString}.
+ * @author jaw64
+ */
+public class PluckedStringTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    /**
+     * The same note plucked with the same seed sounds the same on any string,
+     * and differs when plucked with another seed.
+     */
+    @Test
+    public void seedsTheNoisePerPluck() {
+        float[] first = pluck(new PluckedString(SAMPLE_RATE, 0.5), 440.0, 0);
+        PluckedString string = new PluckedString(SAMPLE_RATE, 0.5);
+        pluck(string, 220.0, 12345);
+        assertArrayEquals(first, pluck(string, 440.0, 0), 0.0f);
+        assertFalse(Arrays.equals(first, pluck(string, 440.0, SAMPLE_RATE)));
+    }
+
+    /**
+     * Plucks a string and renders a second of it.
+     * @param string the string
+     * @param frequency the frequency (in Hz)
+     * @param seed the seed of the noise
+     * @return the mono samples
+     */
+    private static float[] pluck(PluckedString string, double frequency, long seed) {
+        float[] samples = new float[SAMPLE_RATE];
+        string.pluck(frequency, seed);
+        string.render(samples, 0, samples.length, 1);
+        return samples;
+    }
+}
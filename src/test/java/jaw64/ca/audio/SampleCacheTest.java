@@ -0,0 +1,174 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import jaw64.ca.io.WavWriter;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SampleCache}.
+ * @author jaw64
+ */
+public class SampleCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearCache() {
+        SampleCache.clear();
+    }
+
+    /**
+     * Threads asking for the same file at once share a single decode.
+     */
+    @Test
+    public void decodesOnceForConcurrentLookups() throws Exception {
+        File file = writeRamp(folder.newFile("ramp.wav"), 44100, 2, 10000);
+        final int numThreads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<SampleData>> results = new ArrayList<>();
+            long misses = SampleCache.getMisses();
+            for (int i = 0; i < numThreads; i++) {
+                results.add(pool.submit((Callable<SampleData>) () -> {
+                    start.await();
+                    return SampleCache.get(file.getPath());
+                }));
+            }
+            start.countDown();
+            SampleData first = results.get(0).get();
+            for (Future<SampleData> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, SampleCache.getMisses() - misses);
+            assertEquals(first.getSizeInBytes(), SampleCache.getTotalBytes());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A file is decoded to exactly its frames, with its samples in order.
+     */
+    @Test
+    public void decodesEveryFrame() throws Exception {
+        final int frames = 12345;
+        File file = writeRamp(folder.newFile("ramp.wav"), 22050, 1, frames);
+        SampleData data = SampleCache.get(file.getPath());
+        assertEquals(22050, data.getSampleRate());
+        assertEquals(1, data.getChannels());
+        assertEquals(frames, data.getFrames());
+        assertEquals(4L * frames, data.getSizeInBytes());
+        for (int i = 0; i < frames; i++) {
+            assertEquals(ramp(i, frames), data.getSample(i), 1e-4);
+        }
+    }
+
+    /**
+     * Small files are decoded at their own bit depth, to the same samples a
+     * mapped file gives.
+     */
+    @Test
+    public void decodesLikeMappedFiles() throws Exception {
+        for (AudioFormat format : new AudioFormat[] {
+            new AudioFormat(44100, 24, 2, true, false),
+            new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 44100, 32, 2, 8, 44100, false),
+            new AudioFormat(44100, 8, 2, false, false)
+        }) {
+            File file = folder.newFile();
+            writeNoise(file, format, 1000);
+            float[] mapped = readAll(MappedSampleSource.open(file.getPath()));
+            float[] decoded = readAll(SampleCache.getSource(file.getPath()));
+            assertTrue(SampleCache.getSource(file.getPath()) instanceof SampleData);
+            assertArrayEquals(format.toString(), mapped, decoded, 0.0f);
+        }
+    }
+
+    /**
+     * Writes random samples to a WAV file.
+     * @param file the file
+     * @param format the format of the samples
+     * @param frames the number of frames
+     * @throws Exception if the file cannot be written
+     */
+    private static void writeNoise(File file, AudioFormat format, int frames) throws Exception {
+        byte[] bytes = new byte[frames * format.getFrameSize()];
+        Random rand = new Random(44);
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                buffer.putFloat(rand.nextFloat() * 2.0f - 1.0f);
+            }
+        }
+        else {
+            rand.nextBytes(bytes);
+        }
+        try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(bytes), format, frames)) {
+            AudioSystem.write(in, AudioFileFormat.Type.WAVE, file);
+        }
+    }
+
+    /**
+     * Reads every sample of a source.
+     * @param source the source
+     * @return the interleaved samples
+     */
+    private static float[] readAll(SampleSource source) {
+        float[] samples = new float[(int) source.getFrames() * source.getChannels()];
+        source.read(0, samples, 0, (int) source.getFrames());
+        return samples;
+    }
+
+    /**
+     * Writes a ramp from -1 to 1 (the same on every channel) to a WAV file.
+     * @param file the file
+     * @param sampleRate the number of frames per second
+     * @param channels the number of channels
+     * @param frames the number of frames
+     * @return the file
+     * @throws Exception if the file cannot be written
+     */
+    static File writeRamp(File file, int sampleRate, int channels, int frames) throws Exception {
+        float[] samples = new float[frames * channels];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = ramp(i / channels, frames);
+        }
+        try (WavWriter wav = new WavWriter(file.toPath(), sampleRate, channels)) {
+            wav.write(samples, frames);
+        }
+        return file;
+    }
+
+    /**
+     * Gets a sample of the ramp.
+     * @param frame the frame
+     * @param frames the number of frames
+     * @return the sample
+     */
+    static float ramp(int frame, int frames) {
+        return -1.0f + 2.0f * frame / frames;
+    }
+}
@@ -0,0 +1,67 @@
+package jaw64.ca.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SonificationEngine}.
+ * @author jaw64
+ */
+public class SonificationEngineTest {
+
+    /**
+     * Each generation ends on the frame nearest its exact time, so generations
+     * lasting a fractional number of frames never drift, whatever the block size.
+     */
+    @Test
+    public void endsGenerationsWithoutDrift() throws Exception {
+        final int sampleRate = 44100;
+        final double secondsPerGeneration = 1.0 / 60.0; // 735 frames
+        final double odd = 0.0123; // 542.43 frames
+        for (int blockSize : new int[] { 1, 64, 256, 1000 }) {
+            for (double seconds : new double[] { secondsPerGeneration, odd }) {
+                SonificationEngine engine = new SonificationEngine(sampleRate, 3, seconds,
+                        blockSize);
+                CountingSink sink = new CountingSink(blockSize);
+                double framesPerGeneration = seconds * sampleRate;
+                for (int g = 1; g <= 10000; g++) {
+                    engine.renderGeneration(sink);
+                    String message = "generation " + g + ", block size " + blockSize;
+                    assertEquals(message, Math.round(g * framesPerGeneration),
+                            engine.getFramesRendered());
+                    assertEquals(message, g * framesPerGeneration, sink.frames, 0.5 + 1e-6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the frames written and checks that each block fits the block size.
+     */
+    private static class CountingSink implements AudioSink {
+
+        private final int blockSize;
+
+        private long frames;
+
+        /**
+         * (constructor) Creates a sink for blocks of at most the provided size.
+         * @param blockSize the largest number of frames per block
+         */
+        CountingSink(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see jaw64.ca.audio.AudioSink#write(float[], int)
+         */
+        @Override
+        public void write(float[] samples, int frames) {
+            assertTrue(frames > 0 && frames <= blockSize);
+            assertTrue(samples.length >= frames * SonificationEngine.CHANNELS);
+            this.frames += frames;
+        }
+    }
+}
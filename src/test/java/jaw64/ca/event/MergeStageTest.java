@@ -0,0 +1,105 @@
+package jaw64.ca.event;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MergeStage}.
+ * @author jaw64
+ */
+public class MergeStageTest {
+
+    /**
+     * Runs of two interleaved voices are each merged into one note, and the
+     * merged notes come out in the order they start.
+     */
+    @Test
+    public void mergesInterleavedVoicesSeparately() {
+        NoteEventBuffer events = new NoteEventBuffer();
+        for (int n = 0; n < 4; n++) {
+            events.add(n * 120, 120, 60, 100, 0);
+            events.add(n * 120, 60, 64, 100, 0);
+            events.add(n * 120 + 60, 60, 64, 100, 0);
+        }
+        events.add(480, 120, 67, 100, 0);
+        List<String> notes = run(new MergeStage(), events);
+        assertEquals("[0+480 60/100/0, 0+480 64/100/0, 480+120 67/100/0]", notes.toString());
+    }
+
+    /**
+     * A note with another velocity or channel is not merged into the run it follows.
+     */
+    @Test
+    public void keepsAccentsAndChannelsApart() {
+        NoteEventBuffer events = new NoteEventBuffer();
+        events.add(0, 120, 60, 100, 0);
+        events.add(120, 120, 60, 100, 0);
+        events.add(240, 120, 60, 127, 0);
+        events.add(360, 120, 60, 127, 1);
+        List<String> notes = run(new MergeStage(), events);
+        assertEquals("[0+240 60/100/0, 240+120 60/127/0, 360+120 60/127/1]", notes.toString());
+    }
+
+    /**
+     * Splitting the stream into batches of one note does not change the result.
+     */
+    @Test
+    public void mergesAcrossBatches() {
+        NoteEventBuffer events = new NoteEventBuffer();
+        for (int n = 0; n < 200; n++) {
+            events.add(n * 60, 60, 60 + (n % 3 == 0 ? 0 : 12), 100, 0);
+            events.add(n * 60, 30, 48, 100, n % 2);
+        }
+        List<String> whole = run(new MergeStage(), events);
+
+        MergeStage stage = new MergeStage();
+        List<String> batched = new ArrayList<>();
+        NoteEventBuffer batch = new NoteEventBuffer(1);
+        for (int i = 0; i < events.size(); i++) {
+            batch.clear();
+            batch.add(events.getTick(i), events.getDuration(i), events.getPitch(i),
+                    events.getVelocity(i), events.getChannel(i));
+            stage.process(batch);
+            describe(batch, batched);
+        }
+        batch.clear();
+        stage.flush(batch);
+        describe(batch, batched);
+        assertEquals(whole, batched);
+    }
+
+    /**
+     * Runs a stream through a stage as one batch and flushes it.
+     * @param stage the stage
+     * @param events the stream
+     * @return the notes passed on, described as text
+     */
+    private static List<String> run(EventStage stage, NoteEventBuffer events) {
+        List<String> notes = new ArrayList<>();
+        NoteEventBuffer batch = new NoteEventBuffer();
+        for (int i = 0; i < events.size(); i++) {
+            batch.add(events.getTick(i), events.getDuration(i), events.getPitch(i),
+                    events.getVelocity(i), events.getChannel(i));
+        }
+        stage.process(batch);
+        describe(batch, notes);
+        batch.clear();
+        stage.flush(batch);
+        describe(batch, notes);
+        return notes;
+    }
+
+    /**
+     * Describes every note of a batch as "tick+duration pitch/velocity/channel".
+     * @param events the batch
+     * @param notes the list to add the descriptions to
+     */
+    private static void describe(NoteEventBuffer events, List<String> notes) {
+        for (int i = 0; i < events.size(); i++) {
+            notes.add(events.getTick(i) + "+" + events.getDuration(i) + " " + events.getPitch(i)
+                    + "/" + events.getVelocity(i) + "/" + events.getChannel(i));
+        }
+    }
+}
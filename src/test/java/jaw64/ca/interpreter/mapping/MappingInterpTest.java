@@ -0,0 +1,147 @@
+package jaw64.ca.interpreter.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.DefaultCellularAutomaton;
+import jaw64.ca.interpreter.musc1280.LisztIntroInterp;
+import jaw64.ca.rules.Binary1DRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MappingInterp} and {@link ExtractionPlan}.
+ * @author jaw64
+ */
+public class MappingInterpTest {
+
+    /**
+     * The number of generations interpreted.
+     */
+    private static final int NUM_GENERATIONS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The preset mapping must reproduce LisztIntroInterp's RANDOM melody note for note.
+     */
+    @Test
+    public void randomMappingMatchesLisztIntro() throws Exception {
+        CellularAutomaton ca = createAutomaton();
+        File liszt = folder.newFile("liszt.mid");
+        File mapped = folder.newFile("mapped.mid");
+        LisztIntroInterp lisztInterp = new LisztIntroInterp(NUM_GENERATIONS,
+                LisztIntroInterp.Type.RANDOM, 60, liszt.getPath());
+        lisztInterp.setStreaming(true);
+        lisztInterp.interpret(ca);
+        new MappingInterp(NUM_GENERATIONS, LisztIntroInterp.createRandomMapping(), 60,
+                mapped.getPath()).interpret(ca);
+
+        List<String> expected = readNotes(liszt);
+        assertEquals(2 * NUM_GENERATIONS, expected.size());
+        assertEquals(expected, readNotes(mapped));
+    }
+
+    /**
+     * Fields with gaps, overlaps and lookup tables decode like direct reads.
+     */
+    @Test
+    public void decodesFieldsAnywhereInTheWindow() {
+        ExtractionPlan plan = new BitFieldMapping(BitFieldMapping.OutputType.TEXT)
+                .addField("a", 3, 5)
+                .addField("b", 0, 4)
+                .addField("c", 40, 2, 7, 8, 9, 10)
+                .compile();
+        checkDirectReads(plan, new int[] { 3, 0, 40 }, new int[] { 5, 4, 2 }, true);
+    }
+
+    /**
+     * Fields spanning more than 64 cells are read one by one.
+     */
+    @Test
+    public void decodesFieldsSpanningMoreThanAWindow() {
+        ExtractionPlan plan = new BitFieldMapping(BitFieldMapping.OutputType.TEXT)
+                .addField("a", 1, 6)
+                .addField("b", 90, 20)
+                .compile();
+        assertEquals(110, plan.getRequiredCells());
+        checkDirectReads(plan, new int[] { 1, 90 }, new int[] { 6, 20 }, false);
+    }
+
+    /**
+     * Checks that a plan decodes every generation of an automaton like
+     * {@link CellGroup#getBits(int, int)} (the third field, if looked up,
+     * maps 0-3 to 7-10).
+     */
+    private static void checkDirectReads(ExtractionPlan plan, int[] offsets, int[] widths,
+            boolean lookupLast) {
+        CellularAutomaton ca = createAutomaton();
+        int[] values = new int[plan.getNumFields()];
+        int[] expected = new int[values.length];
+        for (int i = 0; i < 50; i++) {
+            CellGroup group = ca.getIteration(i);
+            for (int base = 0; base < 4; base++) {
+                plan.decode(group, base, values);
+                for (int f = 0; f < expected.length; f++) {
+                    expected[f] = (int) group.getBits(base + offsets[f], widths[f]);
+                }
+                if (lookupLast) {
+                    expected[2] += 7;
+                }
+                assertArrayEquals(expected, values);
+            }
+        }
+    }
+
+    /**
+     * Creates a rule 30 automaton from random cells.
+     */
+    private static CellularAutomaton createAutomaton() {
+        CellGroup initialGroup = new CellGroup(128);
+        Random rand = new Random(1280);
+        for (int i = 0; i < 128; i++) {
+            initialGroup.setValue(rand.nextInt(2), i);
+        }
+        return new DefaultCellularAutomaton(initialGroup, new Binary1DRule(30));
+    }
+
+    /**
+     * Reads the note ons and note offs of a MIDI file, in order.
+     */
+    private static List<String> readNotes(File file) throws IOException, InvalidMidiDataException {
+        List<String> notes = new ArrayList<>();
+        for (Track track : MidiSystem.getSequence(file).getTracks()) {
+            for (int i = 0; i < track.size(); i++) {
+                MidiEvent event = track.get(i);
+                if (!(event.getMessage() instanceof ShortMessage)) {
+                    continue;
+                }
+                ShortMessage msg = (ShortMessage) event.getMessage();
+                boolean on = msg.getCommand() == ShortMessage.NOTE_ON && msg.getData2() > 0;
+                boolean off = msg.getCommand() == ShortMessage.NOTE_OFF
+                        || msg.getCommand() == ShortMessage.NOTE_ON && msg.getData2() == 0;
+                if (on) {
+                    notes.add(event.getTick() + " on " + msg.getChannel() + " " + msg.getData1()
+                            + " " + msg.getData2());
+                }
+                else if (off) {
+                    notes.add(event.getTick() + " off " + msg.getChannel() + " " + msg.getData1());
+                }
+            }
+        }
+        return notes;
+    }
+}
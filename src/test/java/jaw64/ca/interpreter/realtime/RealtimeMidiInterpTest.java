@@ -0,0 +1,200 @@
+package jaw64.ca.interpreter.realtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import jaw64.ca.CellGroup;
+import jaw64.ca.CellularAutomaton;
+import jaw64.ca.DefaultCellularAutomaton;
+import jaw64.ca.interpreter.mapping.BitFieldMapping;
+import jaw64.ca.rules.Binary1DRule;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RealtimeMidiInterp}, playing into a loopback receiver
+ * which records what it was sent and when.
+ * @author jaw64
+ */
+public class RealtimeMidiInterpTest {
+
+    /**
+     * The most a note on may stray from its scheduled time in the timing
+     * check, and the most most note ons may stray (in nanoseconds).
+     */
+    private static final long MAX_DEVIATION_NANOS = 10000000L;
+
+    private static final long USUAL_DEVIATION_NANOS = 1000000L;
+
+    /**
+     * The number of runs the timing check may take to pass.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Sixteenth notes at 300 BPM from a 1M-cell automaton are played on time:
+     * 95% of onsets are within {@link #USUAL_DEVIATION_NANOS} of the schedule
+     * (measured from the first onset), none are further than
+     * {@link #MAX_DEVIATION_NANOS}, and playback never waits for the
+     * look-ahead. A pause of the whole machine can spoil a run, so the check
+     * passes if any of {@link #MAX_ATTEMPTS} runs does; if none does on a
+     * machine which stalls even a spinning thread for longer than
+     * {@link #USUAL_DEVIATION_NANOS}, the timing is skipped rather than
+     * failed. A run takes about 4 seconds.
+     */
+    @Test
+    public void playsSixteenthsAt300BpmFromAMillionCells() {
+        final int numCells = 1 << 20;
+        CellGroup initialGroup = new CellGroup(numCells);
+        Random rand = new Random(1280);
+        for (int i = 0; i < numCells; i++) {
+            initialGroup.setValue(rand.nextInt(2), i);
+        }
+        // Warm up (compile) the stepping code before timing anything.
+        CellularAutomaton warmUp = new DefaultCellularAutomaton(initialGroup, new Binary1DRule(30), 1);
+        for (int i = 0; i < 20; i++) {
+            warmUp.getIteration(i);
+        }
+        warmUp = null;
+        String failure = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            System.gc();
+            failure = checkTiming(initialGroup);
+            if (failure == null) {
+                return;
+            }
+        }
+        long stall = measureStall(4000000000L);
+        assumeTrue("The machine stalls a spinning thread by up to " + stall / 1000
+                + " us, so timing cannot be checked. " + failure, stall < USUAL_DEVIATION_NANOS);
+        fail(failure);
+    }
+
+    /**
+     * Velocities are clamped to 1-127 and pitches outside 0-127 are rests,
+     * rather than wrapping or turning notes off.
+     */
+    @Test
+    public void keepsNotesWithinTheMidiRange() {
+        BitFieldMapping mapping = new BitFieldMapping(BitFieldMapping.OutputType.NOTES)
+                .addField(BitFieldMapping.PITCH, 0, 1, 60, 200)
+                .addField(BitFieldMapping.VELOCITY, 1, 1, 0, 300);
+        LoopbackReceiver receiver = new LoopbackReceiver();
+        RealtimeMidiInterp interp = new RealtimeMidiInterp(3, mapping, 0, receiver, 1e6);
+        CellGroup group = new CellGroup(8);
+        interp.begin(new DefaultCellularAutomaton(group, new Binary1DRule(30)));
+        interp.onGeneration(0, group);
+        group.setValue(1, 0);
+        interp.onGeneration(1, group);
+        group.setValue(0, 0);
+        group.setValue(1, 1);
+        interp.onGeneration(2, group);
+        interp.end();
+
+        List<int[]> messages = receiver.getMessages();
+        assertEquals(4, messages.size());
+        assertEquals(ShortMessage.NOTE_ON, messages.get(0)[0]);
+        assertEquals(60, messages.get(0)[1]);
+        assertEquals(1, messages.get(0)[2]);
+        assertEquals(ShortMessage.NOTE_OFF, messages.get(1)[0]);
+        assertEquals(ShortMessage.NOTE_ON, messages.get(2)[0]);
+        assertEquals(60, messages.get(2)[1]);
+        assertEquals(127, messages.get(2)[2]);
+    }
+
+    /**
+     * Plays 80 sixteenth notes at 300 BPM from rule 30 and checks their timing.
+     * @param initialGroup the initial cells
+     * @return why the timing was off, or null if it was not
+     */
+    private static String checkTiming(CellGroup initialGroup) {
+        final int numNotes = 80;
+        // Each generation takes 4 MB, so only the next one is cached, keeping
+        // what survives young collections small.
+        CellularAutomaton ca = new DefaultCellularAutomaton(initialGroup, new Binary1DRule(30), 2);
+        BitFieldMapping mapping = new BitFieldMapping(BitFieldMapping.OutputType.NOTES)
+                .addField(BitFieldMapping.PITCH, 0, 7);
+        LoopbackReceiver receiver = new LoopbackReceiver();
+        RealtimeMidiInterp interp = new RealtimeMidiInterp(numNotes, mapping,
+                initialGroup.getNumElements() / 2, receiver, 300.0);
+        interp.interpret(ca);
+
+        List<Long> onsets = receiver.getOnsetNanos();
+        assertEquals(numNotes, onsets.size());
+        assertEquals(2 * numNotes, interp.getLatenessHistogram().getCount());
+        long interval = 60000000000L / 300 / 4;
+        long worst = 0;
+        int unusual = 0;
+        for (int i = 0; i < onsets.size(); i++) {
+            long deviation = Math.abs(onsets.get(i) - onsets.get(0) - i * interval);
+            worst = Math.max(worst, deviation);
+            unusual += deviation > USUAL_DEVIATION_NANOS ? 1 : 0;
+        }
+        String lateness = " Lateness: " + interp.getLatenessHistogram();
+        if (worst >= MAX_DEVIATION_NANOS) {
+            return "Onsets strayed by up to " + worst / 1000 + " us." + lateness;
+        }
+        if (unusual > numNotes / 20) {
+            return unusual + " onsets strayed by over a millisecond." + lateness;
+        }
+        if (interp.getUnderruns() > 0) {
+            return "Playback waited for the look-ahead." + lateness;
+        }
+        return null;
+    }
+
+    /**
+     * Measures how long the machine can stall a thread which never sleeps (as
+     * on a virtual machine sharing its cores).
+     * @param nanos how long to measure for
+     * @return the longest gap between two reads of the clock (in nanoseconds)
+     */
+    private static long measureStall(long nanos) {
+        long last = System.nanoTime();
+        final long end = last + nanos;
+        long worst = 0;
+        for (long now = last; now < end; now = System.nanoTime()) {
+            worst = Math.max(worst, now - last);
+            last = now;
+        }
+        return worst;
+    }
+
+    /**
+     * Records the short messages it receives and when the note ons arrived.
+     * @author jaw64
+     */
+    private static final class LoopbackReceiver implements Receiver {
+
+        private final List<int[]> messages = new ArrayList<>();
+
+        private final List<Long> onsetNanos = new ArrayList<>();
+
+        @Override
+        public synchronized void send(MidiMessage message, long timeStamp) {
+            long now = System.nanoTime();
+            ShortMessage msg = (ShortMessage) message;
+            messages.add(new int[] { msg.getCommand(), msg.getData1(), msg.getData2() });
+            if (msg.getCommand() == ShortMessage.NOTE_ON) {
+                onsetNanos.add(now);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<int[]> getMessages() {
+            return new ArrayList<>(messages);
+        }
+
+        synchronized List<Long> getOnsetNanos() {
+            return new ArrayList<>(onsetNanos);
+        }
+    }
+}
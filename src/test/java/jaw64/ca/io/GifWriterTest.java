@@ -0,0 +1,103 @@
+package jaw64.ca.io;
+
+import static org.junit.Assert.assertEquals;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Tests for {@link GifWriter}, decoding what it writes with {@link ImageIO}.
+ * @author jaw64
+ */
+public class GifWriterTest {
+
+    private static final int WIDTH = 61;
+
+    private static final int HEIGHT = 47;
+
+    private static final int[] PALETTE = { 0x000000, 0xFFFFFF, 0xFF0000, 0x0000FF, 0x00FF00 };
+
+    /**
+     * Every frame, drawn over the previous ones at its offset, shows the
+     * pixels written; including a frame which does not change and a frame
+     * busy enough to fill the LZW code table.
+     */
+    @Test
+    public void roundTripsFrames() throws Exception {
+        byte[][] frames = new byte[6][];
+        for (int f = 0; f < frames.length; f++) {
+            frames[f] = new byte[WIDTH * HEIGHT];
+        }
+        Random rand = new Random(31);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            frames[0][i] = (byte) (i % PALETTE.length);
+        }
+        System.arraycopy(frames[0], 0, frames[1], 0, frames[0].length);
+        frames[1][10 * WIDTH + 20] = 2;
+        frames[1][30 * WIDTH + 5] = 3;
+        System.arraycopy(frames[1], 0, frames[2], 0, frames[1].length);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            frames[3][i] = (byte) rand.nextInt(PALETTE.length);
+        }
+        System.arraycopy(frames[3], 0, frames[4], 0, frames[3].length);
+        int last = WIDTH * HEIGHT - 1;
+        frames[4][last] = (byte) (frames[3][last] == 0 ? 1 : 0);
+        // frames[5] is blank, so every pixel changes back to 0 or stays.
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GifWriter gif = new GifWriter(bytes, WIDTH, HEIGHT, PALETTE, 10, true)) {
+            for (byte[] frame : frames) {
+                gif.writeFrame(frame);
+            }
+            assertEquals(frames.length, gif.getFramesWritten());
+        }
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            reader.setInput(in);
+            assertEquals(frames.length, reader.getNumImages(true));
+            int[] canvas = new int[WIDTH * HEIGHT];
+            for (int f = 0; f < frames.length; f++) {
+                BufferedImage image = reader.read(f);
+                Element descriptor = findChild(reader.getImageMetadata(f), "ImageDescriptor");
+                int left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                int top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        canvas[(top + y) * WIDTH + left + x] = image.getRGB(x, y) & 0xFFFFFF;
+                    }
+                }
+                for (int i = 0; i < canvas.length; i++) {
+                    assertEquals("frame " + f + ", pixel " + i, PALETTE[frames[f][i]], canvas[i]);
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Finds an element of a GIF frame's native metadata.
+     * @param metadata the metadata of the frame
+     * @param name the name of the element
+     * @return the element
+     */
+    private static Element findChild(IIOMetadata metadata, String name) {
+        Node root = metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return (Element) node;
+            }
+        }
+        throw new AssertionError("No " + name + " in the frame's metadata.");
+    }
+}
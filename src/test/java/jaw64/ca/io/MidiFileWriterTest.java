@@ -0,0 +1,113 @@
+package jaw64.ca.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MidiFileWriter}, reading what it writes with {@link MidiSystem}.
+ * @author jaw64
+ */
+public class MidiFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A format 1 file with a tempo track and a long note track (which fills
+     * the write buffer several times and uses running status throughout)
+     * reads back with every event at its tick.
+     */
+    @Test
+    public void roundTripsTracks() throws Exception {
+        final int numNotes = 5000;
+        File file = folder.newFile("song.mid");
+        try (MidiFileWriter midi = new MidiFileWriter(file.toPath(), 1, 96)) {
+            midi.beginTrack();
+            midi.tempo(0, 90.0);
+            midi.timeSignature(0, 3, 4);
+            midi.keySignature(0, -2, true);
+            midi.endTrack(0);
+            midi.beginTrack();
+            midi.programChange(0, 3, 24);
+            for (int n = 0; n < numNotes; n++) {
+                // Gaps longer than a single delta byte, and notes which overlap.
+                midi.noteOn(n * 200L, 3, 40 + n % 48, 1 + n % 127);
+                midi.noteOff(n * 200L + 150, 3, 40 + n % 48);
+            }
+            midi.endTrack(numNotes * 200L);
+        }
+
+        Sequence sequence = MidiSystem.getSequence(file);
+        assertEquals(Sequence.PPQ, sequence.getDivisionType(), 0.0f);
+        assertEquals(96, sequence.getResolution());
+        assertEquals(1, MidiSystem.getMidiFileFormat(file).getType());
+        Track[] tracks = sequence.getTracks();
+        assertEquals(2, tracks.length);
+
+        assertEquals(4, tracks[0].size());
+        assertMeta(tracks[0].get(0), 0, 0x51, 0x0A, 0x2C, 0x2B); // 666667 us per quarter
+        assertMeta(tracks[0].get(1), 0, 0x58, 3, 2, 24, 8);
+        assertMeta(tracks[0].get(2), 0, 0x59, -2, 1);
+        assertMeta(tracks[0].get(3), 0, 0x2F);
+
+        assertEquals(2 * numNotes + 2, tracks[1].size());
+        assertShort(tracks[1].get(0), 0, ShortMessage.PROGRAM_CHANGE, 3, 24, 0);
+        for (int n = 0; n < numNotes; n++) {
+            assertShort(tracks[1].get(1 + 2 * n), n * 200L, ShortMessage.NOTE_ON, 3, 40 + n % 48,
+                    1 + n % 127);
+            assertShort(tracks[1].get(2 + 2 * n), n * 200L + 150, ShortMessage.NOTE_ON, 3,
+                    40 + n % 48, 0);
+        }
+        assertMeta(tracks[1].get(2 * numNotes + 1), numNotes * 200L, 0x2F);
+    }
+
+    /**
+     * Checks a channel event.
+     * @param event the event
+     * @param tick the expected time
+     * @param command the expected command
+     * @param channel the expected channel
+     * @param data1 the expected first data byte
+     * @param data2 the expected second data byte
+     */
+    private static void assertShort(MidiEvent event, long tick, int command, int channel,
+            int data1, int data2) {
+        assertEquals(tick, event.getTick());
+        ShortMessage message = (ShortMessage) event.getMessage();
+        assertEquals(command, message.getCommand());
+        assertEquals(channel, message.getChannel());
+        assertEquals(data1, message.getData1());
+        assertEquals(data2, message.getData2());
+    }
+
+    /**
+     * Checks a meta event.
+     * @param event the event
+     * @param tick the expected time
+     * @param type the expected meta type
+     * @param data the expected data bytes
+     */
+    private static void assertMeta(MidiEvent event, long tick, int type, int... data) {
+        assertEquals(tick, event.getTick());
+        MidiMessage message = event.getMessage();
+        assertTrue(message instanceof MetaMessage);
+        assertEquals(type, ((MetaMessage) message).getType());
+        byte[] expected = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            expected[i] = (byte) data[i];
+        }
+        assertArrayEquals(expected, ((MetaMessage) message).getData());
+    }
+}
@@ -0,0 +1,93 @@
+package jaw64.ca.io;
+
+import static org.junit.Assert.assertEquals;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PngWriter}, decoding what it writes with {@link ImageIO}.
+ * @author jaw64
+ */
+public class PngWriterTest {
+
+    private static final int[] PALETTE = {
+        0x000000, 0xFFFFFF, 0xFF0000, 0x00FF00, 0x0000FF, 0xFFFF00, 0x00FFFF, 0xFF00FF
+    };
+
+    /**
+     * Every bit depth decodes to the pixels written, serially compressed.
+     */
+    @Test
+    public void roundTripsEveryBitDepth() throws Exception {
+        for (int bitDepth : new int[] { 1, 2, 4, 8 }) {
+            int colors = Math.min(PALETTE.length, 1 << bitDepth);
+            checkRoundTrip(37, 23, bitDepth, colors, null);
+        }
+    }
+
+    /**
+     * An image large enough to span several blocks decodes to the pixels written
+     * when its blocks are compressed in parallel.
+     */
+    @Test
+    public void roundTripsParallelBlocks() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            checkRoundTrip(1000, 700, 4, PALETTE.length, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes an image of a pattern of colors, decodes it and compares every pixel.
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param bitDepth the number of bits per pixel
+     * @param colors the number of colors of the palette to use
+     * @param pool the pool to compress on (null to compress serially)
+     * @throws Exception if the image cannot be written or read
+     */
+    private static void checkRoundTrip(int width, int height, int bitDepth, int colors,
+            ExecutorService pool) throws Exception {
+        int[] palette = new int[colors];
+        System.arraycopy(PALETTE, 0, palette, 0, colors);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] indices = new int[width];
+        try (PngWriter png = new PngWriter(bytes, width, height, bitDepth, palette, pool)) {
+            byte[] row = new byte[png.getBytesPerRow()];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    indices[x] = pattern(x, y, colors);
+                }
+                PngWriter.packRow(indices, width, bitDepth, row);
+                png.writeRow(row);
+            }
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(bitDepth + " bits at " + x + "," + y,
+                        palette[pattern(x, y, colors)], image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    /**
+     * Gets the palette index of a pixel of the test pattern.
+     * @param x the column
+     * @param y the row
+     * @param colors the number of colors
+     * @return the palette index
+     */
+    private static int pattern(int x, int y, int colors) {
+        return (x * 7 + y * y * 3 + (x ^ y)) % colors;
+    }
+}